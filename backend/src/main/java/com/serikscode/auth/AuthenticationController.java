@@ -24,4 +24,10 @@ public class AuthenticationController {
 
     }
 
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization){
+        authenticationService.logout(authorization.substring("Bearer ".length()));
+        return ResponseEntity.noContent().build();
+    }
+
 }
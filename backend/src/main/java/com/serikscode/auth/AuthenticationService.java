@@ -3,6 +3,7 @@ package com.serikscode.auth;
 import com.serikscode.customer.Customer;
 import com.serikscode.dto.CustomerDTO;
 import com.serikscode.jwt.JWTUtil;
+import com.serikscode.jwt.TokenRevocationList;
 import com.serikscode.utills.CustomerDTOMapper;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -14,11 +15,13 @@ public class AuthenticationService {
     private final AuthenticationManager authenticationManager;
     private final CustomerDTOMapper customerDTOMapper;
     private final JWTUtil jwtUtil;
+    private final TokenRevocationList tokenRevocationList;
 
-    public AuthenticationService(AuthenticationManager authenticationManager, CustomerDTOMapper customerDTOMapper, JWTUtil jwtUtil) {
+    public AuthenticationService(AuthenticationManager authenticationManager, CustomerDTOMapper customerDTOMapper, JWTUtil jwtUtil, TokenRevocationList tokenRevocationList) {
         this.authenticationManager = authenticationManager;
         this.customerDTOMapper = customerDTOMapper;
         this.jwtUtil = jwtUtil;
+        this.tokenRevocationList = tokenRevocationList;
     }
 
     public AuthenticationResponse login (AuthenticationRequest request){
@@ -31,9 +34,13 @@ public class AuthenticationService {
         Customer customer = (Customer)authentication.getPrincipal();
         CustomerDTO customerDTO = customerDTOMapper.apply(customer);
 
-        String jwtToken = jwtUtil.issueToken(customerDTO.username(), customerDTO.roles());
+        String jwtToken = jwtUtil.issueToken(customerDTO.id(), customerDTO.username(), customerDTO.roles());
 
         return new AuthenticationResponse( jwtToken, customerDTO);
 
     }
+
+    public void logout(String jwtToken){
+        tokenRevocationList.revokeToken(jwtUtil.verify(jwtToken));
+    }
 }
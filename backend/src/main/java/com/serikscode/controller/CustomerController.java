@@ -1,44 +1,242 @@
 package com.serikscode.controller;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.serikscode.customer.CustomerField;
+import com.serikscode.customer.CustomerFilter;
+import com.serikscode.customer.CustomerLookupRequest;
 import com.serikscode.customer.CustomerRegistrationRequest;
+import com.serikscode.customer.CustomerSort;
+import com.serikscode.customer.CustomerUpdateRequest;
+import com.serikscode.dto.CustomerBatch;
+import com.serikscode.dto.CustomerBatchRegistration;
+import com.serikscode.dto.CustomerChanges;
 import com.serikscode.dto.CustomerDTO;
+import com.serikscode.dto.CustomerImportStatus;
+import com.serikscode.dto.CustomerPage;
+import com.serikscode.dto.CustomerSuggestion;
+import com.serikscode.exception.PreconditionFailedException;
 import com.serikscode.jwt.JWTUtil;
+import com.serikscode.service.CustomerBatchRegistrationService;
+import com.serikscode.service.CustomerExportFormat;
+import com.serikscode.service.CustomerEventBus;
+import com.serikscode.service.CustomerExportService;
+import com.serikscode.service.CustomerImportService;
+import com.serikscode.service.CustomerListSnapshot;
+import com.serikscode.service.CustomerPrefixIndex;
 import com.serikscode.service.CustomerService;
+import com.serikscode.service.CustomerVersionTracker;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("api/v1/customers")
 public class CustomerController {
 
     private final CustomerService customerService;
+    private final CustomerBatchRegistrationService customerBatchRegistrationService;
+    private final CustomerExportService customerExportService;
+    private final CustomerImportService customerImportService;
+    private final CustomerPrefixIndex customerPrefixIndex;
+    private final CustomerVersionTracker customerVersionTracker;
+    private final CustomerListSnapshot customerListSnapshot;
+    private final CustomerEventBus customerEventBus;
     private final JWTUtil jwtUtil;
+    private final ObjectWriter sparseWriter;
 
-    public CustomerController(CustomerService customerService, JWTUtil jwtUtil) {
+    // a sparse read leaves the fields it was not asked for null; only its JSON omits them
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private interface SparseCustomerDTO {
+    }
+
+    public CustomerController(CustomerService customerService, CustomerBatchRegistrationService customerBatchRegistrationService, CustomerExportService customerExportService, CustomerImportService customerImportService, CustomerPrefixIndex customerPrefixIndex, CustomerVersionTracker customerVersionTracker, CustomerListSnapshot customerListSnapshot, CustomerEventBus customerEventBus, JWTUtil jwtUtil, ObjectMapper objectMapper) {
         this.customerService = customerService;
+        this.customerBatchRegistrationService = customerBatchRegistrationService;
+        this.customerExportService = customerExportService;
+        this.customerImportService = customerImportService;
+        this.customerPrefixIndex = customerPrefixIndex;
+        this.customerVersionTracker = customerVersionTracker;
+        this.customerListSnapshot = customerListSnapshot;
+        this.customerEventBus = customerEventBus;
         this.jwtUtil = jwtUtil;
+        this.sparseWriter = objectMapper.copy()
+                .addMixIn(CustomerDTO.class, SparseCustomerDTO.class)
+                .writer();
     }
 
     //    @RequestMapping(path = "api/v1/customer", method = RequestMethod.GET)
     @GetMapping
-    public List<CustomerDTO> getCustomers(){
-        return customerService.getAllCustomer();
+    public ResponseEntity<?> getCustomers(
+            CustomerFilter filter,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "fields", required = false) String fields,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request){
+        boolean unfiltered = filter.isEmpty() && sort == null && fields == null;
+        CustomerListSnapshot.Snapshot snapshot = unfiltered ? customerListSnapshot.get() : null;
+        if (snapshot != null) {
+            return snapshotResponse(snapshot, acceptEncoding, request);
+        }
+
+        // read the version before the rows so a concurrent write can only make the tag older
+        if (request.checkNotModified(customerVersionTracker.listETag())) {
+            return null;
+        }
+        if (unfiltered) {
+            return ResponseEntity.ok(customerService.getAllCustomer());
+        }
+        List<CustomerDTO> customers = customerService.getCustomers(
+                filter,
+                CustomerSort.parse(sort),
+                CustomerField.parse(fields)
+        );
+        return fields == null ? ResponseEntity.ok(customers) : sparse(customers);
+    }
+
+    private ResponseEntity<byte[]> sparse(Object body) {
+        try {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(sparseWriter.writeValueAsBytes(body));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ResponseEntity<byte[]> snapshotResponse(CustomerListSnapshot.Snapshot snapshot,
+                                                    String acceptEncoding,
+                                                    WebRequest request){
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        if (request.checkNotModified(gzip ? snapshot.gzipETag() : snapshot.etag())) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.gzip());
+        }
+        return response.body(snapshot.json());
+    }
+
+    @GetMapping(params = "limit")
+    public ResponseEntity<?> getCustomersPage(
+            CustomerFilter filter,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam("limit") int limit,
+            @RequestParam(value = "fields", required = false) String fields,
+            WebRequest request){
+        if (request.checkNotModified(customerVersionTracker.listETag())) {
+            return null;
+        }
+        CustomerPage page = customerService.getCustomersPage(
+                filter,
+                CustomerSort.parse(sort),
+                after,
+                limit,
+                CustomerField.parse(fields)
+        );
+        return fields == null ? ResponseEntity.ok(page) : sparse(page);
+    }
+
+    @GetMapping(params = "ids")
+    public CustomerBatch getCustomersByIds(@RequestParam("ids") List<Integer> ids){
+        return customerService.getCustomersByIds(ids);
+    }
+
+    // for id sets too long to fit in a query string
+    @PostMapping("/lookup")
+    public CustomerBatch lookupCustomers(@RequestBody CustomerLookupRequest lookupRequest){
+        return customerService.getCustomersByIds(lookupRequest.ids());
+    }
+
+    @GetMapping("/changes")
+    public CustomerChanges getCustomerChanges(
+            @RequestParam(value = "since", required = false) String since,
+            @RequestParam(value = "limit", defaultValue = "500") int limit){
+        return customerService.getChangesSince(since, limit);
+    }
+
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamCustomerEvents(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId){
+        return customerEventBus.subscribe(lastEventId);
+    }
+
+    @GetMapping("/search")
+    public List<CustomerDTO> searchCustomers(
+            @RequestParam("q") String query,
+            @RequestParam(value = "limit", defaultValue = "20") int limit){
+        return customerService.searchCustomers(query, limit);
+    }
+
+    @GetMapping("/autocomplete")
+    public List<CustomerSuggestion> autocompleteCustomers(
+            @RequestParam("prefix") String prefix,
+            @RequestParam(value = "limit", required = false) Integer limit){
+        return customerPrefixIndex.suggest(prefix, limit);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCustomers(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format){
+        CustomerExportFormat exportFormat = CustomerExportFormat.from(format);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(
+                        HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=customers." + exportFormat.getFileExtension()
+                )
+                .body(outputStream -> customerExportService.export(exportFormat, outputStream));
     }
 
     @GetMapping("/{customerId}")
-    public CustomerDTO getCustomer(@PathVariable("customerId") Integer customerId){
-        return customerService.getCustomerById(customerId);
+    public ResponseEntity<?> getCustomer(
+            @PathVariable("customerId") Integer customerId,
+            @RequestParam(value = "fields", required = false) String fields,
+            WebRequest request){
+        Set<CustomerField> fieldSet = CustomerField.parse(fields);
+        String etag = customerVersionTracker.customerETag(customerId, fieldSet);
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+        CustomerDTO customer = fields == null
+                ? customerService.getCustomerById(customerId)
+                : customerService.getCustomerById(customerId, fieldSet);
+        // first read of this row here: tag it with the version just loaded
+        if (etag == null
+                && customer.version() != null
+                && request.checkNotModified(customerVersionTracker.customerETag(customerId, customer.version(), fieldSet))) {
+            return null;
+        }
+        return fields == null ? ResponseEntity.ok(customer) : sparse(customer);
     }
 
     @PostMapping
     public ResponseEntity<?> registerCustomer(@RequestBody CustomerRegistrationRequest customerRegistrationRequest){
-        customerService.addCustomer(customerRegistrationRequest);
-        String jwtToken = jwtUtil.issueToken(customerRegistrationRequest.email(), "ROLE_USER");
+        Integer customerId = customerService.addCustomer(customerRegistrationRequest);
+        String jwtToken = jwtUtil.issueToken(
+                customerId,
+                customerRegistrationRequest.email(),
+                List.of("ROLE_USER")
+        );
         return ResponseEntity.ok()
                 .header(HttpHeaders.AUTHORIZATION, jwtToken)
                 .build();
@@ -50,10 +248,63 @@ public class CustomerController {
     }
 
     @PutMapping("/{customerId}")
-    public void updateCustomer(
+    public ResponseEntity<Void> updateCustomer(
             @PathVariable("customerId") Integer id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody CustomerRegistrationRequest customerRegistrationRequest){
-        customerService.updateCustomer(id, customerRegistrationRequest);
+        Long version = customerService.updateCustomer(id, customerRegistrationRequest, expectedVersion(ifMatch));
+        if (version == null) {
+            return ResponseEntity.ok().build();
+        }
+        return ResponseEntity.ok()
+                .eTag(customerVersionTracker.customerETag(id, version))
+                .build();
+    }
+
+    // "*" only asks for the customer to exist, which the update checks anyway
+    private Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        Long version = customerVersionTracker.parseCustomerETag(ifMatch);
+        if (version == null) {
+            throw new PreconditionFailedException("If-Match does not name a version of this customer");
+        }
+        return version;
+    }
+
+    @PatchMapping("/{customerId}")
+    public CustomerDTO patchCustomer(
+            @PathVariable("customerId") Integer id,
+            @RequestBody CustomerUpdateRequest updateRequest){
+        return customerService.patchCustomer(id, updateRequest);
+    }
+
+    @PostMapping("/batch")
+    public CustomerBatchRegistration registerCustomers(@RequestBody List<CustomerRegistrationRequest> registrationRequests){
+        return customerBatchRegistrationService.registerCustomers(registrationRequests);
+    }
+
+    // the file is the raw request body, so the multipart size limits do not apply
+    @PostMapping(
+            value = "/import",
+            consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE}
+    )
+    public ResponseEntity<CustomerImportStatus> importCustomers(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) throws IOException {
+        CustomerImportStatus status = customerImportService.startImport(body, CustomerExportFormat.from(contentType));
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest()
+                        .path("/{jobId}")
+                        .buildAndExpand(status.jobId())
+                        .toUri())
+                .body(status);
+    }
+
+    @GetMapping("/import/{jobId}")
+    public CustomerImportStatus getImportStatus(@PathVariable("jobId") UUID jobId) {
+        return customerImportService.getImportStatus(jobId);
     }
 
     @PostMapping(
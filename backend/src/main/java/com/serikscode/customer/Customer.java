@@ -1,6 +1,9 @@
 package com.serikscode.customer;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.Generated;
+import org.hibernate.annotations.GenerationTime;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -10,7 +13,9 @@ import java.util.List;
 import java.util.Objects;
 
 
+// updates write only the changed columns rather than every one
 @Entity
+@DynamicUpdate
 @Table(
         name = "customer",
         uniqueConstraints = {
@@ -25,11 +30,13 @@ import java.util.Objects;
         })
 public class Customer implements UserDetails {
 
+    // must match the sequence increment set in V7; the pooled-lo optimizer is
+    // chosen by hibernate.id.optimizer.pooled.preferred in application.yml
     @Id
     @SequenceGenerator(
             name = "customer_id_sequence",
             sequenceName = "customer_id_sequence",
-            allocationSize = 1
+            allocationSize = 50
     )
     @GeneratedValue(
             strategy = GenerationType.SEQUENCE,
@@ -57,6 +64,20 @@ public class Customer implements UserDetails {
     )
     private String profileImageId;
 
+    // assigned by the database on every insert and update, see the V5 migration
+    @Column(insertable = false, updatable = false)
+    @Generated(GenerationTime.ALWAYS)
+    private Long changeVersion;
+
+    // id of the transaction that wrote changeVersion, see the V10 migration
+    @Column(insertable = false, updatable = false)
+    @Generated(GenerationTime.ALWAYS)
+    private Long changeXid;
+
+    // bumped by every update; JDBC writes check it the same way Hibernate does
+    @Version
+    private Long version;
+
     public Customer() {
     }
 
@@ -72,6 +93,22 @@ public class Customer implements UserDetails {
         this.profileImageId = profileImageId;
     }
 
+    public Long getChangeVersion() {
+        return changeVersion;
+    }
+
+    public Long getChangeXid() {
+        return changeXid;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Customer(
             Integer id,
             String name,
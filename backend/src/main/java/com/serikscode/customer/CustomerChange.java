@@ -0,0 +1,19 @@
+package com.serikscode.customer;
+
+/**
+ * One entry of the change feed: the current state of a customer written
+ * after some position, or a tombstone when {@code customer} is null.
+ */
+public record CustomerChange(
+        Integer customerId,
+        CustomerChangeCursor position,
+        Customer customer
+) {
+    public static CustomerChange deleted(Integer customerId, CustomerChangeCursor position) {
+        return new CustomerChange(customerId, position, null);
+    }
+
+    public boolean isDeleted() {
+        return customer == null;
+    }
+}
@@ -0,0 +1,22 @@
+package com.serikscode.customer;
+
+/**
+ * Position in the change feed: the transaction that wrote a change and the
+ * change's version within it. Positions are ordered by transaction first,
+ * so a transaction that commits late still lands after every cursor issued
+ * before it finished.
+ */
+public record CustomerChangeCursor(long changeXid, long changeVersion) implements Comparable<CustomerChangeCursor> {
+
+    public static final CustomerChangeCursor START = new CustomerChangeCursor(0, 0);
+
+    @Override
+    public int compareTo(CustomerChangeCursor other) {
+        int byXid = Long.compare(changeXid, other.changeXid);
+        return byXid != 0 ? byXid : Long.compare(changeVersion, other.changeVersion);
+    }
+
+    public boolean isBefore(CustomerChangeCursor other) {
+        return compareTo(other) < 0;
+    }
+}
@@ -0,0 +1,18 @@
+package com.serikscode.customer;
+
+/**
+ * Published by {@code CustomerService} after a write has been applied.
+ * {@code customer} is the state after the change and is null for deletes.
+ */
+public record CustomerChangedEvent(
+        ChangeType type,
+        Integer customerId,
+        Customer customer
+) {
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED,
+        PROFILE_IMAGE_UPDATED
+    }
+}
@@ -0,0 +1,8 @@
+package com.serikscode.customer;
+
+/**
+ * Keyset position of the last row of a page: its id and, unless the list is
+ * sorted by id, the value of the sort column.
+ */
+public record CustomerCursor(Integer lastId, Object lastSortValue) {
+}
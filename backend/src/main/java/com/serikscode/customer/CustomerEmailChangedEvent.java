@@ -0,0 +1,8 @@
+package com.serikscode.customer;
+
+public record CustomerEmailChangedEvent(
+        Integer customerId,
+        String previousEmail,
+        String email
+) {
+}
@@ -0,0 +1,93 @@
+package com.serikscode.customer;
+
+import com.serikscode.exception.RequestValidationException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Fields of the customer representation that can be requested with {@code ?fields=}.
+ * Each field knows the column and entity attribute it is read from; derived fields
+ * such as {@code roles} have neither.
+ */
+public enum CustomerField {
+    ID("id", "id", "id"),
+    NAME("name", "name", "name"),
+    EMAIL("email", "email", "email"),
+    GENDER("gender", "gender", "gender"),
+    AGE("age", "age", "age"),
+    ROLES("roles", null, null),
+    USERNAME("username", "email", "email"),
+    PROFILE_IMAGE_ID("profileImageId", "profile_image_id", "profileImageId");
+
+    public static final Set<CustomerField> ALL =
+            Collections.unmodifiableSet(EnumSet.allOf(CustomerField.class));
+
+    private final String fieldName;
+    private final String column;
+    private final String attribute;
+
+    CustomerField(String fieldName, String column, String attribute) {
+        this.fieldName = fieldName;
+        this.column = column;
+        this.attribute = attribute;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public String getAttribute() {
+        return attribute;
+    }
+
+    public static Set<CustomerField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        Set<CustomerField> parsed = EnumSet.noneOf(CustomerField.class);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            parsed.add(Arrays.stream(values())
+                    .filter(field -> field.fieldName.equals(trimmed))
+                    .findFirst()
+                    .orElseThrow(() -> new RequestValidationException(
+                            "unknown customer field [%s]".formatted(trimmed)
+                    )));
+        }
+        return parsed;
+    }
+
+    // the id is always read because pagination and caching key on it
+    public static Set<String> columnsOf(Set<CustomerField> fields) {
+        Set<String> columns = new LinkedHashSet<>();
+        columns.add(ID.column);
+        fields.stream()
+                .map(CustomerField::getColumn)
+                .filter(Objects::nonNull)
+                .forEach(columns::add);
+        return columns;
+    }
+
+    public static Set<String> attributesOf(Set<CustomerField> fields) {
+        Set<String> attributes = new LinkedHashSet<>();
+        attributes.add(ID.attribute);
+        fields.stream()
+                .map(CustomerField::getAttribute)
+                .filter(Objects::nonNull)
+                .forEach(attributes::add);
+        return attributes;
+    }
+
+    public static String selectList(Set<CustomerField> fields) {
+        return String.join(", ", columnsOf(fields));
+    }
+}
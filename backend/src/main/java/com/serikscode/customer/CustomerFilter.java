@@ -0,0 +1,19 @@
+package com.serikscode.customer;
+
+public record CustomerFilter(
+        Integer minAge,
+        Integer maxAge,
+        Gender gender,
+        String namePrefix,
+        String emailPrefix
+) {
+    public static final CustomerFilter NONE = new CustomerFilter(null, null, null, null, null);
+
+    public boolean isEmpty() {
+        return minAge == null
+                && maxAge == null
+                && gender == null
+                && namePrefix == null
+                && emailPrefix == null;
+    }
+}
@@ -0,0 +1,17 @@
+package com.serikscode.customer;
+
+/**
+ * Another instance changed a customer, or, with a null id, this instance
+ * may have missed changes and should drop everything it holds in memory.
+ */
+public record CustomerInvalidationEvent(
+        Integer customerId
+) {
+    public static CustomerInvalidationEvent flushAll() {
+        return new CustomerInvalidationEvent(null);
+    }
+
+    public boolean isFlush() {
+        return customerId == null;
+    }
+}
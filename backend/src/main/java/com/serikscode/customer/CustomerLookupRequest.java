@@ -0,0 +1,7 @@
+package com.serikscode.customer;
+
+import java.util.List;
+
+public record CustomerLookupRequest(
+        List<Integer> ids
+) { }
@@ -0,0 +1,20 @@
+package com.serikscode.customer;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+public record CustomerQuery(
+        CustomerFilter filter,
+        CustomerSort sort,
+        CustomerCursor after,
+        Integer limit,
+        Set<CustomerField> fields
+) {
+
+    // the sort column is always read so the next cursor can be built from the last row
+    public Set<CustomerField> readFields() {
+        Set<CustomerField> readFields = EnumSet.copyOf(fields);
+        readFields.add(sort.field());
+        return readFields;
+    }
+}
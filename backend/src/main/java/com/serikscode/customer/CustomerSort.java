@@ -0,0 +1,41 @@
+package com.serikscode.customer;
+
+import com.serikscode.exception.RequestValidationException;
+
+import java.util.Set;
+
+/**
+ * Sort order of a customer list, written as {@code sort=name} or {@code sort=-age}.
+ * Ties are always broken by id so the order is total and can be paged by keyset.
+ */
+public record CustomerSort(CustomerField field, boolean descending) {
+
+    public static final CustomerSort BY_ID = new CustomerSort(CustomerField.ID, false);
+
+    private static final Set<CustomerField> SORTABLE =
+            Set.of(CustomerField.ID, CustomerField.NAME, CustomerField.AGE);
+
+    public static CustomerSort parse(String sort) {
+        if (sort == null || sort.isBlank()) {
+            return BY_ID;
+        }
+        boolean descending = sort.startsWith("-");
+        String name = descending ? sort.substring(1) : sort;
+        CustomerField field = SORTABLE.stream()
+                .filter(f -> f.getFieldName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new RequestValidationException(
+                        "cannot sort customers by [%s]".formatted(name)
+                ));
+        return new CustomerSort(field, descending);
+    }
+
+    public boolean isById() {
+        return field == CustomerField.ID;
+    }
+
+    @Override
+    public String toString() {
+        return (descending ? "-" : "") + field.getFieldName();
+    }
+}
@@ -0,0 +1,17 @@
+package com.serikscode.customer;
+
+import java.util.stream.Stream;
+
+/**
+ * Fields to change on a customer; null fields are left as they are.
+ */
+public record CustomerUpdateRequest(
+        String name,
+        String email,
+        Integer age,
+        Gender gender
+) {
+    public boolean isEmpty() {
+        return Stream.of(name, email, age, gender).allMatch(field -> field == null);
+    }
+}
@@ -0,0 +1,13 @@
+package com.serikscode.customer;
+
+import java.util.List;
+
+/**
+ * Published by {@code CustomerBatchRegistrationService} once a batch of new
+ * customers has been committed, in place of one {@link CustomerChangedEvent}
+ * per row. {@code customers} holds the inserted rows, with their ids.
+ */
+public record CustomersCreatedEvent(
+        List<Customer> customers
+) {
+}
@@ -0,0 +1,13 @@
+package com.serikscode.customer;
+
+/**
+ * A customer as written by a partial update, with the email it had before.
+ */
+public record PatchedCustomer(
+        Customer customer,
+        String previousEmail
+) {
+    public boolean emailChanged() {
+        return !customer.getEmail().equals(previousEmail);
+    }
+}
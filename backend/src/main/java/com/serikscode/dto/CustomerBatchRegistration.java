@@ -0,0 +1,10 @@
+package com.serikscode.dto;
+
+import java.util.List;
+
+public record CustomerBatchRegistration(
+        int registered,
+        int failed,
+        List<CustomerRegistrationResult> results
+) {
+}
@@ -0,0 +1,11 @@
+package com.serikscode.dto;
+
+import java.util.List;
+
+public record CustomerChanges(
+        List<CustomerDTO> changed,
+        List<Integer> deletedIds,
+        String cursor,
+        boolean hasMore
+) {
+}
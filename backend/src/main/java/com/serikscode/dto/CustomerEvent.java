@@ -0,0 +1,12 @@
+package com.serikscode.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// customer is left out for deletes and profile image changes
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CustomerEvent(
+        String type,
+        Integer customerId,
+        CustomerDTO customer
+) {
+}
@@ -0,0 +1,7 @@
+package com.serikscode.dto;
+
+public record CustomerImportReject(
+        long row,
+        String reason
+) {
+}
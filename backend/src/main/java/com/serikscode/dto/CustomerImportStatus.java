@@ -0,0 +1,32 @@
+package com.serikscode.dto;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+// rejects holds the first few rejected rows only; rejected counts all of them
+public record CustomerImportStatus(
+        UUID jobId,
+        State state,
+        String format,
+        long bytesTotal,
+        long bytesRead,
+        long rowsRead,
+        long rowsStaged,
+        long rowsImported,
+        long duplicates,
+        long rejected,
+        double rowsPerSecond,
+        Instant startedAt,
+        Instant finishedAt,
+        String error,
+        List<CustomerImportReject> rejects
+) {
+    public enum State {
+        QUEUED,
+        STAGING,
+        MERGING,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -0,0 +1,9 @@
+package com.serikscode.dto;
+
+import java.util.List;
+
+public record CustomerPage(
+        List<CustomerDTO> customers,
+        String nextCursor
+) {
+}
@@ -0,0 +1,16 @@
+package com.serikscode.dto;
+
+public record CustomerRegistrationResult(
+        int index,
+        String email,
+        Integer customerId,
+        String error
+) {
+    public static CustomerRegistrationResult registered(int index, String email, Integer customerId) {
+        return new CustomerRegistrationResult(index, email, customerId, null);
+    }
+
+    public static CustomerRegistrationResult failed(int index, String email, String error) {
+        return new CustomerRegistrationResult(index, email, null, error);
+    }
+}
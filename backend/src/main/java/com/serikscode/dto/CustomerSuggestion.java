@@ -0,0 +1,8 @@
+package com.serikscode.dto;
+
+public record CustomerSuggestion(
+        Integer id,
+        String name,
+        String email
+) {
+}
@@ -0,0 +1,11 @@
+package com.serikscode.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.GONE)
+public class ChangeHistoryExpiredException extends RuntimeException{
+    public ChangeHistoryExpiredException(String message) {
+        super(message);
+    }
+}
@@ -30,6 +30,53 @@ public class DefaultExceptionHandler {
 
     }
 
+    // without this the catch-all below turns duplicates into a 500
+    @ExceptionHandler(DuplicateResourseException.class)
+    public ResponseEntity<ApiError> handlerException(DuplicateResourseException e,
+                                                     HttpServletRequest request){
+
+        ApiError apiError = new ApiError(
+                request.getRequestURI(),
+                e.getMessage(),
+                HttpStatus.CONFLICT.value(),
+                LocalDateTime.now()
+        );
+
+        return new ResponseEntity<>(apiError, HttpStatus.CONFLICT);
+
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ApiError> handlerException(PreconditionFailedException e,
+                                                     HttpServletRequest request){
+
+        ApiError apiError = new ApiError(
+                request.getRequestURI(),
+                e.getMessage(),
+                HttpStatus.PRECONDITION_FAILED.value(),
+                LocalDateTime.now()
+        );
+
+        return new ResponseEntity<>(apiError, HttpStatus.PRECONDITION_FAILED);
+
+    }
+
+    // the client's cursor is older than the kept tombstones, so it has to sync from scratch
+    @ExceptionHandler(ChangeHistoryExpiredException.class)
+    public ResponseEntity<ApiError> handlerException(ChangeHistoryExpiredException e,
+                                                     HttpServletRequest request){
+
+        ApiError apiError = new ApiError(
+                request.getRequestURI(),
+                e.getMessage(),
+                HttpStatus.GONE.value(),
+                LocalDateTime.now()
+        );
+
+        return new ResponseEntity<>(apiError, HttpStatus.GONE);
+
+    }
+
     @ExceptionHandler(InsufficientAuthenticationException.class)
     public ResponseEntity<ApiError> handlerException(InsufficientAuthenticationException e,
                                                      HttpServletRequest request){
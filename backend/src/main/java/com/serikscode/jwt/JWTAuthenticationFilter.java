@@ -1,10 +1,12 @@
 package com.serikscode.jwt;
 
+import com.serikscode.security.CustomerPrincipal;
 import com.serikscode.security.CustomerUserDetailsService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -20,10 +22,17 @@ public class JWTAuthenticationFilter extends OncePerRequestFilter {
 
     private final JWTUtil jwtUtil;
     private final CustomerUserDetailsService customerUserDetailsService;
+    private final TokenRevocationList tokenRevocationList;
+    private final boolean stateless;
 
-    public JWTAuthenticationFilter(JWTUtil jwtUtil, CustomerUserDetailsService customerUserDetailsService) {
+    public JWTAuthenticationFilter(JWTUtil jwtUtil,
+                                   CustomerUserDetailsService customerUserDetailsService,
+                                   TokenRevocationList tokenRevocationList,
+                                   @Value("${jwt.stateless:false}") boolean stateless) {
         this.jwtUtil = jwtUtil;
         this.customerUserDetailsService = customerUserDetailsService;
+        this.tokenRevocationList = tokenRevocationList;
+        this.stateless = stateless;
     }
 
     @Override
@@ -38,21 +47,25 @@ public class JWTAuthenticationFilter extends OncePerRequestFilter {
         }
 
         String jwt= authHeader.substring(7);
-        String subject = jwtUtil.getSubject(jwt);
+        // one parse checks the signature and the expiry
+        VerifiedToken token = jwtUtil.verify(jwt);
 
-        if(subject !=null && SecurityContextHolder.getContext().getAuthentication() == null){
-            UserDetails userDetails = customerUserDetailsService.loadUserByUsername(subject);
-            if(jwtUtil.isTokenValid(jwt, userDetails.getUsername())){
-                UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities()
-                );
+        if(token.subject() !=null
+                && SecurityContextHolder.getContext().getAuthentication() == null
+                && !tokenRevocationList.isRevoked(token)){
+            // tokens from before the customer id claim still need the lookup
+            UserDetails userDetails = stateless && token.customerId() != null
+                    ? CustomerPrincipal.of(token)
+                    : customerUserDetailsService.loadPrincipal(token.subject());
+            UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
+                    userDetails, null, userDetails.getAuthorities()
+            );
 
-                authenticationToken.setDetails(
-                        new WebAuthenticationDetailsSource().buildDetails(request)
-                );
+            authenticationToken.setDetails(
+                    new WebAuthenticationDetailsSource().buildDetails(request)
+            );
 
-                SecurityContextHolder.getContext().setAuthentication(authenticationToken);
-            }
+            SecurityContextHolder.getContext().setAuthentication(authenticationToken);
         }
 
         filterChain.doFilter(request,response);
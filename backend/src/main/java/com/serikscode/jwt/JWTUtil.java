@@ -1,17 +1,28 @@
 package com.serikscode.jwt;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.util.Base64;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 @Service
 public class JWTUtil {
@@ -19,6 +30,42 @@ public class JWTUtil {
     private static final String secretKey =
             "foobar_123456789foobar_123456789foobar_123456789foobar_123456789";
 
+    public static final Duration TOKEN_LIFETIME = Duration.ofDays(15);
+    static final String CUSTOMER_ID_CLAIM = "cid";
+    // iat only has seconds; revocation cutoffs need the exact issue time
+    static final String ISSUED_AT_MILLIS_CLAIM = "iat_ms";
+
+    // the key and the parser are immutable and thread-safe, so build them once
+    private final Key signingKey = Keys.hmacShaKeyFor(secretKey.getBytes());
+    private final JwtParser parser = Jwts.parserBuilder()
+            .setSigningKey(signingKey)
+            .build();
+
+    // null when disabled; entries never outlive the token they were verified from
+    private final Cache<String, VerifiedToken> verifiedTokens;
+
+    public JWTUtil(@Value("${jwt.verified-cache.maximum-size:0}") long verifiedCacheSize) {
+        this.verifiedTokens = verifiedCacheSize <= 0 ? null : Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+                        return Math.max(0, Duration.between(Instant.now(), token.expiresAt()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
     public String issueToken(String subject){
         return issueToken(subject, Map.of());
     }
@@ -31,53 +78,92 @@ public class JWTUtil {
         return issueToken(subject, Map.of("scopes", scopes));
     }
 
+    // carries everything a stateless request needs to build its principal
+    public String issueToken(Integer customerId, String subject, List<String> scopes){
+        return issueToken(subject, Map.of("scopes", scopes, CUSTOMER_ID_CLAIM, customerId));
+    }
+
     public String issueToken(
             String subject,
             Map<String, Object> claims
     ) {
+        Instant now = Instant.now();
         String token = Jwts
                 .builder()
                 .setClaims(claims)
+                .claim(ISSUED_AT_MILLIS_CLAIM, now.toEpochMilli())
+                .setId(UUID.randomUUID().toString())
                 .setSubject(subject)
                 .setIssuer("https://customers.com")
-                .setIssuedAt(Date.from(Instant.now()))
+                .setIssuedAt(Date.from(now))
                 .setExpiration(
                         Date.from(
-                                Instant.now().plus(15, ChronoUnit.DAYS)
+                                now.plus(TOKEN_LIFETIME)
                         )
                 )
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
 
         return token;
     }
 
-    public String getSubject(String token){
-        Claims claims = getClaims(token);
-        return  claims.getSubject();
+    /**
+     * Checks the signature and expiry of a token in a single parse.
+     *
+     * @throws JwtException if the token is malformed, forged or expired
+     */
+    public VerifiedToken verify(String token) {
+        if (verifiedTokens == null) {
+            return parse(token);
+        }
+        // keyed by digest so the cache never holds usable bearer tokens
+        String digest = digest(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null && !cached.isExpired(Instant.now())) {
+            return cached;
+        }
+        VerifiedToken verified = parse(token);
+        verifiedTokens.put(digest, verified);
+        return verified;
     }
 
-    private Claims getClaims(String token) {
-        Claims claims = Jwts
-                .parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claims;
+    public String getSubject(String token){
+        return verify(token).subject();
     }
 
-    private Key getSigningKey(){
-        return Keys.hmacShaKeyFor(secretKey.getBytes());
+    public boolean isTokenValid(String jwt, String username) {
+        try {
+            return verify(jwt).subject().equals(username);
+        } catch (JwtException e) {
+            return false;
+        }
     }
 
-    public boolean isTokenValid(String jwt, String username) {
-        String subject = getSubject(jwt);
-        return subject.equals(username) && !isTokenExpired(jwt);
+    private VerifiedToken parse(String token) {
+        // parseClaimsJws already rejects expired tokens
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        List<?> scopes = claims.get("scopes", List.class);
+        Long issuedAtMillis = claims.get(ISSUED_AT_MILLIS_CLAIM, Long.class);
+        Instant issuedAt = issuedAtMillis != null
+                ? Instant.ofEpochMilli(issuedAtMillis)
+                : claims.getIssuedAt() == null ? null : claims.getIssuedAt().toInstant();
+        return new VerifiedToken(
+                claims.getId(),
+                claims.get(CUSTOMER_ID_CLAIM, Integer.class),
+                claims.getSubject(),
+                scopes == null ? List.of() : scopes.stream().map(String::valueOf).toList(),
+                issuedAt,
+                claims.getExpiration().toInstant()
+        );
     }
 
-    private boolean isTokenExpired(String jwt) {
-        Date today = Date.from(Instant.now());
-        return getClaims(jwt).getExpiration().before(today);
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 }
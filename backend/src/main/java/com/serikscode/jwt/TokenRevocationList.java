@@ -0,0 +1,171 @@
+package com.serikscode.jwt;
+
+import com.serikscode.customer.CustomerChangedEvent;
+import com.serikscode.customer.CustomerEmailChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Denylist of JWTs that must stop working before they expire.
+ *
+ * A logout revokes a single token by id. Deleting a customer or changing
+ * their email revokes every token issued to that customer up to that
+ * moment. Checks only read two in-memory maps. Revocations are also
+ * written to {@code token_revocation}, and every instance re-reads recent
+ * rows on a timer, so a revocation reaches the other instances within one
+ * refresh interval. Entries are dropped once the tokens they cover have
+ * expired.
+ */
+@Component
+public class TokenRevocationList implements SmartInitializingSingleton, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TokenRevocationList.class);
+
+    private record Cutoff(Instant issuedBefore, Instant expiresAt) {
+    }
+
+    private final Map<String, Instant> revokedTokens = new ConcurrentHashMap<>();
+    private final Map<Integer, Cutoff> revokedCustomers = new ConcurrentHashMap<>();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration refreshInterval;
+    private final ScheduledExecutorService scheduler;
+    private volatile Instant lastRefresh = Instant.EPOCH;
+
+    public TokenRevocationList(JdbcTemplate jdbcTemplate,
+                               @Value("${jwt.revocation.refresh-interval:10s}") Duration refreshInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.refreshInterval = refreshInterval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-revocation-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        refresh();
+        scheduler.scheduleWithFixedDelay(
+                this::refreshQuietly,
+                refreshInterval.toMillis(),
+                refreshInterval.toMillis(),
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    public boolean isRevoked(VerifiedToken token) {
+        if (token.id() != null && revokedTokens.containsKey(token.id())) {
+            return true;
+        }
+        if (token.customerId() == null) {
+            return false;
+        }
+        Cutoff cutoff = revokedCustomers.get(token.customerId());
+        // a token from the cutoff's own millisecond is revoked too; one from before iat_ms
+        // has whole seconds and is revoked if it comes from the cutoff's second
+        return cutoff != null
+                && (token.issuedAt() == null || !token.issuedAt().isAfter(cutoff.issuedBefore()));
+    }
+
+    public void revokeToken(VerifiedToken token) {
+        if (token.id() == null) {
+            return;
+        }
+        revokedTokens.put(token.id(), token.expiresAt());
+        jdbcTemplate.update(
+                "INSERT INTO token_revocation (token_id, expires_at) VALUES (?, ?)",
+                token.id(), Timestamp.from(token.expiresAt())
+        );
+    }
+
+    public void revokeCustomer(Integer customerId) {
+        Instant now = Instant.now();
+        Cutoff cutoff = new Cutoff(now, now.plus(JWTUtil.TOKEN_LIFETIME));
+        revokedCustomers.merge(customerId, cutoff, TokenRevocationList::later);
+        jdbcTemplate.update(
+                "INSERT INTO token_revocation (customer_id, issued_before, expires_at) VALUES (?, ?, ?)",
+                customerId, Timestamp.from(cutoff.issuedBefore()), Timestamp.from(cutoff.expiresAt())
+        );
+    }
+
+    @EventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        if (event.type() == CustomerChangedEvent.ChangeType.DELETED) {
+            revokeCustomer(event.customerId());
+        }
+    }
+
+    // tokens carry the email as their subject, so the old ones must stop working
+    @EventListener
+    public void onCustomerEmailChanged(CustomerEmailChangedEvent event) {
+        revokeCustomer(event.customerId());
+    }
+
+    void refresh() {
+        Instant now = Instant.now();
+        // overlap the previous read so rows committed late are not skipped
+        Instant since = lastRefresh.minus(refreshInterval.multipliedBy(6));
+        jdbcTemplate.query(
+                """
+                SELECT token_id, customer_id, issued_before, expires_at
+                FROM token_revocation
+                WHERE recorded_at > ? AND expires_at > ?
+                """,
+                rs -> {
+                    Instant expiresAt = rs.getTimestamp("expires_at").toInstant();
+                    String tokenId = rs.getString("token_id");
+                    if (tokenId != null) {
+                        revokedTokens.put(tokenId, expiresAt);
+                    } else {
+                        revokedCustomers.merge(
+                                rs.getInt("customer_id"),
+                                new Cutoff(rs.getTimestamp("issued_before").toInstant(), expiresAt),
+                                TokenRevocationList::later
+                        );
+                    }
+                },
+                Timestamp.from(since), Timestamp.from(now)
+        );
+        lastRefresh = now;
+        prune(now);
+    }
+
+    private void prune(Instant now) {
+        revokedTokens.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+        revokedCustomers.values().removeIf(cutoff -> !cutoff.expiresAt().isAfter(now));
+        jdbcTemplate.update("DELETE FROM token_revocation WHERE expires_at <= ?", Timestamp.from(now));
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            LOGGER.warn("token revocation refresh failed", e);
+        }
+    }
+
+    private static Cutoff later(Cutoff a, Cutoff b) {
+        return a.issuedBefore().isAfter(b.issuedBefore()) ? a : b;
+    }
+}
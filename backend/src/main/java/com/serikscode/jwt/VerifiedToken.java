@@ -0,0 +1,23 @@
+package com.serikscode.jwt;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Claims of a token whose signature and expiry have been checked. The id
+ * and customer id are null for tokens issued before they were added. The
+ * issue time has millisecond precision, or whole seconds for tokens issued
+ * before the {@code iat_ms} claim was added.
+ */
+public record VerifiedToken(
+        String id,
+        Integer customerId,
+        String subject,
+        List<String> scopes,
+        Instant issuedAt,
+        Instant expiresAt
+) {
+    public boolean isExpired(Instant now) {
+        return !expiresAt.isAfter(now);
+    }
+}
@@ -1,19 +1,53 @@
 package com.serikscode.repository;
 
 import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerChange;
+import com.serikscode.customer.CustomerChangeCursor;
+import com.serikscode.customer.CustomerField;
+import com.serikscode.customer.CustomerQuery;
+import com.serikscode.customer.CustomerUpdateRequest;
+import com.serikscode.customer.PatchedCustomer;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public interface CustomerDao {
 
     List<Customer> selectAllCustomer();
+    List<Customer> selectCustomers(CustomerQuery query);
+    List<Customer> searchCustomers(String term, int limit);
+    // rows written after the position plus tombstones, oldest change first; only
+    // changes of transactions older than every running one, so none can commit behind them
+    List<CustomerChange> selectChangesSince(CustomerChangeCursor since, int limit);
+    // position of the newest pruned tombstone
+    CustomerChangeCursor selectTombstoneHorizon();
+    // drops tombstones of deletes before the cutoff and moves the horizon past them
+    int deleteTombstonesBefore(Instant cutoff);
+    // must be consumed, and closed, inside a transaction
+    Stream<Customer> streamAllCustomers();
     Optional<Customer> selectCustomerById(Integer customerId);
+    Optional<Customer> selectCustomerById(Integer customerId, Set<CustomerField> fields);
+    List<Customer> selectCustomersByIds(Collection<Integer> customerIds);
     void insertCustomer(Customer customer);
+    // false, and nothing written, when the email is already registered
+    boolean insertCustomerIfEmailAbsent(Customer customer);
+    // all or nothing; sets the generated ids on the customers passed in
+    void insertCustomers(List<Customer> customers);
     boolean existsPersonWithEmail(String email);
+    Set<String> selectExistingEmails(Collection<String> emails);
     boolean existsPersonWithId(Integer customerId);
-    void deleteCustomer(Integer customerId);
+    // false when there was no such customer
+    boolean deleteCustomer(Integer customerId);
     void updateCustomer(Customer updatedCustomer);
+    // writes only the non-null fields; empty when there is no such customer
+    Optional<PatchedCustomer> patchCustomer(Integer customerId, CustomerUpdateRequest update);
     Optional<Customer> selectUserByEmail(String email);
-    void updateCustomerProfileImageId(String profileImageId, Integer customerId);
+    // false when there was no such customer
+    boolean updateCustomerProfileImageId(String profileImageId, Integer customerId);
+    // empty when the customer has no profile image or does not exist
+    Optional<String> selectProfileImageId(Integer customerId);
 }
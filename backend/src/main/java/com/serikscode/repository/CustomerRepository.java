@@ -1,17 +1,113 @@
 package com.serikscode.repository;
 
 import com.serikscode.customer.Customer;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 public interface CustomerRepository extends JpaRepository<Customer,Integer> {
     boolean existsCustomerByEmail(String email);
     boolean existsCustomerById(Integer id);
     Optional<Customer> findCustomerByEmail(String email);
+    // runs as a query for its RETURNING row, so it needs a writable transaction of its own
+    @Transactional
+    @Query(value = """
+            INSERT INTO customer(id, name, email, password, age, gender)
+            VALUES(:id, :name, :email, :password, :age, :gender)
+            ON CONFLICT (email) DO NOTHING
+            RETURNING id
+            """, nativeQuery = true)
+    List<Long> insertIfEmailAbsent(@Param("id") Integer id,
+                                   @Param("name") String name,
+                                   @Param("email") String email,
+                                   @Param("password") String password,
+                                   @Param("age") int age,
+                                   @Param("gender") String gender);
+    @Query("select c.email from Customer c where c.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("select c from Customer c")
+    Stream<Customer> streamAll();
+    @Query(value = """
+            SELECT *
+            FROM customer
+            WHERE :term <% name OR :term <% email
+            ORDER BY greatest(word_similarity(:term, name), word_similarity(:term, email)) DESC, id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Customer> searchByNameOrEmail(@Param("term") String term, @Param("limit") int limit);
+    // the oldest transaction still running; changes of older ones can all be read
+    @Query(value = "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint", nativeQuery = true)
+    long findSnapshotXmin();
+    @Query("""
+            select c from Customer c
+            where (c.changeXid > :xid or (c.changeXid = :xid and c.changeVersion > :version))
+              and c.changeXid < :xmin
+            order by c.changeXid, c.changeVersion
+            """)
+    List<Customer> findChangedSince(@Param("xid") long xid,
+                                    @Param("version") long version,
+                                    @Param("xmin") long xmin,
+                                    Pageable pageable);
+    @Query(value = """
+            SELECT customer_id AS customerId, change_xid AS changeXid, change_version AS changeVersion
+            FROM customer_tombstone
+            WHERE (change_xid, change_version) > (:xid, :version)
+              AND change_xid < :xmin
+            ORDER BY change_xid, change_version
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<CustomerTombstone> findTombstonesSince(@Param("xid") long xid,
+                                                @Param("version") long version,
+                                                @Param("xmin") long xmin,
+                                                @Param("limit") int limit);
+    @Query(value = "SELECT change_xid AS changeXid, change_version AS changeVersion FROM customer_tombstone_horizon",
+            nativeQuery = true)
+    CustomerTombstone findTombstoneHorizon();
+    // the sub-statements share one snapshot, so the horizon covers exactly the deleted rows
+    @Transactional
+    @Modifying
+    @Query(value = """
+            WITH newest AS (
+                SELECT change_xid, change_version
+                FROM customer_tombstone
+                WHERE deleted_at < :cutoff
+                ORDER BY change_xid DESC, change_version DESC
+                LIMIT 1
+            ), horizon AS (
+                UPDATE customer_tombstone_horizon h
+                SET change_xid = newest.change_xid, change_version = newest.change_version
+                FROM newest
+                WHERE (newest.change_xid, newest.change_version) > (h.change_xid, h.change_version)
+            )
+            DELETE FROM customer_tombstone
+            WHERE deleted_at < :cutoff
+            """, nativeQuery = true)
+    int deleteTombstonesBefore(@Param("cutoff") Instant cutoff);
     @Modifying(clearAutomatically = true)
-    @Query("update Customer c set c.profileImageId = ?1 where c.id = ?2")
+    @Query("update Customer c set c.profileImageId = ?1, c.version = c.version + 1 where c.id = ?2")
     int updateProfileImageId(String profileImageId, Integer customerId);
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Customer c where c.id = ?1")
+    int deleteCustomerById(Integer customerId);
+    @Query("select c.profileImageId from Customer c where c.id = ?1")
+    Optional<String> findProfileImageIdById(Integer customerId);
 }
@@ -0,0 +1,73 @@
+package com.serikscode.repository;
+
+import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerCursor;
+import com.serikscode.customer.CustomerFilter;
+import com.serikscode.customer.CustomerSort;
+import com.serikscode.utills.CustomerQuerySql;
+import jakarta.persistence.criteria.Path;
+import org.springframework.data.jpa.domain.Specification;
+
+public final class CustomerSpecifications {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private CustomerSpecifications() {
+    }
+
+    public static Specification<Customer> matching(CustomerFilter filter) {
+        Specification<Customer> spec = Specification.where(null);
+        if (filter.minAge() != null) {
+            spec = spec.and((root, query, cb) ->
+                    cb.greaterThanOrEqualTo(root.get("age"), filter.minAge()));
+        }
+        if (filter.maxAge() != null) {
+            spec = spec.and((root, query, cb) ->
+                    cb.lessThanOrEqualTo(root.get("age"), filter.maxAge()));
+        }
+        if (filter.gender() != null) {
+            spec = spec.and((root, query, cb) ->
+                    cb.equal(root.get("gender"), filter.gender()));
+        }
+        if (filter.namePrefix() != null) {
+            spec = spec.and((root, query, cb) -> cb.like(
+                    cb.lower(root.get("name")),
+                    CustomerQuerySql.likePrefix(filter.namePrefix()),
+                    LIKE_ESCAPE
+            ));
+        }
+        if (filter.emailPrefix() != null) {
+            spec = spec.and((root, query, cb) -> cb.like(
+                    cb.lower(root.get("email")),
+                    CustomerQuerySql.likePrefix(filter.emailPrefix()),
+                    LIKE_ESCAPE
+            ));
+        }
+        return spec;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Specification<Customer> after(CustomerSort sort, CustomerCursor cursor) {
+        if (cursor == null) {
+            return Specification.where(null);
+        }
+        return (root, query, cb) -> {
+            Path<Integer> id = root.get("id");
+            if (sort.isById()) {
+                return sort.descending()
+                        ? cb.lessThan(id, cursor.lastId())
+                        : cb.greaterThan(id, cursor.lastId());
+            }
+            Path<Comparable<Object>> column = root.get(sort.field().getAttribute());
+            Comparable<Object> value = (Comparable<Object>) cursor.lastSortValue();
+            // (column, id) > (value, lastId) spelled out for JPQL
+            return sort.descending()
+                    ? cb.or(
+                            cb.lessThan(column, value),
+                            cb.and(cb.equal(column, value), cb.lessThan(id, cursor.lastId())))
+                    : cb.or(
+                            cb.greaterThan(column, value),
+                            cb.and(cb.equal(column, value), cb.greaterThan(id, cursor.lastId())));
+        };
+    }
+}
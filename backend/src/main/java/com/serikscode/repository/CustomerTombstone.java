@@ -0,0 +1,7 @@
+package com.serikscode.repository;
+
+public interface CustomerTombstone {
+    Integer getCustomerId();
+    Long getChangeXid();
+    Long getChangeVersion();
+}
@@ -71,6 +71,19 @@ public class FakeS3 implements S3Client {
         }
     }
 
+    @Override
+    public DeleteObjectResponse deleteObject(DeleteObjectRequest deleteObjectRequest)
+            throws AwsServiceException, SdkClientException {
+        FileUtils.deleteQuietly(
+                new File(
+                        buildObjectFullPath(
+                                deleteObjectRequest.bucket(),
+                                deleteObjectRequest.key())
+                )
+        );
+        return DeleteObjectResponse.builder().build();
+    }
+
     private String buildObjectFullPath(String bucketName, String key){
         return PATH + "/" + bucketName + "/" +key;
     }
@@ -0,0 +1,74 @@
+package com.serikscode.security;
+
+import com.serikscode.customer.Customer;
+import com.serikscode.jwt.VerifiedToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable view of an authenticated customer for request handling. Unlike
+ * {@link Customer} it holds no password, so it is safe to keep in memory.
+ */
+public record CustomerPrincipal(
+        Integer id,
+        String username,
+        List<GrantedAuthority> authorities
+) implements UserDetails {
+
+    public static CustomerPrincipal of(Customer customer) {
+        return new CustomerPrincipal(
+                customer.getId(),
+                customer.getUsername(),
+                List.copyOf(customer.getAuthorities())
+        );
+    }
+
+    public static CustomerPrincipal of(VerifiedToken token) {
+        return new CustomerPrincipal(
+                token.customerId(),
+                token.subject(),
+                token.scopes().stream()
+                        .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                        .toList()
+        );
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+}
@@ -1,21 +1,42 @@
 package com.serikscode.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.serikscode.customer.CustomerChangedEvent;
+import com.serikscode.customer.CustomerInvalidationEvent;
 import com.serikscode.repository.CustomerDao;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+
 @Service
 public class CustomerUserDetailsService implements UserDetailsService {
 
     private final CustomerDao customerDao;
+    private final Cache<String, CustomerPrincipal> principals;
 
-    public CustomerUserDetailsService(@Qualifier("jpa") CustomerDao customerDao) {
+    public CustomerUserDetailsService(@Qualifier("jpa") CustomerDao customerDao,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${customer.principal-cache.maximum-size:10000}") long maximumSize,
+                                      @Value("${customer.principal-cache.ttl:60s}") Duration ttl) {
         this.customerDao = customerDao;
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, principals, "principals");
     }
 
+    // login needs the password hash, so it always reads the customer
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         return customerDao
@@ -25,4 +46,43 @@ public class CustomerUserDetailsService implements UserDetailsService {
                         new UsernameNotFoundException("No Customer found with username: " + username)
                 );
     }
+
+    /**
+     * Principal for an already authenticated request, served from a short
+     * lived cache so token checks do not query the database every time.
+     */
+    public UserDetails loadPrincipal(String username) throws UsernameNotFoundException {
+        return principals.get(
+                username,
+                email -> CustomerPrincipal.of(customerDao.selectUserByEmail(email)
+                        .orElseThrow(() ->
+                                new UsernameNotFoundException("No Customer found with username: " + email)
+                        ))
+        );
+    }
+
+    // keyed by email, and an update may have changed it, so match on id
+    @EventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        switch (event.type()) {
+            case UPDATED, DELETED -> evict(event.customerId());
+            default -> {
+            }
+        }
+    }
+
+    @EventListener
+    public void onCustomerInvalidated(CustomerInvalidationEvent event) {
+        if (event.isFlush()) {
+            principals.invalidateAll();
+        } else {
+            evict(event.customerId());
+        }
+    }
+
+    private void evict(Integer customerId) {
+        principals.asMap()
+                .values()
+                .removeIf(principal -> principal.id().equals(customerId));
+    }
 }
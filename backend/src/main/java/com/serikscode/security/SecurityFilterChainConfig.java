@@ -1,6 +1,7 @@
 package com.serikscode.security;
 
 import com.serikscode.jwt.JWTAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -33,6 +34,9 @@ public class SecurityFilterChainConfig {
                 .csrf().disable()
                  .cors(Customizer.withDefaults())
                 .authorizeHttpRequests()
+                 // streamed responses finish on an async dispatch of an already authorized request
+                 .dispatcherTypeMatchers(DispatcherType.ASYNC)
+                 .permitAll()
                 .requestMatchers(
                         HttpMethod.POST,
                         "/api/v1/customers",
@@ -0,0 +1,223 @@
+package com.serikscode.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerChange;
+import com.serikscode.customer.CustomerChangeCursor;
+import com.serikscode.customer.CustomerInvalidationEvent;
+import com.serikscode.customer.CustomerField;
+import com.serikscode.customer.CustomerQuery;
+import com.serikscode.customer.CustomerUpdateRequest;
+import com.serikscode.customer.PatchedCustomer;
+import com.serikscode.repository.CustomerDao;
+import org.springframework.context.event.EventListener;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Read-through cache of customers by id in front of another {@link CustomerDao}.
+ *
+ * Only lookups by id are cached; list, search and stream reads go straight
+ * to the delegate. Every write evicts the row it touched once the delegate
+ * has returned. Callers get a copy of the cached row, because
+ * {@link CustomerService} edits the customer it loads before saving it.
+ * Writes made by other instances evict through {@link CustomerInvalidationEvent}s.
+ */
+public class CachingCustomerDao implements CustomerDao {
+
+    private final CustomerDao delegate;
+    private final Cache<Integer, Customer> cache;
+
+    public CachingCustomerDao(CustomerDao delegate, Cache<Integer, Customer> cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @EventListener
+    public void onCustomerInvalidated(CustomerInvalidationEvent event) {
+        if (event.isFlush()) {
+            cache.invalidateAll();
+        } else {
+            cache.invalidate(event.customerId());
+        }
+    }
+
+    @Override
+    public List<Customer> selectAllCustomer() {
+        return delegate.selectAllCustomer();
+    }
+
+    @Override
+    public List<Customer> selectCustomers(CustomerQuery query) {
+        return delegate.selectCustomers(query);
+    }
+
+    @Override
+    public List<Customer> searchCustomers(String term, int limit) {
+        return delegate.searchCustomers(term, limit);
+    }
+
+    @Override
+    public List<CustomerChange> selectChangesSince(CustomerChangeCursor since, int limit) {
+        return delegate.selectChangesSince(since, limit);
+    }
+
+    @Override
+    public CustomerChangeCursor selectTombstoneHorizon() {
+        return delegate.selectTombstoneHorizon();
+    }
+
+    @Override
+    public int deleteTombstonesBefore(Instant cutoff) {
+        return delegate.deleteTombstonesBefore(cutoff);
+    }
+
+    @Override
+    public Stream<Customer> streamAllCustomers() {
+        return delegate.streamAllCustomers();
+    }
+
+    @Override
+    public Optional<Customer> selectCustomerById(Integer customerId) {
+        // misses are not cached, so an insert never has to evict an absent id
+        Customer customer = cache.get(
+                customerId,
+                id -> delegate.selectCustomerById(id).orElse(null)
+        );
+        return Optional.ofNullable(customer).map(CachingCustomerDao::copy);
+    }
+
+    @Override
+    public Optional<Customer> selectCustomerById(Integer customerId, Set<CustomerField> fields) {
+        Customer cached = cache.getIfPresent(customerId);
+        if (cached != null) {
+            return Optional.of(copy(cached));
+        }
+        return delegate.selectCustomerById(customerId, fields);
+    }
+
+    @Override
+    public List<Customer> selectCustomersByIds(Collection<Integer> customerIds) {
+        Map<Integer, Customer> cached = cache.getAllPresent(customerIds);
+        List<Customer> customers = new ArrayList<>(customerIds.size());
+        cached.values().forEach(customer -> customers.add(copy(customer)));
+        if (cached.size() < customerIds.size()) {
+            List<Integer> missing = customerIds.stream()
+                    .filter(id -> !cached.containsKey(id))
+                    .toList();
+            customers.addAll(delegate.selectCustomersByIds(missing));
+        }
+        return customers;
+    }
+
+    @Override
+    public void insertCustomer(Customer customer) {
+        delegate.insertCustomer(customer);
+        if (customer.getId() != null) {
+            cache.invalidate(customer.getId());
+        }
+    }
+
+    @Override
+    public boolean insertCustomerIfEmailAbsent(Customer customer) {
+        boolean inserted = delegate.insertCustomerIfEmailAbsent(customer);
+        if (inserted) {
+            cache.invalidate(customer.getId());
+        }
+        return inserted;
+    }
+
+    @Override
+    public void insertCustomers(List<Customer> customers) {
+        delegate.insertCustomers(customers);
+        customers.stream()
+                .map(Customer::getId)
+                .forEach(cache::invalidate);
+    }
+
+    @Override
+    public boolean existsPersonWithEmail(String email) {
+        return delegate.existsPersonWithEmail(email);
+    }
+
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        return delegate.selectExistingEmails(emails);
+    }
+
+    @Override
+    public boolean existsPersonWithId(Integer customerId) {
+        return cache.getIfPresent(customerId) != null || delegate.existsPersonWithId(customerId);
+    }
+
+    @Override
+    public boolean deleteCustomer(Integer customerId) {
+        try {
+            return delegate.deleteCustomer(customerId);
+        } finally {
+            cache.invalidate(customerId);
+        }
+    }
+
+    @Override
+    public void updateCustomer(Customer updatedCustomer) {
+        try {
+            delegate.updateCustomer(updatedCustomer);
+        } finally {
+            cache.invalidate(updatedCustomer.getId());
+        }
+    }
+
+    @Override
+    public Optional<PatchedCustomer> patchCustomer(Integer customerId, CustomerUpdateRequest update) {
+        try {
+            return delegate.patchCustomer(customerId, update);
+        } finally {
+            cache.invalidate(customerId);
+        }
+    }
+
+    @Override
+    public Optional<Customer> selectUserByEmail(String email) {
+        return delegate.selectUserByEmail(email);
+    }
+
+    @Override
+    public boolean updateCustomerProfileImageId(String profileImageId, Integer customerId) {
+        try {
+            return delegate.updateCustomerProfileImageId(profileImageId, customerId);
+        } finally {
+            cache.invalidate(customerId);
+        }
+    }
+
+    @Override
+    public Optional<String> selectProfileImageId(Integer customerId) {
+        Customer cached = cache.getIfPresent(customerId);
+        if (cached != null) {
+            return Optional.ofNullable(cached.getProfileImageId());
+        }
+        return delegate.selectProfileImageId(customerId);
+    }
+
+    private static Customer copy(Customer customer) {
+        Customer copy = new Customer(
+                customer.getId(),
+                customer.getName(),
+                customer.getEmail(),
+                customer.getPassword(),
+                customer.getAge(),
+                customer.getGender(),
+                customer.getProfileImageId()
+        );
+        copy.setVersion(customer.getVersion());
+        return copy;
+    }
+}
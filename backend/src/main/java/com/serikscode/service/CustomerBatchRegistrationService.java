@@ -0,0 +1,192 @@
+package com.serikscode.service;
+
+import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerRegistrationRequest;
+import com.serikscode.customer.CustomersCreatedEvent;
+import com.serikscode.dto.CustomerBatchRegistration;
+import com.serikscode.dto.CustomerRegistrationResult;
+import com.serikscode.exception.RequestValidationException;
+import com.serikscode.repository.CustomerDao;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Registers many customers in one request.
+ *
+ * Emails are checked against the table with one set query, passwords are
+ * hashed on a fixed pool shared by all batch requests, so a large batch
+ * cannot take every core, and the rows go in as one batched insert. If the
+ * insert is rejected, typically because an email was registered in the
+ * meantime, the rows are retried one at a time so only the offending ones
+ * fail. Each row gets its own result, in request order.
+ *
+ * Registered rows publish no per-row events: one {@link CustomersCreatedEvent}
+ * per batch carries every new row to the in-memory listeners and, as a
+ * single notification naming their ids, to the other instances.
+ */
+@Service
+public class CustomerBatchRegistrationService implements DisposableBean {
+
+    public static final int MAX_BATCH_SIZE = 5000;
+
+    private static final String EMAIL_TAKEN = "email already registered";
+
+    private final CustomerDao customerDao;
+    private final PasswordEncoder passwordEncoder;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ExecutorService hashingExecutor;
+
+    public CustomerBatchRegistrationService(@Qualifier("cached") CustomerDao customerDao,
+                                            PasswordEncoder passwordEncoder,
+                                            PlatformTransactionManager transactionManager,
+                                            ApplicationEventPublisher eventPublisher,
+                                            @Value("${customer.batch-registration.hashing-threads:0}") int hashingThreads) {
+        this.customerDao = customerDao;
+        this.passwordEncoder = passwordEncoder;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+
+        int threads = hashingThreads > 0 ? hashingThreads : Runtime.getRuntime().availableProcessors();
+        this.hashingExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "customer-password-hashing");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void destroy() {
+        hashingExecutor.shutdownNow();
+    }
+
+    public CustomerBatchRegistration registerCustomers(List<CustomerRegistrationRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new RequestValidationException("customers must not be empty");
+        }
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new RequestValidationException(
+                    "at most %s customers can be registered at once".formatted(MAX_BATCH_SIZE)
+            );
+        }
+
+        CustomerRegistrationResult[] results = new CustomerRegistrationResult[requests.size()];
+
+        // the first occurrence of an email within the request wins
+        Map<String, Integer> indexByEmail = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            CustomerRegistrationRequest request = requests.get(i);
+            String error = validate(request);
+            if (error == null && indexByEmail.putIfAbsent(request.email(), i) != null) {
+                error = "email repeated in request";
+            }
+            if (error != null) {
+                results[i] = CustomerRegistrationResult.failed(i, request == null ? null : request.email(), error);
+            }
+        }
+
+        Set<String> existingEmails = indexByEmail.isEmpty()
+                ? Set.of()
+                : customerDao.selectExistingEmails(indexByEmail.keySet());
+
+        List<Integer> accepted = new ArrayList<>();
+        List<CompletableFuture<Customer>> hashed = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : indexByEmail.entrySet()) {
+            int index = entry.getValue();
+            if (existingEmails.contains(entry.getKey())) {
+                results[index] = CustomerRegistrationResult.failed(index, entry.getKey(), EMAIL_TAKEN);
+                continue;
+            }
+            CustomerRegistrationRequest request = requests.get(index);
+            accepted.add(index);
+            hashed.add(CompletableFuture.supplyAsync(() -> new Customer(
+                    request.name(),
+                    request.email(),
+                    passwordEncoder.encode(request.password()),
+                    request.age(),
+                    request.gender()
+            ), hashingExecutor));
+        }
+
+        List<Customer> customers = hashed.stream()
+                .map(CompletableFuture::join)
+                .toList();
+        List<Customer> created = insert(accepted, customers, results);
+        if (!created.isEmpty()) {
+            eventPublisher.publishEvent(new CustomersCreatedEvent(created));
+        }
+
+        int failed = (int) Arrays.stream(results)
+                .filter(result -> result.error() != null)
+                .count();
+        return new CustomerBatchRegistration(results.length - failed, failed, Arrays.asList(results));
+    }
+
+    // the rows that made it in
+    private List<Customer> insert(List<Integer> indexes, List<Customer> customers, CustomerRegistrationResult[] results) {
+        if (customers.isEmpty()) {
+            return List.of();
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> customerDao.insertCustomers(customers));
+            for (int i = 0; i < customers.size(); i++) {
+                registered(indexes.get(i), customers.get(i), results);
+            }
+            return customers;
+        } catch (DataIntegrityViolationException e) {
+            // fall through and find the rows the database refused
+        }
+
+        List<Customer> created = new ArrayList<>();
+        for (int i = 0; i < customers.size(); i++) {
+            Customer customer = customers.get(i);
+            int index = indexes.get(i);
+            customer.setId(null);
+            try {
+                customerDao.insertCustomer(customer);
+                registered(index, customer, results);
+                created.add(customer);
+            } catch (DuplicateKeyException e) {
+                results[index] = CustomerRegistrationResult.failed(index, customer.getEmail(), EMAIL_TAKEN);
+            } catch (DataIntegrityViolationException e) {
+                results[index] = CustomerRegistrationResult.failed(index, customer.getEmail(), "rejected by the database");
+            }
+        }
+        return created;
+    }
+
+    private static void registered(int index, Customer customer, CustomerRegistrationResult[] results) {
+        results[index] = CustomerRegistrationResult.registered(index, customer.getEmail(), customer.getId());
+    }
+
+    static String validate(CustomerRegistrationRequest request) {
+        if (request == null) {
+            return "customer must not be null";
+        }
+        if (StringUtils.isAnyBlank(request.name(), request.email(), request.password())
+                || request.age() == null
+                || request.gender() == null) {
+            return "name, email, password, age and gender are required";
+        }
+        return null;
+    }
+}
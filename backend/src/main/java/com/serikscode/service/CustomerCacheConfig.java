@@ -0,0 +1,44 @@
+package com.serikscode.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.serikscode.customer.Customer;
+import com.serikscode.repository.CustomerDao;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class CustomerCacheConfig {
+
+    @Value("${customer.cache.delegate:jdbc}")
+    private String delegate;
+
+    @Value("${customer.cache.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${customer.cache.ttl:10m}")
+    private Duration ttl;
+
+    // Caffeine evicts by W-TinyLFU once maximumSize is reached; the concrete
+    // return type lets Spring find the invalidation listener on the bean
+    @Bean("cached")
+    public CachingCustomerDao cachedCustomerDao(BeanFactory beanFactory, MeterRegistry meterRegistry){
+        Cache<Integer, Customer> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "customers");
+
+        return new CachingCustomerDao(
+                beanFactory.getBean(delegate, CustomerDao.class),
+                cache
+        );
+    }
+}
@@ -0,0 +1,111 @@
+package com.serikscode.service;
+
+import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerChangedEvent;
+import com.serikscode.customer.CustomersCreatedEvent;
+import com.serikscode.repository.CustomerDao;
+import com.serikscode.utills.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter over registered emails, used to skip the existence query
+ * for emails that are certainly new.
+ *
+ * The filter is seeded from a streaming read at startup and every created
+ * or re-addressed customer is added to it. Deleted emails cannot be taken
+ * out, which only raises the false-positive rate. Writes made by other
+ * instances are not seen, so the unique constraint on customer.email stays
+ * the final check. Until seeding finishes, every email is reported as
+ * possibly present.
+ */
+@Component
+public class CustomerEmailFilter implements SmartInitializingSingleton {
+
+    private final BloomFilter filter;
+    private final CustomerDao customerDao;
+    private final TransactionTemplate transactionTemplate;
+    private volatile boolean seeded;
+
+    private final Counter definitelyAbsent;
+    private final Counter maybePresent;
+    private final Counter falsePositives;
+
+    public CustomerEmailFilter(@Qualifier("jdbc") CustomerDao customerDao,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${customer.email-filter.expected-insertions:1000000}") long expectedInsertions,
+                               @Value("${customer.email-filter.false-positive-probability:0.01}") double falsePositiveProbability) {
+        this.filter = BloomFilter.create(expectedInsertions, falsePositiveProbability);
+        this.customerDao = customerDao;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+
+        this.definitelyAbsent = Counter.builder("customer.email.filter.checks")
+                .tag("result", "definitely_absent")
+                .register(meterRegistry);
+        this.maybePresent = Counter.builder("customer.email.filter.checks")
+                .tag("result", "maybe_present")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("customer.email.filter.false.positives")
+                .description("Maybe-present answers the database then found absent")
+                .register(meterRegistry);
+        Gauge.builder("customer.email.filter.expected.fpp", filter, BloomFilter::expectedFalsePositiveProbability)
+                .description("False-positive probability implied by the bits set so far")
+                .register(meterRegistry);
+        Gauge.builder("customer.email.filter.bytes", filter, f -> f.bitSize() / 8.0)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Customer> customers = customerDao.streamAllCustomers()) {
+                customers.forEach(customer -> filter.put(customer.getEmail()));
+            }
+        });
+        seeded = true;
+    }
+
+    public boolean mightContain(String email) {
+        if (!seeded || filter.mightContain(email)) {
+            maybePresent.increment();
+            return true;
+        }
+        definitelyAbsent.increment();
+        return false;
+    }
+
+    // for rows written without a CustomerChangedEvent, such as bulk imports
+    public void add(String email) {
+        filter.put(email);
+    }
+
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    @EventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        switch (event.type()) {
+            case CREATED, UPDATED -> filter.put(event.customer().getEmail());
+            default -> {
+            }
+        }
+    }
+
+    @EventListener
+    public void onCustomersCreated(CustomersCreatedEvent event) {
+        event.customers().forEach(customer -> filter.put(customer.getEmail()));
+    }
+}
@@ -0,0 +1,403 @@
+package com.serikscode.service;
+
+import com.serikscode.customer.CustomerChangedEvent;
+import com.serikscode.customer.CustomersCreatedEvent;
+import com.serikscode.dto.CustomerEvent;
+import com.serikscode.utills.CustomerDTOMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process fan-out of customer changes to Server-Sent Events subscribers.
+ *
+ * Publishing never blocks on a client: each change is appended to a replay
+ * ring and offered to every subscriber's bounded queue, and a small pool of
+ * sender threads drains those queues onto the wire. A subscriber whose queue
+ * fills up is evicted; its client reconnects with {@code Last-Event-ID} and
+ * resumes from the ring, or gets a {@code reset} event telling it to refetch
+ * when it has fallen further behind than the ring reaches. Event ids carry a
+ * per-process epoch so ids from before a restart also lead to a reset.
+ * A registration batch too big for a subscriber's queue is replaced, for
+ * that subscriber, by a single {@code reset}.
+ *
+ * A send to a client whose connection has stalled blocks its sender thread.
+ * A watchdog evicts any subscriber whose current send has outlasted the send
+ * timeout and gives the pool a thread in its place until that send returns,
+ * so stalled clients cannot starve the others.
+ */
+@Component
+public class CustomerEventBus implements DisposableBean {
+
+    static final String CUSTOMER_EVENT = "customer";
+    static final String RESET_EVENT = "reset";
+
+    private record Entry(long sequence, CustomerEvent event) {
+    }
+
+    // SseEventBuilder is mutable and single-use, so queues hold this and build per send
+    private record Frame(String id, String name, Object data, String comment) {
+
+        private static final Frame HEARTBEAT = new Frame(null, null, null, "heartbeat");
+        private static final Frame RESET = new Frame(null, RESET_EVENT, "", null);
+
+        private SseEventBuilder toSse() {
+            SseEventBuilder builder = SseEmitter.event();
+            if (comment != null) {
+                return builder.comment(comment);
+            }
+            if (id != null) {
+                builder.id(id);
+            }
+            return builder.name(name).data(data, MediaType.APPLICATION_JSON);
+        }
+    }
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Deque<Entry> replay = new ArrayDeque<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private long sequence;
+
+    private final CustomerDTOMapper customerDTOMapper;
+    private final int bufferSize;
+    private final int replaySize;
+    private final Duration timeout;
+    private final Duration sendTimeout;
+    private final int senderThreads;
+    private final ThreadPoolExecutor senders;
+    private final ScheduledExecutorService heartbeats;
+    private final Counter evictions;
+    // sender threads written off to a stalled send, guarded by senders
+    private int stalledSenders;
+
+    public CustomerEventBus(CustomerDTOMapper customerDTOMapper,
+                            MeterRegistry meterRegistry,
+                            @Value("${customer.events.buffer-size:256}") int bufferSize,
+                            @Value("${customer.events.replay-size:1024}") int replaySize,
+                            @Value("${customer.events.heartbeat:15s}") Duration heartbeat,
+                            @Value("${customer.events.timeout:30m}") Duration timeout,
+                            @Value("${customer.events.sender-threads:4}") int senderThreads,
+                            @Value("${customer.events.send-timeout:10s}") Duration sendTimeout) {
+        this.customerDTOMapper = customerDTOMapper;
+        this.bufferSize = bufferSize;
+        this.replaySize = replaySize;
+        this.timeout = timeout;
+        this.sendTimeout = sendTimeout;
+        this.senderThreads = senderThreads;
+        this.senders = new ThreadPoolExecutor(
+                senderThreads,
+                senderThreads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                daemonThreads("customer-events-")
+        );
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(daemonThreads("customer-events-heartbeat-"));
+        this.heartbeats.scheduleAtFixedRate(
+                this::heartbeat,
+                heartbeat.toMillis(),
+                heartbeat.toMillis(),
+                TimeUnit.MILLISECONDS
+        );
+        long watchdogMillis = Math.max(sendTimeout.toMillis() / 2, 1);
+        this.heartbeats.scheduleAtFixedRate(
+                this::evictStalledSubscribers,
+                watchdogMillis,
+                watchdogMillis,
+                TimeUnit.MILLISECONDS
+        );
+
+        this.evictions = Counter.builder("customer.events.evictions")
+                .description("Subscribers dropped because they could not keep up")
+                .register(meterRegistry);
+        Gauge.builder("customer.events.subscribers", subscribers, Set::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream, replaying everything after {@code lastEventId} when
+     * the ring still holds it.
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = createEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(error -> unsubscribe(subscriber));
+
+        // under the publish lock, so nothing lands between the replay and the live feed
+        synchronized (this) {
+            List<Entry> missed = missedSince(lastEventId);
+            if (missed == null || missed.size() > bufferSize) {
+                subscriber.offer(Frame.RESET);
+            } else {
+                missed.forEach(entry -> subscriber.offer(toFrame(entry)));
+            }
+            subscribers.add(subscriber);
+        }
+        subscriber.scheduleDrain();
+        return emitter;
+    }
+
+    @EventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        publish(List.of(new CustomerEvent(
+                event.type().name().toLowerCase(Locale.ROOT),
+                event.customerId(),
+                event.customer() == null ? null : customerDTOMapper.apply(event.customer())
+        )));
+    }
+
+    @EventListener
+    public void onCustomersCreated(CustomersCreatedEvent event) {
+        String type = CustomerChangedEvent.ChangeType.CREATED.name().toLowerCase(Locale.ROOT);
+        publish(event.customers().stream()
+                .map(customer -> new CustomerEvent(type, customer.getId(), customerDTOMapper.apply(customer)))
+                .toList());
+    }
+
+    private void publish(List<CustomerEvent> events) {
+        synchronized (this) {
+            List<Frame> frames = new ArrayList<>(events.size());
+            for (CustomerEvent event : events) {
+                Entry entry = new Entry(++sequence, event);
+                replay.addLast(entry);
+                if (replay.size() > replaySize) {
+                    replay.removeFirst();
+                }
+                frames.add(toFrame(entry));
+            }
+            for (Subscriber subscriber : subscribers) {
+                if (!subscriber.offerAll(frames)) {
+                    evict(subscriber);
+                }
+            }
+        }
+        subscribers.forEach(Subscriber::scheduleDrain);
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void destroy() {
+        heartbeats.shutdownNow();
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    protected SseEmitter createEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    // null when the client cannot be caught up from the ring
+    private List<Entry> missedSince(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return List.of();
+        }
+        int separator = lastEventId.lastIndexOf('-');
+        if (separator < 0 || !lastEventId.substring(0, separator).equals(epoch)) {
+            return null;
+        }
+        long lastSequence;
+        try {
+            lastSequence = Long.parseLong(lastEventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        long oldest = replay.isEmpty() ? sequence + 1 : replay.peekFirst().sequence();
+        if (lastSequence > sequence || lastSequence < oldest - 1) {
+            return null;
+        }
+        List<Entry> missed = new ArrayList<>();
+        for (Entry entry : replay) {
+            if (entry.sequence() > lastSequence) {
+                missed.add(entry);
+            }
+        }
+        return missed;
+    }
+
+    private Frame toFrame(Entry entry) {
+        return new Frame(epoch + "-" + entry.sequence(), CUSTOMER_EVENT, entry.event(), null);
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            // a comment line keeps proxies from closing an idle connection
+            if (subscriber.offer(Frame.HEARTBEAT)) {
+                subscriber.scheduleDrain();
+            } else {
+                evict(subscriber);
+            }
+        }
+    }
+
+    private void evictStalledSubscribers() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.abandonIfStalled(now)) {
+                evict(subscriber);
+                subscriber.interruptSender();
+            }
+        }
+    }
+
+    // the pool runs senderThreads threads besides the ones stuck in a stalled send
+    private void resizeSenders(int stalledDelta) {
+        stalledSenders += stalledDelta;
+        int size = senderThreads + stalledSenders;
+        if (stalledDelta > 0) {
+            senders.setMaximumPoolSize(size);
+            senders.setCorePoolSize(size);
+        } else {
+            senders.setCorePoolSize(size);
+            senders.setMaximumPoolSize(size);
+        }
+    }
+
+    private void evict(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            evictions.increment();
+            subscriber.emitter.complete();
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        subscriber.emitter.complete();
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<Frame> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile long sendingSince;
+        private volatile Thread sender;
+        private boolean abandoned;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        private boolean offer(Frame event) {
+            return queue.offer(event);
+        }
+
+        // a batch that would overflow the queue is sent as one reset, so the client refetches once
+        private boolean offerAll(List<Frame> frames) {
+            if (frames.size() > 1 && frames.size() > queue.remainingCapacity()) {
+                return offer(Frame.RESET);
+            }
+            for (Frame frame : frames) {
+                if (!offer(frame)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void scheduleDrain() {
+            if (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        // true once, for a send that has outlasted the send timeout; its thread is then replaced
+        private boolean abandonIfStalled(long now) {
+            long since = sendingSince;
+            if (since == 0 || now - since < sendTimeout.toNanos()) {
+                return false;
+            }
+            synchronized (senders) {
+                if (abandoned || sendingSince != since) {
+                    return false;
+                }
+                abandoned = true;
+                resizeSenders(1);
+                return true;
+            }
+        }
+
+        private void interruptSender() {
+            Thread thread = sender;
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+
+        // at most one sender per subscriber, so events reach the client in order
+        private void drain() {
+            sender = Thread.currentThread();
+            try {
+                Frame frame;
+                while ((frame = queue.poll()) != null) {
+                    sendingSince = System.nanoTime();
+                    emitter.send(frame.toSse());
+                    sendingSince = 0;
+                }
+            } catch (IOException | IllegalStateException e) {
+                unsubscribe(this);
+                queue.clear();
+            } finally {
+                sendingSince = 0;
+                sender = null;
+                // an abandoned subscriber stays marked as draining, so it is never scheduled again
+                if (!returnSender()) {
+                    draining.set(false);
+                }
+            }
+            scheduleDrain();
+        }
+
+        // true when the watchdog replaced this sender, whose extra thread then goes away
+        private boolean returnSender() {
+            synchronized (senders) {
+                if (abandoned) {
+                    resizeSenders(-1);
+                    queue.clear();
+                }
+                return abandoned;
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.serikscode.service;
+
+import com.serikscode.exception.RequestValidationException;
+import org.springframework.http.MediaType;
+
+public enum CustomerExportFormat {
+    NDJSON(MediaType.APPLICATION_NDJSON, "ndjson"),
+    CSV(new MediaType("text", "csv"), "csv");
+
+    private final MediaType mediaType;
+    private final String fileExtension;
+
+    CustomerExportFormat(MediaType mediaType, String fileExtension) {
+        this.mediaType = mediaType;
+        this.fileExtension = fileExtension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    public static CustomerExportFormat from(String format) {
+        for (CustomerExportFormat value : values()) {
+            if (value.name().equalsIgnoreCase(format)) {
+                return value;
+            }
+        }
+        throw new RequestValidationException("unsupported export format [%s]".formatted(format));
+    }
+
+    public static CustomerExportFormat from(MediaType mediaType) {
+        for (CustomerExportFormat value : values()) {
+            if (value.mediaType.isCompatibleWith(mediaType)) {
+                return value;
+            }
+        }
+        throw new RequestValidationException("unsupported content type [%s]".formatted(mediaType));
+    }
+}
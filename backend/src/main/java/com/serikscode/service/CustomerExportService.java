@@ -0,0 +1,92 @@
+package com.serikscode.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.serikscode.customer.Customer;
+import com.serikscode.dto.CustomerDTO;
+import com.serikscode.repository.CustomerDao;
+import com.serikscode.utills.CsvUtils;
+import com.serikscode.utills.CustomerDTOMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+/**
+ * Writes every customer to an output stream one row at a time. Rows are read
+ * through a database cursor and written as soon as they are mapped, so heap
+ * use does not depend on the size of the table.
+ */
+@Service
+public class CustomerExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final CustomerDao customerDao;
+    private final CustomerDTOMapper customerDTOMapper;
+    private final ObjectWriter customerWriter;
+    private final TransactionTemplate transactionTemplate;
+
+    public CustomerExportService(@Qualifier("jdbc") CustomerDao customerDao,
+                                 CustomerDTOMapper customerDTOMapper,
+                                 ObjectMapper objectMapper,
+                                 PlatformTransactionManager transactionManager) {
+        this.customerDao = customerDao;
+        this.customerDTOMapper = customerDTOMapper;
+        this.customerWriter = objectMapper.writerFor(CustomerDTO.class);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    public void export(CustomerExportFormat format, OutputStream outputStream) throws IOException {
+        BufferedOutputStream out = new BufferedOutputStream(outputStream, BUFFER_SIZE);
+        if (format == CustomerExportFormat.CSV) {
+            write(out, CsvUtils.line("id", "name", "email", "gender", "age", "profile_image_id"));
+        }
+
+        try {
+            // the cursor only stays open while the transaction does
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Customer> customers = customerDao.streamAllCustomers()) {
+                    customers.map(customerDTOMapper)
+                            .forEach(customer -> writeRow(format, customer, out));
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
+    private void writeRow(CustomerExportFormat format, CustomerDTO customer, OutputStream out) {
+        try {
+            switch (format) {
+                case NDJSON -> {
+                    out.write(customerWriter.writeValueAsBytes(customer));
+                    out.write('\n');
+                }
+                case CSV -> write(out, CsvUtils.line(
+                        customer.id(),
+                        customer.name(),
+                        customer.email(),
+                        customer.gender(),
+                        customer.age(),
+                        customer.profileImageId()
+                ));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void write(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,85 @@
+package com.serikscode.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hands out customer ids from blocks reserved on {@code customer_id_sequence}.
+ *
+ * Each {@code nextval} reserves {@code [value, value + increment)}, the
+ * pooled-lo scheme Hibernate uses for the JPA mapping, so both DAOs can draw
+ * from the same sequence without colliding. The increment is read from the
+ * database once, so the block size always matches the migration.
+ */
+@Component
+public class CustomerIdAllocator {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private long blockSize;
+    // the current block, next inclusive and end exclusive
+    private long next;
+    private long end;
+
+    public CustomerIdAllocator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public synchronized Integer nextId() {
+        if (next == end) {
+            startBlock(reserveBlocks(1).get(0));
+        }
+        return Math.toIntExact(next++);
+    }
+
+    public synchronized List<Integer> nextIds(int count) {
+        List<Integer> ids = new ArrayList<>(count);
+        while (ids.size() < count && next < end) {
+            ids.add(Math.toIntExact(next++));
+        }
+        int missing = count - ids.size();
+        if (missing == 0) {
+            return ids;
+        }
+
+        // one round trip for all the blocks the rest needs; the last one's leftovers stay cached
+        long size = blockSize();
+        List<Long> blocks = reserveBlocks((int) ((missing + size - 1) / size));
+        for (Long block : blocks) {
+            startBlock(block);
+            while (ids.size() < count && next < end) {
+                ids.add(Math.toIntExact(next++));
+            }
+        }
+        return ids;
+    }
+
+    private void startBlock(long lo) {
+        next = lo;
+        end = lo + blockSize();
+    }
+
+    private List<Long> reserveBlocks(int blocks) {
+        var sql = """
+                SELECT nextval('customer_id_sequence')
+                FROM generate_series(1, ?)
+                """;
+        return jdbcTemplate.queryForList(sql, Long.class, blocks);
+    }
+
+    private long blockSize() {
+        if (blockSize == 0) {
+            var sql = """
+                    SELECT increment_by
+                    FROM pg_sequences
+                    WHERE schemaname = current_schema()
+                      AND sequencename = 'customer_id_sequence'
+                    """;
+            blockSize = jdbcTemplate.queryForObject(sql, Long.class);
+        }
+        return blockSize;
+    }
+}
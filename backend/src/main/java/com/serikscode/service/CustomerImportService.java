@@ -0,0 +1,485 @@
+package com.serikscode.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerInvalidationEvent;
+import com.serikscode.customer.CustomerRegistrationRequest;
+import com.serikscode.customer.Gender;
+import com.serikscode.dto.CustomerImportReject;
+import com.serikscode.dto.CustomerImportStatus;
+import com.serikscode.dto.CustomerImportStatus.State;
+import com.serikscode.exception.RequestValidationException;
+import com.serikscode.exception.ResourceNotFoundException;
+import com.serikscode.utills.CsvUtils;
+import com.serikscode.utills.PgCopy;
+import org.apache.commons.io.input.CountingInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Imports customer files too large for row-by-row inserts.
+ *
+ * The upload is spooled to a temporary file and the import runs on a single
+ * background thread, so imports queue behind each other. Rows are read in
+ * chunks; while one chunk's passwords are hashed on the hashing pool, the
+ * previous chunk is written to {@code customer_import_staging} with
+ * {@code COPY}. Once the file is read, the staged rows are merged into
+ * {@code customer} in batches of one set-based insert each: the first row for
+ * an email wins within the file, and emails already registered are skipped
+ * by the unique constraint.
+ *
+ * Imported rows publish no per-row events. Instead every instance is asked
+ * to flush its in-memory customer state, and the imported emails are added
+ * to the local email filter.
+ *
+ * Job status is kept in memory on the instance that ran the job, for the
+ * configured retention after the job finishes.
+ */
+@Service
+public class CustomerImportService implements DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerImportService.class);
+
+    private static final int MAX_REJECTS_REPORTED = 100;
+    private static final List<String> CSV_COLUMNS = List.of("name", "email", "password", "age", "gender");
+
+    private static final String COPY_SQL = """
+            COPY customer_import_staging (job_id, seq, id, name, email, password, age, gender)
+            FROM STDIN (FORMAT csv)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CustomerIdAllocator customerIdAllocator;
+    private final PasswordEncoder passwordEncoder;
+    private final CustomerEmailFilter customerEmailFilter;
+    private final CustomerInvalidationChannel customerInvalidationChannel;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectReader requestReader;
+    private final int chunkSize;
+    private final int mergeBatchSize;
+    private final int hashingThreads;
+    private final ExecutorService importExecutor;
+    private final ExecutorService hashingExecutor;
+    private final Cache<UUID, Job> jobs;
+
+    public CustomerImportService(JdbcTemplate jdbcTemplate,
+                                 CustomerIdAllocator customerIdAllocator,
+                                 PasswordEncoder passwordEncoder,
+                                 CustomerEmailFilter customerEmailFilter,
+                                 CustomerInvalidationChannel customerInvalidationChannel,
+                                 ApplicationEventPublisher eventPublisher,
+                                 ObjectMapper objectMapper,
+                                 @Value("${customer.import.chunk-size:10000}") int chunkSize,
+                                 @Value("${customer.import.merge-batch-size:50000}") int mergeBatchSize,
+                                 @Value("${customer.import.hashing-threads:0}") int hashingThreads,
+                                 @Value("${customer.import.job-retention:1h}") Duration jobRetention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.customerIdAllocator = customerIdAllocator;
+        this.passwordEncoder = passwordEncoder;
+        this.customerEmailFilter = customerEmailFilter;
+        this.customerInvalidationChannel = customerInvalidationChannel;
+        this.eventPublisher = eventPublisher;
+        this.requestReader = objectMapper.readerFor(CustomerRegistrationRequest.class);
+        this.chunkSize = chunkSize;
+        this.mergeBatchSize = mergeBatchSize;
+        // queued and running jobs never expire; a finished job is put again, which starts its retention
+        this.jobs = Caffeine.newBuilder()
+                .expireAfter(new Expiry<UUID, Job>() {
+                    @Override
+                    public long expireAfterCreate(UUID key, Job job, long currentTime) {
+                        return job.isFinished() ? jobRetention.toNanos() : Long.MAX_VALUE;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(UUID key, Job job, long currentTime, long currentDuration) {
+                        return job.isFinished() ? jobRetention.toNanos() : currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(UUID key, Job job, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .scheduler(Scheduler.systemScheduler())
+                .build();
+
+        this.hashingThreads = hashingThreads > 0 ? hashingThreads : Runtime.getRuntime().availableProcessors();
+        this.importExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "customer-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.hashingExecutor = Executors.newFixedThreadPool(this.hashingThreads, runnable -> {
+            Thread thread = new Thread(runnable, "customer-import-hashing");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void destroy() {
+        importExecutor.shutdownNow();
+        hashingExecutor.shutdownNow();
+    }
+
+    /**
+     * Spools the upload to disk and queues the import; the returned status
+     * names the job to poll.
+     */
+    public CustomerImportStatus startImport(InputStream upload, CustomerExportFormat format) throws IOException {
+        Path file = Files.createTempFile("customer-import-", "." + format.getFileExtension());
+        try {
+            Files.copy(upload, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        if (Files.size(file) == 0) {
+            Files.delete(file);
+            throw new RequestValidationException("import file must not be empty");
+        }
+
+        Job job = new Job(UUID.randomUUID(), format, file, Files.size(file));
+        jobs.put(job.id, job);
+        importExecutor.execute(() -> run(job));
+        return job.status();
+    }
+
+    public CustomerImportStatus getImportStatus(UUID jobId) {
+        Job job = jobs.getIfPresent(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException(
+                    "import job [%s] not found".formatted(jobId)
+            );
+        }
+        return job.status();
+    }
+
+    private void run(Job job) {
+        job.startedAt = Instant.now();
+        try {
+            job.state = State.STAGING;
+            stage(job);
+            job.state = State.MERGING;
+            merge(job);
+            job.state = State.COMPLETED;
+        } catch (Exception e) {
+            LOGGER.warn("customer import [{}] failed", job.id, e);
+            job.error = e.getMessage();
+            job.state = State.FAILED;
+        } finally {
+            job.finishedAt = Instant.now();
+            cleanUp(job);
+            jobs.put(job.id, job);
+        }
+    }
+
+    private void stage(Job job) throws IOException {
+        try (CountingInputStream counting = new CountingInputStream(
+                     new BufferedInputStream(Files.newInputStream(job.file)));
+             BufferedReader reader = new BufferedReader(new InputStreamReader(counting, StandardCharsets.UTF_8))) {
+            job.input = counting;
+            RowReader rows = job.format == CustomerExportFormat.CSV
+                    ? csvRows(reader)
+                    : ndjsonRows(reader);
+
+            // hash the next chunk while the previous one is copied
+            CompletableFuture<List<Customer>> pending = null;
+            List<CustomerRegistrationRequest> chunk;
+            while (!(chunk = readChunk(rows, job)).isEmpty()) {
+                CompletableFuture<List<Customer>> hashed = hash(chunk);
+                if (pending != null) {
+                    copy(job, pending.join());
+                }
+                pending = hashed;
+            }
+            if (pending != null) {
+                copy(job, pending.join());
+            }
+        }
+    }
+
+    private List<CustomerRegistrationRequest> readChunk(RowReader rows, Job job) throws IOException {
+        List<CustomerRegistrationRequest> chunk = new ArrayList<>(chunkSize);
+        while (chunk.size() < chunkSize) {
+            Row row = rows.next();
+            if (row == null) {
+                break;
+            }
+            job.rowsRead.incrementAndGet();
+            String error = row.error() != null
+                    ? row.error()
+                    : CustomerBatchRegistrationService.validate(row.request());
+            if (error != null) {
+                job.reject(row.number(), error);
+            } else {
+                chunk.add(row.request());
+            }
+        }
+        return chunk;
+    }
+
+    private CompletableFuture<List<Customer>> hash(List<CustomerRegistrationRequest> chunk) {
+        int sliceSize = (chunk.size() + hashingThreads - 1) / hashingThreads;
+        List<CompletableFuture<List<Customer>>> slices = new ArrayList<>();
+        for (int from = 0; from < chunk.size(); from += sliceSize) {
+            List<CustomerRegistrationRequest> slice = chunk.subList(from, Math.min(from + sliceSize, chunk.size()));
+            slices.add(CompletableFuture.supplyAsync(() -> slice.stream()
+                    .map(request -> new Customer(
+                            request.name(),
+                            request.email(),
+                            passwordEncoder.encode(request.password()),
+                            request.age(),
+                            request.gender()
+                    ))
+                    .toList(), hashingExecutor));
+        }
+        return CompletableFuture.allOf(slices.toArray(CompletableFuture[]::new))
+                .thenApply(done -> slices.stream()
+                        .flatMap(slice -> slice.join().stream())
+                        .toList());
+    }
+
+    private void copy(Job job, List<Customer> customers) {
+        // ids are drawn here so the merge is a plain INSERT ... SELECT;
+        // rows the merge skips leave gaps, as rolled back inserts do
+        List<Integer> ids = customerIdAllocator.nextIds(customers.size());
+        StringBuilder data = new StringBuilder(customers.size() * 128);
+        long seq = job.rowsStaged.get();
+        for (int i = 0; i < customers.size(); i++) {
+            Customer customer = customers.get(i);
+            data.append(CsvUtils.line(
+                    job.id,
+                    ++seq,
+                    ids.get(i),
+                    customer.getName(),
+                    customer.getEmail(),
+                    customer.getPassword(),
+                    customer.getAge(),
+                    customer.getGender()
+            ));
+        }
+
+        PgCopy.copyIn(jdbcTemplate, COPY_SQL, data.toString());
+        job.rowsStaged.set(seq);
+    }
+
+    private void merge(Job job) {
+        var sql = """
+                INSERT INTO customer(id, name, email, password, age, gender)
+                SELECT DISTINCT ON (email) id, name, email, password, age, gender
+                FROM customer_import_staging
+                WHERE job_id = ? AND seq > ? AND seq <= ?
+                ORDER BY email, seq
+                ON CONFLICT (email) DO NOTHING
+                RETURNING email
+                """;
+        long staged = job.rowsStaged.get();
+        try {
+            // batches go in seq order, so a repeat of an email merged by an
+            // earlier batch is caught by the conflict clause
+            for (long from = 0; from < staged; from += mergeBatchSize) {
+                long to = Math.min(from + mergeBatchSize, staged);
+                List<String> emails = jdbcTemplate.queryForList(sql, String.class, job.id, from, to);
+                emails.forEach(customerEmailFilter::add);
+                job.rowsImported.addAndGet(emails.size());
+                job.duplicates.addAndGet(to - from - emails.size());
+            }
+        } finally {
+            // each batch commits on its own, so a failed merge may still have imported rows
+            if (job.rowsImported.get() > 0) {
+                eventPublisher.publishEvent(CustomerInvalidationEvent.flushAll());
+                customerInvalidationChannel.publishFlush();
+            }
+        }
+    }
+
+    private void cleanUp(Job job) {
+        try {
+            jdbcTemplate.update("DELETE FROM customer_import_staging WHERE job_id = ?", job.id);
+        } catch (RuntimeException e) {
+            LOGGER.warn("could not remove the staged rows of customer import [{}]", job.id, e);
+        }
+        try {
+            Files.deleteIfExists(job.file);
+        } catch (IOException e) {
+            LOGGER.warn("could not delete customer import file [{}]", job.file, e);
+        }
+    }
+
+    private RowReader csvRows(BufferedReader reader) throws IOException {
+        List<String> header = CsvUtils.readRecord(reader);
+        Map<String, Integer> columns = new HashMap<>();
+        if (header != null) {
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+        }
+        if (!columns.keySet().containsAll(CSV_COLUMNS)) {
+            throw new IllegalArgumentException(
+                    "CSV header must name the columns " + String.join(", ", CSV_COLUMNS)
+            );
+        }
+
+        AtomicLong number = new AtomicLong();
+        return () -> {
+            List<String> record = CsvUtils.readRecord(reader);
+            if (record == null) {
+                return null;
+            }
+            long row = number.incrementAndGet();
+            if (record.size() < header.size()) {
+                return Row.rejected(row, "expected %s columns".formatted(header.size()));
+            }
+            String age = record.get(columns.get("age")).trim();
+            String gender = record.get(columns.get("gender")).trim();
+            try {
+                return new Row(row, new CustomerRegistrationRequest(
+                        record.get(columns.get("name")),
+                        record.get(columns.get("email")),
+                        record.get(columns.get("password")),
+                        age.isEmpty() ? null : Integer.valueOf(age),
+                        gender.isEmpty() ? null : Gender.valueOf(gender.toUpperCase(Locale.ROOT))
+                ), null);
+            } catch (NumberFormatException e) {
+                return Row.rejected(row, "age must be a whole number");
+            } catch (IllegalArgumentException e) {
+                return Row.rejected(row, "gender must be MALE or FEMALE");
+            }
+        };
+    }
+
+    private RowReader ndjsonRows(BufferedReader reader) {
+        AtomicLong number = new AtomicLong();
+        return () -> {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+            long row = number.incrementAndGet();
+            try {
+                return new Row(row, requestReader.readValue(line), null);
+            } catch (JsonProcessingException e) {
+                return Row.rejected(row, "not a valid customer object");
+            }
+        };
+    }
+
+    private interface RowReader {
+        // null at the end of the file
+        Row next() throws IOException;
+    }
+
+    private record Row(long number, CustomerRegistrationRequest request, String error) {
+        static Row rejected(long number, String error) {
+            return new Row(number, null, error);
+        }
+    }
+
+    private static final class Job {
+        private final UUID id;
+        private final CustomerExportFormat format;
+        private final Path file;
+        private final long bytesTotal;
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong rowsStaged = new AtomicLong();
+        private final AtomicLong rowsImported = new AtomicLong();
+        private final AtomicLong duplicates = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final List<CustomerImportReject> rejects = new ArrayList<>();
+        private volatile State state = State.QUEUED;
+        private volatile CountingInputStream input;
+        private volatile Instant startedAt;
+        private volatile Instant finishedAt;
+        private volatile String error;
+
+        private Job(UUID id, CustomerExportFormat format, Path file, long bytesTotal) {
+            this.id = id;
+            this.format = format;
+            this.file = file;
+            this.bytesTotal = bytesTotal;
+        }
+
+        private boolean isFinished() {
+            return finishedAt != null;
+        }
+
+        private void reject(long row, String reason) {
+            rejected.incrementAndGet();
+            synchronized (rejects) {
+                if (rejects.size() < MAX_REJECTS_REPORTED) {
+                    rejects.add(new CustomerImportReject(row, reason));
+                }
+            }
+        }
+
+        private CustomerImportStatus status() {
+            Instant started = startedAt;
+            Instant finished = finishedAt;
+            CountingInputStream counting = input;
+            double rowsPerSecond = 0;
+            if (started != null) {
+                long millis = Duration.between(started, finished != null ? finished : Instant.now()).toMillis();
+                rowsPerSecond = millis == 0 ? 0 : rowsRead.get() * 1000.0 / millis;
+            }
+            List<CustomerImportReject> reported;
+            synchronized (rejects) {
+                reported = List.copyOf(rejects);
+            }
+            return new CustomerImportStatus(
+                    id,
+                    state,
+                    format.name(),
+                    bytesTotal,
+                    counting == null ? 0 : Math.min(counting.getByteCount(), bytesTotal),
+                    rowsRead.get(),
+                    rowsStaged.get(),
+                    rowsImported.get(),
+                    duplicates.get(),
+                    rejected.get(),
+                    rowsPerSecond,
+                    started,
+                    finished,
+                    error,
+                    reported
+            );
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.serikscode.service;
+
+import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerChangedEvent;
+import com.serikscode.customer.CustomerInvalidationEvent;
+import com.serikscode.customer.CustomersCreatedEvent;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tells the other instances which customers changed, over Postgres
+ * LISTEN/NOTIFY, so their in-memory caches stop serving stale rows.
+ *
+ * Every local write is sent as {@code NOTIFY customer_changed, '<node>:<id>'};
+ * a batch of new customers is sent once, as {@code '<node>:<id>,<id>,...'},
+ * unless it names more ids than fit in a notification, and
+ * {@code '<node>:null'} asks every other instance to flush.
+ * A dedicated connection per instance listens on the channel and republishes
+ * other nodes' notifications as {@link CustomerInvalidationEvent}s.
+ * Notifications sent while the listener is not connected are lost, so each
+ * successful (re)connect publishes a flush-all event, which also covers
+ * changes made between cache warm-up and the first LISTEN.
+ */
+@Component
+public class CustomerInvalidationChannel implements SmartLifecycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerInvalidationChannel.class);
+
+    public static final String CHANNEL = "customer_changed";
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final int maxIdsPerNotification;
+    private final Duration pollTimeout;
+    private final Duration reconnectDelay;
+
+    private volatile boolean running;
+    private Thread listener;
+
+    public CustomerInvalidationChannel(DataSource dataSource,
+                                       ApplicationEventPublisher eventPublisher,
+                                       @Value("${customer.invalidation.enabled:true}") boolean enabled,
+                                       @Value("${customer.invalidation.max-ids-per-notification:500}") int maxIdsPerNotification,
+                                       @Value("${customer.invalidation.poll-timeout:5s}") Duration pollTimeout,
+                                       @Value("${customer.invalidation.reconnect-delay:2s}") Duration reconnectDelay) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.maxIdsPerNotification = maxIdsPerNotification;
+        this.pollTimeout = pollTimeout;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    @EventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        if (enabled) {
+            publish(event.customerId());
+        }
+    }
+
+    // a NOTIFY payload is capped at 8000 bytes, so a bigger batch falls back to a flush
+    @EventListener
+    public void onCustomersCreated(CustomersCreatedEvent event) {
+        if (!enabled || event.customers().isEmpty()) {
+            return;
+        }
+        if (event.customers().size() > maxIdsPerNotification) {
+            publish(null);
+            return;
+        }
+        StringBuilder ids = new StringBuilder();
+        for (Customer customer : event.customers()) {
+            if (!ids.isEmpty()) {
+                ids.append(',');
+            }
+            ids.append(customer.getId());
+        }
+        notifyOthers(ids.toString());
+    }
+
+    public void publish(Integer customerId) {
+        notifyOthers(String.valueOf(customerId));
+    }
+
+    private void notifyOthers(String ids) {
+        jdbcTemplate.query(
+                "SELECT pg_notify(?, ?)",
+                rs -> {
+                },
+                CHANNEL,
+                nodeId + ":" + ids
+        );
+    }
+
+    // tells the other instances to drop everything, after changes too many to name
+    public void publishFlush() {
+        if (enabled) {
+            publish(null);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        listener = new Thread(this::listen, "customer-invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                eventPublisher.publishEvent(CustomerInvalidationEvent.flushAll());
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications((int) pollTimeout.toMillis());
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            handle(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                LOGGER.warn("customer invalidation listener lost its connection, reconnecting", e);
+                try {
+                    Thread.sleep(reconnectDelay.toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void handle(String payload) {
+        int separator = payload.lastIndexOf(':');
+        if (separator < 0 || payload.substring(0, separator).equals(nodeId)) {
+            return;
+        }
+        if (payload.endsWith(":null")) {
+            eventPublisher.publishEvent(CustomerInvalidationEvent.flushAll());
+            return;
+        }
+        List<Integer> customerIds = new ArrayList<>();
+        try {
+            for (String id : payload.substring(separator + 1).split(",")) {
+                customerIds.add(Integer.valueOf(id));
+            }
+        } catch (NumberFormatException e) {
+            LOGGER.warn("ignoring malformed customer invalidation [{}]", payload);
+            return;
+        }
+        customerIds.forEach(customerId -> eventPublisher.publishEvent(new CustomerInvalidationEvent(customerId)));
+    }
+}
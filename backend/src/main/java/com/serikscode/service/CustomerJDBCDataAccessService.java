@@ -1,29 +1,56 @@
 package com.serikscode.service;
 
 import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerChange;
+import com.serikscode.customer.CustomerChangeCursor;
+import com.serikscode.customer.CustomerField;
+import com.serikscode.customer.CustomerQuery;
+import com.serikscode.customer.CustomerUpdateRequest;
+import com.serikscode.customer.PatchedCustomer;
 import com.serikscode.repository.CustomerDao;
+import com.serikscode.utills.CustomerProjectionRowMapper;
+import com.serikscode.utills.CustomerQuerySql;
 import com.serikscode.utills.CustomerRowMapper;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository("jdbc")
 public class CustomerJDBCDataAccessService implements CustomerDao {
 
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final int INSERT_BATCH_SIZE = 500;
+
     private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
     private final CustomerRowMapper customerRowMapper;
+    private final CustomerIdAllocator customerIdAllocator;
 
-    public CustomerJDBCDataAccessService(JdbcTemplate jdbcTemplate, CustomerRowMapper customerRowMapper) {
+    public CustomerJDBCDataAccessService(JdbcTemplate jdbcTemplate, CustomerRowMapper customerRowMapper, CustomerIdAllocator customerIdAllocator) {
         this.jdbcTemplate = jdbcTemplate;
         this.customerRowMapper = customerRowMapper;
+        this.customerIdAllocator = customerIdAllocator;
+
+        // with autocommit off and a fetch size set, pgjdbc reads through a server-side cursor
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(STREAM_FETCH_SIZE);
     }
 
     @Override
     public List<Customer> selectAllCustomer() {
         var sql = """
-                SELECT id, name, email, password, age, gender, profile_image_id
+                SELECT id, name, email, password, age, gender, profile_image_id, version
                 FROM customer
                 """;
 
@@ -46,11 +73,125 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
 
     }
 
+    @Override
+    public List<Customer> selectCustomers(CustomerQuery query) {
+        CustomerQuerySql querySql = CustomerQuerySql.of(query);
+
+        return jdbcTemplate.query(
+                querySql.sql(),
+                new CustomerProjectionRowMapper(query.readFields()),
+                querySql.args()
+        );
+    }
+
+    @Override
+    public List<Customer> searchCustomers(String term, int limit) {
+        // <% is served by the trigram GIN indexes; ranking only touches the matched rows
+        var sql = """
+                SELECT %s
+                FROM customer
+                WHERE ? <% name OR ? <% email
+                ORDER BY greatest(word_similarity(?, name), word_similarity(?, email)) DESC, id
+                LIMIT ?
+                """.formatted(CustomerField.selectList(CustomerField.ALL));
+
+        return jdbcTemplate.query(
+                sql,
+                new CustomerProjectionRowMapper(CustomerField.ALL),
+                term, term, term, term, limit
+        );
+    }
+
+    @Override
+    public List<CustomerChange> selectChangesSince(CustomerChangeCursor since, int limit) {
+        // xmin is the oldest transaction still running when the statement's snapshot
+        // was taken; each branch walks its (change_xid, change_version) index below it
+        var sql = """
+                WITH snapshot AS (
+                    SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint AS xmin
+                )
+                (SELECT id, name, email, password, age, gender, profile_image_id, version,
+                        change_xid, change_version, FALSE AS deleted
+                 FROM customer, snapshot
+                 WHERE (change_xid, change_version) > (?, ?)
+                   AND change_xid < snapshot.xmin
+                 ORDER BY change_xid, change_version
+                 LIMIT ?)
+                UNION ALL
+                (SELECT customer_id, NULL, NULL, NULL, NULL, NULL, NULL, NULL,
+                        change_xid, change_version, TRUE
+                 FROM customer_tombstone, snapshot
+                 WHERE (change_xid, change_version) > (?, ?)
+                   AND change_xid < snapshot.xmin
+                 ORDER BY change_xid, change_version
+                 LIMIT ?)
+                ORDER BY change_xid, change_version
+                LIMIT ?
+                """;
+
+        return jdbcTemplate.query(
+                sql,
+                (rs, rowNum) -> {
+                    CustomerChangeCursor position = new CustomerChangeCursor(
+                            rs.getLong("change_xid"),
+                            rs.getLong("change_version")
+                    );
+                    return rs.getBoolean("deleted")
+                            ? CustomerChange.deleted(rs.getInt("id"), position)
+                            : new CustomerChange(rs.getInt("id"), position, customerRowMapper.mapRow(rs, rowNum));
+                },
+                since.changeXid(), since.changeVersion(), limit,
+                since.changeXid(), since.changeVersion(), limit,
+                limit
+        );
+    }
+
+    @Override
+    public CustomerChangeCursor selectTombstoneHorizon() {
+        return jdbcTemplate.queryForObject(
+                "SELECT change_xid, change_version FROM customer_tombstone_horizon",
+                (rs, rowNum) -> new CustomerChangeCursor(rs.getLong("change_xid"), rs.getLong("change_version"))
+        );
+    }
+
+    @Override
+    public int deleteTombstonesBefore(Instant cutoff) {
+        // the sub-statements share one snapshot, so the horizon covers exactly the deleted rows
+        var sql = """
+                WITH newest AS (
+                    SELECT change_xid, change_version
+                    FROM customer_tombstone
+                    WHERE deleted_at < ?
+                    ORDER BY change_xid DESC, change_version DESC
+                    LIMIT 1
+                ), horizon AS (
+                    UPDATE customer_tombstone_horizon h
+                    SET change_xid = newest.change_xid, change_version = newest.change_version
+                    FROM newest
+                    WHERE (newest.change_xid, newest.change_version) > (h.change_xid, h.change_version)
+                )
+                DELETE FROM customer_tombstone
+                WHERE deleted_at < ?
+                """;
+
+        return jdbcTemplate.update(sql, Timestamp.from(cutoff), Timestamp.from(cutoff));
+    }
+
+    @Override
+    public Stream<Customer> streamAllCustomers() {
+        var sql = """
+                SELECT id, name, email, password, age, gender, profile_image_id, version
+                FROM customer
+                """;
+
+        return streamingJdbcTemplate.queryForStream(sql, customerRowMapper);
+    }
+
     @Override
     public Optional<Customer> selectCustomerById(Integer id) {
 
         var sql = """
-                SELECT id, name, email, password, age, gender, profile_image_id
+                SELECT id, name, email, password, age, gender, profile_image_id, version
                 FROM customer
                 WHERE id = ?
                 """;
@@ -60,23 +201,127 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
                 .findFirst();
     }
 
+    @Override
+    public Optional<Customer> selectCustomerById(Integer id, Set<CustomerField> fields) {
+        var sql = """
+                SELECT %s
+                FROM customer
+                WHERE id = ?
+                """.formatted(CustomerField.selectList(fields));
+
+        return jdbcTemplate.query(sql, new CustomerProjectionRowMapper(fields), id)
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public List<Customer> selectCustomersByIds(Collection<Integer> ids) {
+        // one array parameter keeps the statement text, and its plan, the same for any number of ids
+        var sql = """
+                SELECT id, name, email, password, age, gender, profile_image_id, version
+                FROM customer
+                WHERE id = ANY(?)
+                """;
+
+        Long[] idArray = ids.stream()
+                .map(Integer::longValue)
+                .toArray(Long[]::new);
+        return jdbcTemplate.query(
+                sql,
+                statement -> statement.setArray(1, statement.getConnection().createArrayOf("bigint", idArray)),
+                customerRowMapper
+        );
+    }
+
     @Override
     public void insertCustomer(Customer customer) {
         var sql = """
-                INSERT INTO customer(name, email, password, age, gender)
-                VALUES(?, ?, ?, ?, ?)
+                INSERT INTO customer(id, name, email, password, age, gender)
+                VALUES(?, ?, ?, ?, ?, ?)
                 """;
+        // callers rely on the id being set, as JPA does on persist
+        Integer id = customerIdAllocator.nextId();
         int result = jdbcTemplate.update(
                 sql,
+                id,
                 customer.getName(),
                 customer.getEmail(),
                 customer.getPassword(),
                 customer.getAge(),
                 customer.getGender().name()
+        );
+        customer.setId(id);
+        customer.setVersion(0L);
+        System.out.println("jdbcTemplate.updater = " + result );
+    }
 
+    @Override
+    public boolean insertCustomerIfEmailAbsent(Customer customer) {
+        // the unique constraint decides in the same statement, so concurrent registrations cannot race
+        var sql = """
+                INSERT INTO customer(id, name, email, password, age, gender)
+                VALUES(?, ?, ?, ?, ?, ?)
+                ON CONFLICT (email) DO NOTHING
+                RETURNING id
+                """;
+        List<Integer> inserted = jdbcTemplate.query(
+                sql,
+                (rs, rowNum) -> rs.getInt("id"),
+                customerIdAllocator.nextId(),
+                customer.getName(),
+                customer.getEmail(),
+                customer.getPassword(),
+                customer.getAge(),
+                customer.getGender().name()
         );
+        if (inserted.isEmpty()) {
+            return false;
+        }
+        customer.setId(inserted.get(0));
+        customer.setVersion(0L);
+        return true;
+    }
 
-        System.out.println("jdbcTemplate.updater = " + result );
+    @Override
+    public void insertCustomers(List<Customer> customers) {
+        if (customers.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = customerIdAllocator.nextIds(customers.size());
+        for (int i = 0; i < customers.size(); i++) {
+            customers.get(i).setId(ids.get(i));
+            customers.get(i).setVersion(0L);
+        }
+
+        // with reWriteBatchedInserts the driver sends each batch as multi-row INSERTs
+        var sql = """
+                INSERT INTO customer(id, name, email, password, age, gender)
+                VALUES(?, ?, ?, ?, ?, ?)
+                """;
+        jdbcTemplate.batchUpdate(sql, customers, INSERT_BATCH_SIZE, (statement, customer) -> {
+            statement.setInt(1, customer.getId());
+            statement.setString(2, customer.getName());
+            statement.setString(3, customer.getEmail());
+            statement.setString(4, customer.getPassword());
+            statement.setInt(5, customer.getAge());
+            statement.setString(6, customer.getGender().name());
+        });
+    }
+
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        var sql = """
+                SELECT email
+                FROM customer
+                WHERE email = ANY(?)
+                """;
+
+        String[] emailArray = emails.toArray(String[]::new);
+        return new HashSet<>(jdbcTemplate.query(
+                sql,
+                statement -> statement.setArray(1, statement.getConnection().createArrayOf("text", emailArray)),
+                (rs, rowNum) -> rs.getString("email")
+        ));
     }
 
     @Override
@@ -107,51 +352,94 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
     }
 
     @Override
-    public void deleteCustomer(Integer id) {
+    public boolean deleteCustomer(Integer id) {
         var sql = """
                 DELETE
                 FROM customer
                 WHERE id = ?
                 """;
-        Integer result = jdbcTemplate.update(sql, id);
-        System.out.println("delete method count " + result);
+        return jdbcTemplate.update(sql, id) > 0;
     }
 
     @Override
     public void updateCustomer(Customer update) {
-
-        if (update.getName() != null) {
-            String sql = "UPDATE customer SET name = ? WHERE id = ?";
-            int result = jdbcTemplate.update(
-                    sql,
-                    update.getName(),
-                    update.getId()
+        // one statement for every non-null field, gender included; a customer
+        // that was read with a version is only written if nobody changed it since
+        Optional<PatchedCustomer> updated = update(
+                update.getId(),
+                new CustomerUpdateRequest(
+                        update.getName(),
+                        update.getEmail(),
+                        update.getAge(),
+                        update.getGender()
+                ),
+                update.getVersion()
+        );
+        if (update.getVersion() != null && updated.isEmpty()) {
+            throw new OptimisticLockingFailureException(
+                    "customer [%s] was changed or deleted after version %s was read"
+                            .formatted(update.getId(), update.getVersion())
             );
-            System.out.println("update customer name result = " + result);
         }
-        if (update.getAge() != null) {
-            String sql = "UPDATE customer SET age = ? WHERE id = ?";
-            int result = jdbcTemplate.update(
-                    sql,
-                    update.getAge(),
-                    update.getId()
-            );
-            System.out.println("update customer age result = " + result);
+        updated.ifPresent(patched -> update.setVersion(patched.customer().getVersion()));
+    }
+
+    @Override
+    public Optional<PatchedCustomer> patchCustomer(Integer customerId, CustomerUpdateRequest update) {
+        return update(customerId, update, null);
+    }
+
+    private Optional<PatchedCustomer> update(Integer customerId, CustomerUpdateRequest update, Long expectedVersion) {
+        List<String> columns = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        if (update.name() != null) {
+            columns.add("name = ?");
+            args.add(update.name());
+        }
+        if (update.email() != null) {
+            columns.add("email = ?");
+            args.add(update.email());
+        }
+        if (update.age() != null) {
+            columns.add("age = ?");
+            args.add(update.age());
+        }
+        if (update.gender() != null) {
+            columns.add("gender = ?");
+            args.add(update.gender().name());
         }
-        if (update.getEmail() != null) {
-            String sql = "UPDATE customer SET email = ? WHERE id = ?";
-            int result = jdbcTemplate.update(
-                    sql,
-                    update.getEmail(),
-                    update.getId());
-            System.out.println("update customer email result = " + result);
+        columns.add("version = c.version + 1");
+        args.add(customerId);
+        String versionCheck = "";
+        if (expectedVersion != null) {
+            versionCheck = "AND c.version = ?";
+            args.add(expectedVersion);
         }
+
+        // the self-join hands back the old email from the same statement
+        var sql = """
+                UPDATE customer c
+                SET %s
+                FROM customer previous
+                WHERE c.id = ? %s AND previous.id = c.id
+                RETURNING c.id, c.name, c.email, c.password, c.age, c.gender, c.profile_image_id, c.version,
+                          previous.email AS previous_email
+                """.formatted(String.join(", ", columns), versionCheck);
+
+        return jdbcTemplate.query(
+                sql,
+                (rs, rowNum) -> new PatchedCustomer(
+                        customerRowMapper.mapRow(rs, rowNum),
+                        rs.getString("previous_email")
+                ),
+                args.toArray()
+        ).stream().findFirst();
     }
 
     @Override
     public Optional<Customer> selectUserByEmail(String email) {
         var sql = """
-                SELECT id, name, email, password, age, gender, profile_image_id
+                SELECT id, name, email, password, age, gender, profile_image_id, version
                 FROM customer
                 WHERE email = ?
                 """;
@@ -162,12 +450,25 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
     }
 
     @Override
-    public void updateCustomerProfileImageId(String profileImageId, Integer customerId) {
+    public boolean updateCustomerProfileImageId(String profileImageId, Integer customerId) {
         var sql = """
                 UPDATE customer
-                SET profile_image_id = ?
+                SET profile_image_id = ?, version = version + 1
                 WHERE id = ?
                 """;
-        jdbcTemplate.update(sql, profileImageId, customerId);
+        return jdbcTemplate.update(sql, profileImageId, customerId) > 0;
+    }
+
+    @Override
+    public Optional<String> selectProfileImageId(Integer customerId) {
+        var sql = """
+                SELECT profile_image_id
+                FROM customer
+                WHERE id = ?
+                """;
+        return jdbcTemplate.query(sql, (rs, rowNum) -> rs.getString("profile_image_id"), customerId)
+                .stream()
+                .filter(Objects::nonNull)
+                .findFirst();
     }
 }
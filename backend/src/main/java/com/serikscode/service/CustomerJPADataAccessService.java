@@ -1,20 +1,54 @@
 package com.serikscode.service;
 
 import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerChange;
+import com.serikscode.customer.CustomerChangeCursor;
+import com.serikscode.customer.CustomerField;
+import com.serikscode.customer.CustomerQuery;
+import com.serikscode.customer.CustomerSort;
+import com.serikscode.customer.CustomerUpdateRequest;
+import com.serikscode.customer.Gender;
+import com.serikscode.customer.PatchedCustomer;
 import com.serikscode.repository.CustomerDao;
 import com.serikscode.repository.CustomerRepository;
+import com.serikscode.repository.CustomerSpecifications;
+import com.serikscode.repository.CustomerTombstone;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository("jpa")
 public class CustomerJPADataAccessService implements CustomerDao {
 
     private final CustomerRepository customerRepository;
+    private final EntityManager entityManager;
+    private final CustomerIdAllocator customerIdAllocator;
 
-    public CustomerJPADataAccessService(CustomerRepository customerRepository) {
+    public CustomerJPADataAccessService(CustomerRepository customerRepository, EntityManager entityManager, CustomerIdAllocator customerIdAllocator) {
         this.customerRepository = customerRepository;
+        this.entityManager = entityManager;
+        this.customerIdAllocator = customerIdAllocator;
     }
 
     @Override
@@ -22,34 +56,185 @@ public class CustomerJPADataAccessService implements CustomerDao {
         return customerRepository.findAll();
     }
 
+    @Override
+    public List<Customer> selectCustomers(CustomerQuery query) {
+        Set<CustomerField> fields = query.readFields();
+        CustomerSort sort = query.sort();
+        Specification<Customer> spec = CustomerSpecifications.matching(query.filter())
+                .and(CustomerSpecifications.after(sort, query.after()));
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> criteria = cb.createTupleQuery();
+        Root<Customer> root = criteria.from(Customer.class);
+        criteria.multiselect(selections(root, fields));
+        Predicate predicate = spec.toPredicate(root, criteria, cb);
+        if (predicate != null) {
+            criteria.where(predicate);
+        }
+        List<Order> orders = new ArrayList<>();
+        if (!sort.isById()) {
+            orders.add(order(cb, root.get(sort.field().getAttribute()), sort.descending()));
+        }
+        orders.add(order(cb, root.get("id"), sort.descending()));
+        criteria.orderBy(orders);
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(criteria);
+        if (query.limit() != null) {
+            typedQuery.setMaxResults(query.limit());
+        }
+        return typedQuery.getResultStream()
+                .map(tuple -> toCustomer(tuple, fields))
+                .toList();
+    }
+
+    @Override
+    public List<Customer> searchCustomers(String term, int limit) {
+        return customerRepository.searchByNameOrEmail(term, limit);
+    }
+
+    @Override
+    public List<CustomerChange> selectChangesSince(CustomerChangeCursor since, int limit) {
+        // one bound for both reads; an xmin taken before a query is still safe for it
+        long xmin = customerRepository.findSnapshotXmin();
+        List<CustomerChange> changes = new ArrayList<>();
+        customerRepository.findChangedSince(since.changeXid(), since.changeVersion(), xmin, PageRequest.of(0, limit))
+                .forEach(customer -> changes.add(new CustomerChange(
+                        customer.getId(),
+                        new CustomerChangeCursor(customer.getChangeXid(), customer.getChangeVersion()),
+                        customer
+                )));
+        customerRepository.findTombstonesSince(since.changeXid(), since.changeVersion(), xmin, limit)
+                .forEach(tombstone -> changes.add(CustomerChange.deleted(
+                        tombstone.getCustomerId(),
+                        new CustomerChangeCursor(tombstone.getChangeXid(), tombstone.getChangeVersion())
+                )));
+        return changes.stream()
+                .sorted(Comparator.comparing(CustomerChange::position))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public CustomerChangeCursor selectTombstoneHorizon() {
+        CustomerTombstone horizon = customerRepository.findTombstoneHorizon();
+        return new CustomerChangeCursor(horizon.getChangeXid(), horizon.getChangeVersion());
+    }
+
+    @Override
+    public int deleteTombstonesBefore(Instant cutoff) {
+        return customerRepository.deleteTombstonesBefore(cutoff);
+    }
+
+    @Override
+    public Stream<Customer> streamAllCustomers() {
+        // detach every row so the persistence context does not grow with the table
+        return customerRepository.streamAll()
+                .peek(entityManager::detach);
+    }
+
     @Override
     public Optional<Customer> selectCustomerById(Integer id) {
         return customerRepository.findById(id);
     }
 
+    @Override
+    public Optional<Customer> selectCustomerById(Integer id, Set<CustomerField> fields) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Customer> root = query.from(Customer.class);
+        query.multiselect(selections(root, fields))
+                .where(cb.equal(root.get("id"), id));
+
+        return entityManager.createQuery(query)
+                .getResultStream()
+                .map(tuple -> toCustomer(tuple, fields))
+                .findFirst();
+    }
+
+    @Override
+    public List<Customer> selectCustomersByIds(Collection<Integer> ids) {
+        return customerRepository.findAllById(ids);
+    }
+
     @Override
     public void insertCustomer(Customer customer) {
         customerRepository.save(customer);
     }
 
+    // persist has no conflict clause, so this goes native; ids still come from the shared sequence blocks
+    @Override
+    public boolean insertCustomerIfEmailAbsent(Customer customer) {
+        List<Long> inserted = customerRepository.insertIfEmailAbsent(
+                customerIdAllocator.nextId(),
+                customer.getName(),
+                customer.getEmail(),
+                customer.getPassword(),
+                customer.getAge(),
+                customer.getGender().name()
+        );
+        if (inserted.isEmpty()) {
+            return false;
+        }
+        customer.setId(inserted.get(0).intValue());
+        customer.setVersion(0L);
+        return true;
+    }
+
+    @Override
+    public void insertCustomers(List<Customer> customers) {
+        customerRepository.saveAll(customers);
+    }
+
     @Override
     public boolean existsPersonWithEmail(String email) {
         return customerRepository.existsCustomerByEmail(email);
     }
 
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        return new HashSet<>(customerRepository.findExistingEmails(emails));
+    }
+
     @Override
     public boolean existsPersonWithId(Integer id) {
         return customerRepository.existsCustomerById(id);
     }
 
     @Override
-    public void deleteCustomer(Integer id) {
-        customerRepository.deleteById(id);
+    public boolean deleteCustomer(Integer id) {
+        // deleteById would load the entity first just to remove it
+        return customerRepository.deleteCustomerById(id) > 0;
     }
 
     @Override
     public void updateCustomer(Customer updatedCustomer) {
-        customerRepository.save(updatedCustomer);
+        // merge compares the version and throws ObjectOptimisticLockingFailureException on a mismatch
+        Customer saved = customerRepository.save(updatedCustomer);
+        updatedCustomer.setVersion(saved.getVersion());
+    }
+
+    // JPA cannot return the row from an UPDATE, so this loads it first; with
+    // @DynamicUpdate the flush writes only the columns that changed, in the same transaction
+    @Override
+    @Transactional
+    public Optional<PatchedCustomer> patchCustomer(Integer customerId, CustomerUpdateRequest update) {
+        return customerRepository.findById(customerId).map(customer -> {
+            String previousEmail = customer.getEmail();
+            if (update.name() != null) {
+                customer.setName(update.name());
+            }
+            if (update.email() != null) {
+                customer.setEmail(update.email());
+            }
+            if (update.age() != null) {
+                customer.setAge(update.age());
+            }
+            if (update.gender() != null) {
+                customer.setGender(update.gender());
+            }
+            customerRepository.flush();
+            return new PatchedCustomer(customer, previousEmail);
+        });
     }
 
     @Override
@@ -58,9 +243,45 @@ public class CustomerJPADataAccessService implements CustomerDao {
     }
 
     @Override
-    public void updateCustomerProfileImageId(String profileImageId, Integer customerId) {
-        customerRepository.updateProfileImageId(profileImageId, customerId);
+    public boolean updateCustomerProfileImageId(String profileImageId, Integer customerId) {
+        return customerRepository.updateProfileImageId(profileImageId, customerId) > 0;
     }
 
+    @Override
+    public Optional<String> selectProfileImageId(Integer customerId) {
+        return customerRepository.findProfileImageIdById(customerId);
+    }
 
+    private static List<Selection<?>> selections(Root<Customer> root, Set<CustomerField> fields) {
+        return CustomerField.attributesOf(fields)
+                .stream()
+                .<Selection<?>>map(attribute -> root.get(attribute).alias(attribute))
+                .toList();
+    }
+
+    private static Order order(CriteriaBuilder cb, Expression<?> expression, boolean descending) {
+        return descending ? cb.desc(expression) : cb.asc(expression);
+    }
+
+    private static Customer toCustomer(Tuple tuple, Set<CustomerField> fields) {
+        Set<String> attributes = CustomerField.attributesOf(fields);
+        Customer customer = new Customer();
+        customer.setId(tuple.get("id", Integer.class));
+        if (attributes.contains("name")) {
+            customer.setName(tuple.get("name", String.class));
+        }
+        if (attributes.contains("email")) {
+            customer.setEmail(tuple.get("email", String.class));
+        }
+        if (attributes.contains("age")) {
+            customer.setAge(tuple.get("age", Integer.class));
+        }
+        if (attributes.contains("gender")) {
+            customer.setGender(tuple.get("gender", Gender.class));
+        }
+        if (attributes.contains("profileImageId")) {
+            customer.setProfileImageId(tuple.get("profileImageId", String.class));
+        }
+        return customer;
+    }
 }
@@ -1,13 +1,30 @@
 package com.serikscode.service;
 
 import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerChange;
+import com.serikscode.customer.CustomerChangeCursor;
+import com.serikscode.customer.CustomerCursor;
+import com.serikscode.customer.CustomerField;
+import com.serikscode.customer.CustomerFilter;
+import com.serikscode.customer.CustomerQuery;
+import com.serikscode.customer.CustomerSort;
+import com.serikscode.customer.CustomerUpdateRequest;
 import com.serikscode.customer.Gender;
+import com.serikscode.customer.PatchedCustomer;
 import com.serikscode.repository.CustomerDao;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository("list")
 public class CustomerListDataAccessService implements CustomerDao {
@@ -31,6 +48,91 @@ public class CustomerListDataAccessService implements CustomerDao {
         return customers;
     }
 
+    @Override
+    public List<Customer> selectCustomers(CustomerQuery query) {
+        Comparator<Customer> order = comparing(query.sort());
+        Stream<Customer> result = customers
+                .stream()
+                .filter(matching(query.filter()));
+        if (query.after() != null) {
+            Customer last = cursorRow(query.sort(), query.after());
+            result = result.filter(customer -> order.compare(customer, last) > 0);
+        }
+        result = result.sorted(order);
+        if (query.limit() != null) {
+            result = result.limit(query.limit());
+        }
+        return result.toList();
+    }
+
+    // same predicates as CustomerQuerySql and CustomerSpecifications
+    private static Predicate<Customer> matching(CustomerFilter filter) {
+        return customer -> (filter.minAge() == null || customer.getAge() >= filter.minAge())
+                && (filter.maxAge() == null || customer.getAge() <= filter.maxAge())
+                && (filter.gender() == null || customer.getGender() == filter.gender())
+                && (filter.namePrefix() == null || hasPrefix(customer.getName(), filter.namePrefix()))
+                && (filter.emailPrefix() == null || hasPrefix(customer.getEmail(), filter.emailPrefix()));
+    }
+
+    private static boolean hasPrefix(String value, String prefix) {
+        return value.toLowerCase(Locale.ROOT).startsWith(prefix.toLowerCase(Locale.ROOT));
+    }
+
+    // ties are broken by id, so the order is total and the cursor is a strict lower bound
+    private static Comparator<Customer> comparing(CustomerSort sort) {
+        Comparator<Customer> order = switch (sort.field()) {
+            case NAME -> Comparator.comparing(Customer::getName)
+                    .thenComparing(Customer::getId);
+            case AGE -> Comparator.comparing(Customer::getAge)
+                    .thenComparing(Customer::getId);
+            default -> Comparator.comparing(Customer::getId);
+        };
+        return sort.descending() ? order.reversed() : order;
+    }
+
+    // a row standing in for the last row of the previous page
+    private static Customer cursorRow(CustomerSort sort, CustomerCursor cursor) {
+        Customer last = new Customer();
+        last.setId(cursor.lastId());
+        switch (sort.field()) {
+            case NAME -> last.setName((String) cursor.lastSortValue());
+            case AGE -> last.setAge((Integer) cursor.lastSortValue());
+            default -> {
+            }
+        }
+        return last;
+    }
+
+    @Override
+    public List<Customer> searchCustomers(String term, int limit) {
+        return customers
+                .stream()
+                .filter(customer -> customer.getName().contains(term) || customer.getEmail().contains(term))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public List<CustomerChange> selectChangesSince(CustomerChangeCursor since, int limit) {
+        // the in-memory list keeps no history
+        return List.of();
+    }
+
+    @Override
+    public CustomerChangeCursor selectTombstoneHorizon() {
+        return CustomerChangeCursor.START;
+    }
+
+    @Override
+    public int deleteTombstonesBefore(Instant cutoff) {
+        return 0;
+    }
+
+    @Override
+    public Stream<Customer> streamAllCustomers() {
+        return customers.stream();
+    }
+
     @Override
     public Optional<Customer> selectCustomerById(Integer id) {
         return customers
@@ -39,11 +141,38 @@ public class CustomerListDataAccessService implements CustomerDao {
                 .findFirst();
     }
 
+    @Override
+    public Optional<Customer> selectCustomerById(Integer id, Set<CustomerField> fields) {
+        return selectCustomerById(id);
+    }
+
+    @Override
+    public List<Customer> selectCustomersByIds(Collection<Integer> ids) {
+        return customers
+                .stream()
+                .filter(customer -> ids.contains(customer.getId()))
+                .toList();
+    }
+
     @Override
     public void insertCustomer(Customer customer) {
         customers.add(customer);
     }
 
+    @Override
+    public boolean insertCustomerIfEmailAbsent(Customer customer) {
+        if (customers.stream().anyMatch(existing -> existing.getEmail().equals(customer.getEmail()))) {
+            return false;
+        }
+        customers.add(customer);
+        return true;
+    }
+
+    @Override
+    public void insertCustomers(List<Customer> newCustomers) {
+        customers.addAll(newCustomers);
+    }
+
     @Override
     public boolean existsPersonWithEmail(String email) {
         return customers
@@ -51,14 +180,23 @@ public class CustomerListDataAccessService implements CustomerDao {
                 .anyMatch(customer -> customer.equals(email));
     }
 
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        return customers
+                .stream()
+                .map(Customer::getEmail)
+                .filter(emails::contains)
+                .collect(Collectors.toSet());
+    }
+
     @Override
     public boolean existsPersonWithId(Integer id) {
         return customers.contains(id);
     }
 
     @Override
-    public void deleteCustomer(Integer id) {
-        customers.remove(id);
+    public boolean deleteCustomer(Integer id) {
+        return customers.removeIf(customer -> customer.getId().equals(id));
     }
 
     @Override
@@ -66,6 +204,26 @@ public class CustomerListDataAccessService implements CustomerDao {
         customers.add(updatedCustomer);
     }
 
+    @Override
+    public Optional<PatchedCustomer> patchCustomer(Integer customerId, CustomerUpdateRequest update) {
+        return selectCustomerById(customerId).map(customer -> {
+            String previousEmail = customer.getEmail();
+            if (update.name() != null) {
+                customer.setName(update.name());
+            }
+            if (update.email() != null) {
+                customer.setEmail(update.email());
+            }
+            if (update.age() != null) {
+                customer.setAge(update.age());
+            }
+            if (update.gender() != null) {
+                customer.setGender(update.gender());
+            }
+            return new PatchedCustomer(customer, previousEmail);
+        });
+    }
+
     @Override
     public Optional<Customer> selectUserByEmail(String email) {
         return customers
@@ -75,7 +233,13 @@ public class CustomerListDataAccessService implements CustomerDao {
     }
 
     @Override
-    public void updateCustomerProfileImageId(String profileImageId, Integer customerId) {
+    public boolean updateCustomerProfileImageId(String profileImageId, Integer customerId) {
         // TODO: Implement this :-)
+        return false;
+    }
+
+    @Override
+    public Optional<String> selectProfileImageId(Integer customerId) {
+        return selectCustomerById(customerId).map(Customer::getProfileImageId);
     }
 }
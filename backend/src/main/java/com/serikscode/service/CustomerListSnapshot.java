@@ -0,0 +1,202 @@
+package com.serikscode.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.serikscode.customer.CustomerChangedEvent;
+import com.serikscode.customer.CustomerInvalidationEvent;
+import com.serikscode.customer.CustomersCreatedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Optional pre-serialized copy of the full customer list.
+ *
+ * When {@code customer.list-snapshot.enabled} is set, the unfiltered list is
+ * kept as immutable JSON and gzip byte arrays that the controller writes
+ * straight to the response. Writes through {@link CustomerService} schedule
+ * a rebuild on a background thread; bursts of writes collapse into one
+ * rebuild. A snapshot older than the newest write is still served for up to
+ * {@code customer.list-snapshot.max-staleness}, after which callers fall
+ * back to the live query until the rebuild lands.
+ */
+@Component
+public class CustomerListSnapshot implements SmartInitializingSingleton, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerListSnapshot.class);
+
+    public record Snapshot(byte[] json, byte[] gzip, String etag, String gzipETag) {
+    }
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    // nanoTime of the oldest write not yet in the snapshot, 0 when up to date
+    private final AtomicLong pendingSince = new AtomicLong();
+
+    private final CustomerService customerService;
+    private final CustomerVersionTracker customerVersionTracker;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Duration maxStaleness;
+    private final ExecutorService executor;
+    private final Timer rebuildTimer;
+    private final Counter rebuildFailures;
+
+    public CustomerListSnapshot(CustomerService customerService,
+                                CustomerVersionTracker customerVersionTracker,
+                                ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                @Value("${customer.list-snapshot.enabled:false}") boolean enabled,
+                                @Value("${customer.list-snapshot.max-staleness:5s}") Duration maxStaleness) {
+        this.customerService = customerService;
+        this.customerVersionTracker = customerVersionTracker;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.maxStaleness = maxStaleness;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "customer-list-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.rebuildTimer = Timer.builder("customer.list.snapshot.rebuild")
+                .description("Time to query, serialize and compress the customer list")
+                .register(meterRegistry);
+        this.rebuildFailures = Counter.builder("customer.list.snapshot.rebuild.failures")
+                .register(meterRegistry);
+        TimeGauge.builder("customer.list.snapshot.staleness", this, TimeUnit.NANOSECONDS,
+                        CustomerListSnapshot::stalenessNanos)
+                .description("Age of the oldest write not yet reflected in the snapshot")
+                .register(meterRegistry);
+        TimeGauge.builder("customer.list.snapshot.max.staleness", maxStaleness, TimeUnit.MILLISECONDS,
+                        Duration::toMillis)
+                .description("Staleness after which requests bypass the snapshot")
+                .register(meterRegistry);
+        Gauge.builder("customer.list.snapshot.bytes", current, ref -> size(ref.get(), false))
+                .tag("encoding", "identity")
+                .register(meterRegistry);
+        Gauge.builder("customer.list.snapshot.bytes", current, ref -> size(ref.get(), true))
+                .tag("encoding", "gzip")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled) {
+            scheduleRebuild();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * The snapshot to serve, or {@code null} when snapshots are disabled,
+     * not built yet, or staler than the configured bound.
+     */
+    public Snapshot get() {
+        if (!enabled || stalenessNanos() > maxStaleness.toNanos()) {
+            return null;
+        }
+        return current.get();
+    }
+
+    @EventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        markStale();
+    }
+
+    @EventListener
+    public void onCustomerInvalidated(CustomerInvalidationEvent event) {
+        markStale();
+    }
+
+    @EventListener
+    public void onCustomersCreated(CustomersCreatedEvent event) {
+        markStale();
+    }
+
+    private void markStale() {
+        if (!enabled) {
+            return;
+        }
+        pendingSince.compareAndSet(0, System.nanoTime());
+        scheduleRebuild();
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            executor.execute(this::rebuild);
+        }
+    }
+
+    void rebuild() {
+        // writes from here on need another pass, so let them schedule one
+        rebuildScheduled.set(false);
+        long startedAt = System.nanoTime();
+        long version = customerVersionTracker.listVersion();
+        try {
+            byte[] json = rebuildTimer.recordCallable(
+                    () -> objectMapper.writeValueAsBytes(customerService.getAllCustomer())
+            );
+            current.set(new Snapshot(
+                    json,
+                    gzip(json),
+                    customerVersionTracker.listETag(version, false),
+                    customerVersionTracker.listETag(version, true)
+            ));
+            long pending = pendingSince.get();
+            if (pending != 0 && pending - startedAt < 0) {
+                // everything older than this rebuild is now in the snapshot
+                pendingSince.compareAndSet(pending, rebuildScheduled.get() ? startedAt : 0);
+            }
+        } catch (Exception e) {
+            rebuildFailures.increment();
+            LOGGER.warn("customer list snapshot rebuild failed", e);
+        }
+    }
+
+    private long stalenessNanos() {
+        long pending = pendingSince.get();
+        return pending == 0 ? 0 : System.nanoTime() - pending;
+    }
+
+    private static double size(Snapshot snapshot, boolean gzip) {
+        if (snapshot == null) {
+            return 0;
+        }
+        return gzip ? snapshot.gzip().length : snapshot.json().length;
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,232 @@
+package com.serikscode.service;
+
+import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerChangedEvent;
+import com.serikscode.customer.CustomerInvalidationEvent;
+import com.serikscode.customer.CustomersCreatedEvent;
+import com.serikscode.dto.CustomerSuggestion;
+import com.serikscode.exception.RequestValidationException;
+import com.serikscode.repository.CustomerDao;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * In-memory prefix index over customer names and emails for type-ahead.
+ *
+ * Terms are kept in a sorted skip list keyed by {@code term + '\0' + id}, so a
+ * prefix lookup is one ordered seek followed by a short scan. Readers never
+ * lock; writers are serialized so a customer's terms are replaced as a unit.
+ * The index is built from a streaming read before the server starts taking
+ * requests and is then kept current from {@link CustomerChangedEvent}s and
+ * {@link CustomersCreatedEvent}s, and from {@link CustomerInvalidationEvent}s
+ * for other instances' writes. A reload builds a fresh index on the side,
+ * without holding up writers, then replays the rows written meanwhile onto
+ * it and swaps it in whole, so readers keep getting full answers from the
+ * previous one until then.
+ */
+@Component
+public class CustomerPrefixIndex implements SmartInitializingSingleton {
+
+    private static final char KEY_SEPARATOR = '\0';
+
+    private record Index(ConcurrentNavigableMap<String, CustomerSuggestion> terms,
+                         Map<Integer, CustomerSuggestion> byId) {
+        Index() {
+            this(new ConcurrentSkipListMap<>(), new ConcurrentHashMap<>());
+        }
+    }
+
+    private volatile Index index = new Index();
+
+    // reloads take turns; the ids written while one reads the table are kept here
+    private final Object reloadLock = new Object();
+    private Set<Integer> changedDuringReload;
+
+    private final CustomerDao customerDao;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxResults;
+
+    public CustomerPrefixIndex(@Qualifier("jdbc") CustomerDao customerDao,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${customer.autocomplete.max-results:10}") int maxResults) {
+        this.customerDao = customerDao;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.maxResults = maxResults;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        reload();
+    }
+
+    private Index load() {
+        Index loaded = new Index();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Customer> customers = customerDao.streamAllCustomers()) {
+                customers.forEach(customer -> put(loaded, suggestionOf(customer)));
+            }
+        });
+        return loaded;
+    }
+
+    public List<CustomerSuggestion> suggest(String prefix, Integer limit) {
+        if (prefix == null || prefix.isBlank()) {
+            throw new RequestValidationException("prefix must not be blank");
+        }
+        int cap = limit == null ? maxResults : Math.min(Math.max(limit, 1), maxResults);
+        String from = normalize(prefix);
+
+        // a customer can match on name, surname and email; report it once
+        Map<Integer, CustomerSuggestion> matches = new LinkedHashMap<>();
+        for (Map.Entry<String, CustomerSuggestion> entry : index.terms().tailMap(from, true).entrySet()) {
+            if (!entry.getKey().startsWith(from) || matches.size() >= cap) {
+                break;
+            }
+            matches.putIfAbsent(entry.getValue().id(), entry.getValue());
+        }
+        return new ArrayList<>(matches.values());
+    }
+
+    @EventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        switch (event.type()) {
+            case CREATED, UPDATED -> put(event.customer());
+            case DELETED -> remove(event.customerId());
+            default -> {
+            }
+        }
+    }
+
+    @EventListener
+    public synchronized void onCustomersCreated(CustomersCreatedEvent event) {
+        event.customers().forEach(this::put);
+    }
+
+    // the event only carries an id, so re-read the row, or everything on a flush
+    @EventListener
+    public void onCustomerInvalidated(CustomerInvalidationEvent event) {
+        if (event.isFlush()) {
+            reload();
+            return;
+        }
+        customerDao.selectCustomerById(event.customerId())
+                .ifPresentOrElse(this::put, () -> remove(event.customerId()));
+    }
+
+    void reload() {
+        synchronized (reloadLock) {
+            synchronized (this) {
+                changedDuringReload = new HashSet<>();
+            }
+            try {
+                Index loaded = load();
+                synchronized (this) {
+                    // the live index holds the latest state of every row written during the read
+                    for (Integer customerId : changedDuringReload) {
+                        CustomerSuggestion latest = index.byId().get(customerId);
+                        if (latest == null) {
+                            remove(loaded, customerId);
+                        } else {
+                            put(loaded, latest);
+                        }
+                    }
+                    index = loaded;
+                }
+            } finally {
+                synchronized (this) {
+                    changedDuringReload = null;
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return index.byId().size();
+    }
+
+    synchronized void put(Customer customer) {
+        put(index, suggestionOf(customer));
+        changed(customer.getId());
+    }
+
+    synchronized void remove(Integer customerId) {
+        remove(index, customerId);
+        changed(customerId);
+    }
+
+    private void changed(Integer customerId) {
+        if (changedDuringReload != null) {
+            changedDuringReload.add(customerId);
+        }
+    }
+
+    private static CustomerSuggestion suggestionOf(Customer customer) {
+        return new CustomerSuggestion(
+                customer.getId(),
+                customer.getName(),
+                customer.getEmail()
+        );
+    }
+
+    private static void put(Index index, CustomerSuggestion suggestion) {
+        remove(index, suggestion.id());
+        for (String term : termsOf(suggestion)) {
+            index.terms().put(key(term, suggestion.id()), suggestion);
+        }
+        index.byId().put(suggestion.id(), suggestion);
+    }
+
+    private static void remove(Index index, Integer customerId) {
+        CustomerSuggestion previous = index.byId().remove(customerId);
+        if (previous == null) {
+            return;
+        }
+        for (String term : termsOf(previous)) {
+            index.terms().remove(key(term, customerId));
+        }
+    }
+
+    // the full name, every word of it, and the email
+    private static Set<String> termsOf(CustomerSuggestion suggestion) {
+        Set<String> result = new HashSet<>();
+        if (suggestion.name() != null) {
+            String name = normalize(suggestion.name());
+            result.add(name);
+            for (String word : name.split("\\s+")) {
+                if (!word.isEmpty()) {
+                    result.add(word);
+                }
+            }
+        }
+        if (suggestion.email() != null) {
+            result.add(normalize(suggestion.email()));
+        }
+        return result;
+    }
+
+    private static String key(String term, Integer customerId) {
+        return term + KEY_SEPARATOR + customerId;
+    }
+
+    private static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,163 @@
+package com.serikscode.service;
+
+import com.github.javafaker.Faker;
+import com.github.javafaker.Name;
+import com.serikscode.customer.CustomerInvalidationEvent;
+import com.serikscode.customer.Gender;
+import com.serikscode.utills.CsvUtils;
+import com.serikscode.utills.PgCopy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Fills the customer table with synthetic customers for load tests, when
+ * started with the {@code seed} profile, e.g.
+ * {@code --spring.profiles.active=seed --customer.seed.count=1000000}.
+ *
+ * Batches are generated with Faker and written with {@code COPY} in
+ * parallel, one connection per worker. Every row shares one password hash,
+ * computed once, so seeded customers can log in with the configured
+ * password without BCrypt dominating the load. Emails carry the run and row
+ * number, so repeated runs never collide.
+ */
+@Component
+@Profile("seed")
+public class CustomerSeeder implements CommandLineRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerSeeder.class);
+
+    private static final String COPY_SQL = """
+            COPY customer (id, name, email, password, age, gender)
+            FROM STDIN (FORMAT csv)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CustomerIdAllocator customerIdAllocator;
+    private final PasswordEncoder passwordEncoder;
+    private final CustomerEmailFilter customerEmailFilter;
+    private final CustomerInvalidationChannel customerInvalidationChannel;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int count;
+    private final int batchSize;
+    private final int threads;
+    private final String password;
+    // Faker is not thread-safe and slow to create, so each worker keeps one
+    private final ThreadLocal<Faker> fakers = ThreadLocal.withInitial(Faker::new);
+
+    public CustomerSeeder(JdbcTemplate jdbcTemplate,
+                          CustomerIdAllocator customerIdAllocator,
+                          PasswordEncoder passwordEncoder,
+                          CustomerEmailFilter customerEmailFilter,
+                          CustomerInvalidationChannel customerInvalidationChannel,
+                          ApplicationEventPublisher eventPublisher,
+                          @Value("${customer.seed.count:100000}") int count,
+                          @Value("${customer.seed.batch-size:5000}") int batchSize,
+                          @Value("${customer.seed.threads:0}") int threads,
+                          @Value("${customer.seed.password:password}") String password) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.customerIdAllocator = customerIdAllocator;
+        this.passwordEncoder = passwordEncoder;
+        this.customerEmailFilter = customerEmailFilter;
+        this.customerInvalidationChannel = customerInvalidationChannel;
+        this.eventPublisher = eventPublisher;
+        this.count = count;
+        this.batchSize = batchSize;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.password = password;
+    }
+
+    @Override
+    public void run(String... args) {
+        long started = System.nanoTime();
+        long seeded = seed(count);
+        long millis = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        LOGGER.info("seeded {} customers in {} ms ({} rows/s)", seeded, millis, seeded * 1000 / millis);
+    }
+
+    /**
+     * Inserts {@code count} customers and returns how many were written.
+     */
+    public long seed(int count) {
+        if (count <= 0) {
+            return 0;
+        }
+        String passwordHash = passwordEncoder.encode(password);
+        String run = Long.toString(System.currentTimeMillis(), 36);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "customer-seeder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<CompletableFuture<Long>> batches = new ArrayList<>();
+            for (int from = 0; from < count; from += batchSize) {
+                int start = from;
+                int size = Math.min(batchSize, count - from);
+                batches.add(CompletableFuture.supplyAsync(
+                        () -> seedBatch(run, start, size, passwordHash),
+                        executor
+                ));
+            }
+            long seeded = batches.stream()
+                    .mapToLong(CompletableFuture::join)
+                    .sum();
+
+            // rows went in without events, as with bulk imports
+            eventPublisher.publishEvent(CustomerInvalidationEvent.flushAll());
+            customerInvalidationChannel.publishFlush();
+            return seeded;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long seedBatch(String run, int start, int size, String passwordHash) {
+        Faker faker = fakers.get();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Integer> ids = customerIdAllocator.nextIds(size);
+
+        StringBuilder data = new StringBuilder(size * 96);
+        List<String> emails = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Name name = faker.name();
+            String firstName = name.firstName();
+            String lastName = name.lastName();
+            String email = "%s.%s.%s.%d@example.com".formatted(
+                    localPart(firstName), localPart(lastName), run, start + i
+            );
+            emails.add(email);
+            data.append(CsvUtils.line(
+                    ids.get(i),
+                    firstName + " " + lastName,
+                    email,
+                    passwordHash,
+                    random.nextInt(16, 99),
+                    random.nextBoolean() ? Gender.MALE : Gender.FEMALE
+            ));
+        }
+
+        long rows = PgCopy.copyIn(jdbcTemplate, COPY_SQL, data.toString());
+        emails.forEach(customerEmailFilter::add);
+        return rows;
+    }
+
+    private static String localPart(String name) {
+        return name.toLowerCase(Locale.ROOT).replaceAll("[^a-z]", "");
+    }
+}
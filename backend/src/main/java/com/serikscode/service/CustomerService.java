@@ -1,24 +1,51 @@
 package com.serikscode.service;
 
 import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerChange;
+import com.serikscode.customer.CustomerChangeCursor;
+import com.serikscode.customer.CustomerChangedEvent;
+import com.serikscode.customer.CustomerChangedEvent.ChangeType;
+import com.serikscode.customer.CustomerCursor;
+import com.serikscode.customer.CustomerEmailChangedEvent;
+import com.serikscode.customer.CustomerField;
+import com.serikscode.customer.CustomerFilter;
+import com.serikscode.customer.CustomerQuery;
 import com.serikscode.customer.CustomerRegistrationRequest;
+import com.serikscode.customer.CustomerSort;
+import com.serikscode.customer.CustomerUpdateRequest;
+import com.serikscode.customer.PatchedCustomer;
+import com.serikscode.dto.CustomerBatch;
+import com.serikscode.dto.CustomerChanges;
 import com.serikscode.dto.CustomerDTO;
+import com.serikscode.dto.CustomerPage;
+import com.serikscode.exception.ChangeHistoryExpiredException;
 import com.serikscode.exception.DuplicateResourseException;
+import com.serikscode.exception.PreconditionFailedException;
 import com.serikscode.exception.RequestValidationException;
 import com.serikscode.exception.ResourceNotFoundException;
 import com.serikscode.repository.CustomerDao;
 import com.serikscode.s3.S3Buckets;
 import com.serikscode.s3.S3Service;
+import com.serikscode.utills.CustomerCursorCodec;
 import com.serikscode.utills.CustomerDTOMapper;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,14 +56,25 @@ public class CustomerService {
     private final PasswordEncoder passwordEncoder;
     private final S3Service s3Service;
     private final S3Buckets s3Buckets;
+    private final CustomerCursorCodec customerCursorCodec;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CustomerEmailFilter customerEmailFilter;
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final int MAX_BATCH_IDS = 1000;
+    private static final int MAX_UPDATE_ATTEMPTS = 3;
 
-    public CustomerService(@Qualifier("jdbc") CustomerDao customerDao, CustomerDTOMapper customerDTOMapper, PasswordEncoder passwordEncoder, S3Service s3Service, S3Buckets s3Buckets) {
+
+    public CustomerService(@Qualifier("cached") CustomerDao customerDao, CustomerDTOMapper customerDTOMapper, PasswordEncoder passwordEncoder, S3Service s3Service, S3Buckets s3Buckets, CustomerCursorCodec customerCursorCodec, ApplicationEventPublisher eventPublisher, CustomerEmailFilter customerEmailFilter) {
         this.customerDao = customerDao;
         this.customerDTOMapper = customerDTOMapper;
         this.passwordEncoder = passwordEncoder;
         this.s3Service = s3Service;
         this.s3Buckets = s3Buckets;
+        this.customerCursorCodec = customerCursorCodec;
+        this.eventPublisher = eventPublisher;
+        this.customerEmailFilter = customerEmailFilter;
     }
 
     public List<CustomerDTO> getAllCustomer(){
@@ -46,6 +84,103 @@ public class CustomerService {
                 .collect(Collectors.toList());
     }
 
+    public List<CustomerDTO> getCustomers(CustomerFilter filter, CustomerSort sort, Set<CustomerField> fields){
+        CustomerQuery query = new CustomerQuery(filter, sort, null, null, fields);
+        return  customerDao.selectCustomers(query)
+                .stream()
+                .map(customer -> customerDTOMapper.apply(customer, fields))
+                .collect(Collectors.toList());
+    }
+
+    public CustomerPage getCustomersPage(CustomerFilter filter,
+                                         CustomerSort sort,
+                                         String after,
+                                         int limit,
+                                         Set<CustomerField> fields){
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new RequestValidationException(
+                    "limit must be between 1 and %s".formatted(MAX_PAGE_SIZE)
+            );
+        }
+        CustomerCursor cursor = after == null ? null : customerCursorCodec.decode(after, sort);
+
+        // fetch one extra row to learn whether another page exists
+        List<Customer> customers = customerDao.selectCustomers(
+                new CustomerQuery(filter, sort, cursor, limit + 1, fields)
+        );
+        boolean hasNext = customers.size() > limit;
+        if (hasNext) {
+            customers = customers.subList(0, limit);
+        }
+
+        String nextCursor = hasNext
+                ? customerCursorCodec.encode(sort, customers.get(customers.size() - 1))
+                : null;
+
+        return new CustomerPage(
+                customers.stream()
+                        .map(customer -> customerDTOMapper.apply(customer, fields))
+                        .collect(Collectors.toList()),
+                nextCursor
+        );
+    }
+
+    /**
+     * Changes after the {@code since} cursor, or every customer when it is null.
+     * Once tombstones past the cursor have been pruned its deletes can no longer
+     * be reported, and the client has to start again without a cursor.
+     */
+    public CustomerChanges getChangesSince(String since, int limit){
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new RequestValidationException(
+                    "limit must be between 1 and %s".formatted(MAX_PAGE_SIZE)
+            );
+        }
+        CustomerChangeCursor cursor = since == null
+                ? CustomerChangeCursor.START
+                : customerCursorCodec.decodeChanges(since);
+
+        // one extra row tells us whether the client has to come back for more
+        List<CustomerChange> changes = customerDao.selectChangesSince(cursor, limit + 1);
+        // read after the changes: a prune in between shows up here rather than as a lost delete
+        if (since != null && cursor.isBefore(customerDao.selectTombstoneHorizon())) {
+            throw new ChangeHistoryExpiredException(
+                    "changes since this cursor are no longer kept, sync again without since"
+            );
+        }
+        boolean hasMore = changes.size() > limit;
+        if (hasMore) {
+            changes = changes.subList(0, limit);
+        }
+
+        List<CustomerDTO> changed = new ArrayList<>();
+        List<Integer> deletedIds = new ArrayList<>();
+        for (CustomerChange change : changes) {
+            if (change.isDeleted()) {
+                deletedIds.add(change.customerId());
+            } else {
+                changed.add(customerDTOMapper.apply(change.customer()));
+            }
+        }
+        CustomerChangeCursor next = changes.isEmpty() ? cursor : changes.get(changes.size() - 1).position();
+        return new CustomerChanges(changed, deletedIds, customerCursorCodec.encode(next), hasMore);
+    }
+
+    public List<CustomerDTO> searchCustomers(String query, int limit){
+        if (query == null || query.isBlank()) {
+            throw new RequestValidationException("search query must not be blank");
+        }
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS) {
+            throw new RequestValidationException(
+                    "limit must be between 1 and %s".formatted(MAX_SEARCH_RESULTS)
+            );
+        }
+        return customerDao.searchCustomers(query.trim(), limit)
+                .stream()
+                .map(customer -> customerDTOMapper.apply(customer, CustomerField.ALL))
+                .collect(Collectors.toList());
+    }
+
     public CustomerDTO getCustomerById(Integer id){
         return customerDao.selectCustomerById(id)
                 .map(customerDTOMapper)
@@ -53,48 +188,139 @@ public class CustomerService {
                 new ResourceNotFoundException("customer with id %s not found".formatted(id)));
     }
 
-    public void addCustomer(CustomerRegistrationRequest customerRegistrationRequest){
+    public CustomerBatch getCustomersByIds(List<Integer> ids){
+        if (ids == null || ids.isEmpty()) {
+            throw new RequestValidationException("ids must not be empty");
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new RequestValidationException("ids must not contain null");
+        }
+        Set<Integer> requested = new LinkedHashSet<>(ids);
+        if (requested.size() > MAX_BATCH_IDS) {
+            throw new RequestValidationException(
+                    "at most %s ids can be requested at once".formatted(MAX_BATCH_IDS)
+            );
+        }
+
+        Map<Integer, Customer> found = customerDao.selectCustomersByIds(requested)
+                .stream()
+                .collect(Collectors.toMap(Customer::getId, Function.identity()));
+
+        // answer in the order asked for, reporting the ids that did not resolve
+        List<CustomerDTO> customers = new ArrayList<>(found.size());
+        List<Integer> missingIds = new ArrayList<>();
+        for (Integer id : requested) {
+            Customer customer = found.get(id);
+            if (customer == null) {
+                missingIds.add(id);
+            } else {
+                customers.add(customerDTOMapper.apply(customer));
+            }
+        }
+        return new CustomerBatch(customers, missingIds);
+    }
+
+    public CustomerDTO getCustomerById(Integer id, Set<CustomerField> fields){
+        return customerDao.selectCustomerById(id, fields)
+                .map(customer -> customerDTOMapper.apply(customer, fields))
+                .orElseThrow(()->
+                new ResourceNotFoundException("customer with id %s not found".formatted(id)));
+    }
+
+    public Integer addCustomer(CustomerRegistrationRequest customerRegistrationRequest){
 
-        // check if email exists
-        if(customerDao.existsPersonWithEmail(customerRegistrationRequest.email())){
+        Customer customer = new Customer(
+                customerRegistrationRequest.name(),
+                customerRegistrationRequest.email(),
+                passwordEncoder.encode(customerRegistrationRequest.password()),
+                customerRegistrationRequest.age(),
+                customerRegistrationRequest.gender()
+        );
+        // one statement both checks the email and inserts, so there is no window to race in
+        if (!customerDao.insertCustomerIfEmailAbsent(customer)) {
             throw new DuplicateResourseException("customer with  %s email is already registered".formatted(customerRegistrationRequest.email()));
         }
 
-        customerDao.insertCustomer(
-                new Customer(
-                        customerRegistrationRequest.name(),
-                        customerRegistrationRequest.email(),
-                        passwordEncoder.encode(customerRegistrationRequest.password()),
-                        customerRegistrationRequest.age(),
-                        customerRegistrationRequest.gender()
-                )
+        eventPublisher.publishEvent(
+                new CustomerChangedEvent(ChangeType.CREATED, customer.getId(), customer)
         );
+        return customer.getId();
+    }
 
+    public void deleteCustomerById(Integer id){
+        // the affected-row count doubles as the existence check
+        if (!customerDao.deleteCustomer(id)) {
+            throw customerNotFound(id);
+        }
 
+        eventPublisher.publishEvent(
+                new CustomerChangedEvent(ChangeType.DELETED, id, null)
+        );
     }
 
-    public void deleteCustomerById(Integer id){
+    // only emails the filter may have seen cost a query
+    private boolean isEmailTaken(String email) {
+        if (!customerEmailFilter.mightContain(email)) {
+            return false;
+        }
+        boolean taken = customerDao.existsPersonWithEmail(email);
+        if (!taken) {
+            customerEmailFilter.recordFalsePositive();
+        }
+        return taken;
+    }
 
-        checkIfCustomerExistsOrThrow(id);
-        customerDao.deleteCustomer(id);
+    private static ResourceNotFoundException customerNotFound(Integer id) {
+        return new ResourceNotFoundException(
+                "customer with id %s not found".formatted(id)
+        );
     }
 
-    private void checkIfCustomerExistsOrThrow(Integer id) {
-        if(!customerDao.existsPersonWithId(id)){
-            throw new ResourceNotFoundException(
-                    "customer with id %s not found".formatted(id)
-            );
+    public Long updateCustomer(Integer id, CustomerRegistrationRequest customerRegistrationRequest) {
+        return updateCustomer(id, customerRegistrationRequest, null);
+    }
+
+    /**
+     * Updates the customer and returns its new version. With an expected
+     * version, from {@code If-Match}, any other version fails the update.
+     * Without one, a write that lands between our read and our update makes
+     * us read again and reapply the request, so neither change is lost; if
+     * every attempt loses, the update fails as a conflict, since the client
+     * stated no precondition.
+     */
+    public Long updateCustomer(Integer id, CustomerRegistrationRequest customerRegistrationRequest, Long expectedVersion) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return applyUpdate(id, customerRegistrationRequest, expectedVersion);
+            } catch (OptimisticLockingFailureException e) {
+                if (expectedVersion != null) {
+                    throw new PreconditionFailedException(
+                            "customer with id [%s] was changed concurrently".formatted(id)
+                    );
+                }
+                if (attempt == MAX_UPDATE_ATTEMPTS) {
+                    throw new DuplicateResourseException(
+                            "customer with id [%s] kept being changed concurrently, try again".formatted(id)
+                    );
+                }
+            }
         }
     }
 
-    public void updateCustomer(Integer id, CustomerRegistrationRequest customerRegistrationRequest) {
+    private Long applyUpdate(Integer id, CustomerRegistrationRequest customerRegistrationRequest, Long expectedVersion) {
         // TODO: for JPA use .getReferenceById(customerId) as it does does not bring object into memory and instead a reference
         Customer customer = customerDao.selectCustomerById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(
                         "customer with id [%s] not found".formatted(id)
                 ));
+        if (expectedVersion != null && !expectedVersion.equals(customer.getVersion())) {
+            throw new PreconditionFailedException(
+                    "customer with id [%s] is no longer at the version given in If-Match".formatted(id)
+            );
+        }
 
         boolean changes = false;
+        String previousEmail = null;
 
         if (customerRegistrationRequest.name() != null && !customerRegistrationRequest.name().equals(customer.getName())) {
             customer.setName(customerRegistrationRequest.name());
@@ -107,11 +333,12 @@ public class CustomerService {
         }
 
         if (customerRegistrationRequest.email() != null && !customerRegistrationRequest.email().equals(customer.getEmail())) {
-            if (customerDao.existsPersonWithEmail(customerRegistrationRequest.email())) {
+            if (isEmailTaken(customerRegistrationRequest.email())) {
                 throw new DuplicateResourseException(
                         "email already taken"
                 );
             }
+            previousEmail = customer.getEmail();
             customer.setEmail(customerRegistrationRequest.email());
             changes = true;
         }
@@ -124,41 +351,102 @@ public class CustomerService {
             throw new RequestValidationException("no data changes found");
         }
 
-        customerDao.updateCustomer(customer);
+        try {
+            customerDao.updateCustomer(customer);
+        } catch (DuplicateKeyException e) {
+            throw new DuplicateResourseException(
+                    "email already taken"
+            );
+        }
+
+        eventPublisher.publishEvent(
+                new CustomerChangedEvent(ChangeType.UPDATED, id, customer)
+        );
+        if (previousEmail != null) {
+            eventPublisher.publishEvent(
+                    new CustomerEmailChangedEvent(id, previousEmail, customer.getEmail())
+            );
+        }
+        return customer.getVersion();
+    }
+
+    /**
+     * Applies the non-null fields in one statement, without reading the
+     * customer first; the unique constraint catches a taken email.
+     */
+    public CustomerDTO patchCustomer(Integer id, CustomerUpdateRequest update) {
+        if (update == null || update.isEmpty()) {
+            throw new RequestValidationException("no data changes found");
+        }
+        if (StringUtils.isWhitespace(update.name()) || StringUtils.isWhitespace(update.email())) {
+            throw new RequestValidationException("name and email must not be blank");
+        }
+
+        PatchedCustomer patched;
+        try {
+            patched = customerDao.patchCustomer(id, update)
+                    .orElseThrow(() -> new ResourceNotFoundException(
+                            "customer with id [%s] not found".formatted(id)
+                    ));
+        } catch (DuplicateKeyException e) {
+            throw new DuplicateResourseException(
+                    "email already taken"
+            );
+        }
+
+        Customer customer = patched.customer();
+        eventPublisher.publishEvent(
+                new CustomerChangedEvent(ChangeType.UPDATED, id, customer)
+        );
+        if (patched.emailChanged()) {
+            eventPublisher.publishEvent(
+                    new CustomerEmailChangedEvent(id, patched.previousEmail(), customer.getEmail())
+            );
+        }
+        return customerDTOMapper.apply(customer);
     }
 
     public void uploadCustomerProfileImage(Integer customerId,
                                            MultipartFile file) {
-        checkIfCustomerExistsOrThrow(customerId);
+        // upload first so the row never points at a missing object; the
+        // update then reports whether the customer exists, and the rare
+        // upload for an unknown customer is removed again
         String profileImageId = UUID.randomUUID().toString();
+        String key = "profile-images/%s/%s".formatted(customerId, profileImageId);
         try {
             s3Service.putObject(
                     s3Buckets.getCustomer(),
-                    "profile-images/%s/%s".formatted(customerId, profileImageId),
+                    key,
                     file.getBytes()
             );
         } catch (IOException e) {
             throw new RuntimeException("failed to upload profile image", e);
         }
 
-        customerDao.updateCustomerProfileImageId(profileImageId, customerId);
+        if (!customerDao.updateCustomerProfileImageId(profileImageId, customerId)) {
+            s3Service.deleteObject(s3Buckets.getCustomer(), key);
+            throw customerNotFound(customerId);
+        }
+
+        eventPublisher.publishEvent(
+                new CustomerChangedEvent(ChangeType.PROFILE_IMAGE_UPDATED, customerId, null)
+        );
     }
 
     public byte[] getCustomerProfileImage(Integer customerId) {
-        var customer = customerDao.selectCustomerById(customerId)
-                .map(customerDTOMapper)
-                .orElseThrow(() -> new ResourceNotFoundException(
-                        "customer with id [%s] not found".formatted(customerId)
-                ));
-
-        if (StringUtils.isBlank(customer.profileImageId())) {
-            throw new ResourceNotFoundException(
-                    "customer with id [%s] profile image not found".formatted(customerId));
-        }
+        // reads the one column; only a miss costs a second query, to tell
+        // a missing customer from one without an image
+        String profileImageId = customerDao.selectProfileImageId(customerId)
+                .filter(StringUtils::isNotBlank)
+                .orElseThrow(() -> customerDao.existsPersonWithId(customerId)
+                        ? new ResourceNotFoundException(
+                                "customer with id [%s] profile image not found".formatted(customerId))
+                        : new ResourceNotFoundException(
+                                "customer with id [%s] not found".formatted(customerId)));
 
         byte[] profileImage = s3Service.getObject(
                 s3Buckets.getCustomer(),
-                "profile-images/%s/%s".formatted(customerId, customer.profileImageId())
+                "profile-images/%s/%s".formatted(customerId, profileImageId)
         );
         return profileImage;
     }
@@ -0,0 +1,78 @@
+package com.serikscode.service;
+
+import com.serikscode.repository.CustomerDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drops tombstones of customers deleted longer than the retention ago, so the
+ * table does not grow with every delete ever made. Each prune also moves the
+ * tombstone horizon, and a client whose change cursor is behind it gets
+ * {@code 410 Gone} and syncs again from scratch. Every instance prunes on its
+ * own timer; the delete is idempotent.
+ */
+@Component
+public class CustomerTombstonePruner implements SmartInitializingSingleton, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerTombstonePruner.class);
+
+    private final CustomerDao customerDao;
+    private final Duration retention;
+    private final Duration interval;
+    private final ScheduledExecutorService scheduler;
+
+    public CustomerTombstonePruner(@Qualifier("cached") CustomerDao customerDao,
+                                   @Value("${customer.changes.tombstone-retention:30d}") Duration retention,
+                                   @Value("${customer.changes.prune-interval:1h}") Duration interval) {
+        this.customerDao = customerDao;
+        this.retention = retention;
+        this.interval = interval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "customer-tombstone-pruner");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        scheduler.scheduleWithFixedDelay(
+                this::pruneQuietly,
+                interval.toMillis(),
+                interval.toMillis(),
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    public int prune() {
+        int pruned = customerDao.deleteTombstonesBefore(Instant.now().minus(retention));
+        if (pruned > 0) {
+            LOGGER.info("pruned {} customer tombstones older than {}", pruned, retention);
+        }
+        return pruned;
+    }
+
+    private void pruneQuietly() {
+        try {
+            prune();
+        } catch (RuntimeException e) {
+            LOGGER.warn("customer tombstone prune failed", e);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.serikscode.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerChangedEvent;
+import com.serikscode.customer.CustomerField;
+import com.serikscode.customer.CustomerInvalidationEvent;
+import com.serikscode.customer.CustomersCreatedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Versions backing the customer ETags.
+ *
+ * The list tag comes from a table-wide counter that every
+ * {@link CustomerChangedEvent} and {@link CustomersCreatedEvent} bumps. The
+ * counter lives in memory, so the tag is prefixed with a per-process epoch and
+ * a restart can only cause a cache miss, never a stale 304. Changes made by other instances arrive as
+ * {@link CustomerInvalidationEvent}s; a flush starts a new epoch, since the
+ * changes it stands for are unknown.
+ *
+ * A single customer's tag is its {@code version} column, which the
+ * {@code If-Match} check on updates compares against; a sparse read's tag
+ * also names its field set, so projections never share a validator. The
+ * last version seen for each recently used row is remembered, so
+ * {@code If-None-Match} can usually be answered without touching the
+ * database; a row that has been evicted is simply read again.
+ */
+@Component
+public class CustomerVersionTracker {
+
+    private static final long DELETED = -1L;
+    private static final char FIELDS_SEPARATOR = ':';
+    private static final AtomicLong EPOCHS = new AtomicLong();
+
+    private volatile String epoch = newEpoch();
+    private final AtomicLong tableVersion = new AtomicLong();
+    private final Cache<Integer, Long> rowVersions;
+
+    public CustomerVersionTracker(@Value("${customer.etag.max-tracked-rows:100000}") long maxTrackedRows) {
+        this.rowVersions = Caffeine.newBuilder()
+                .maximumSize(maxTrackedRows)
+                .build();
+    }
+
+    @EventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        tableVersion.incrementAndGet();
+        if (event.customerId() == null) {
+            return;
+        }
+        Customer customer = event.customer();
+        if (event.type() == CustomerChangedEvent.ChangeType.DELETED) {
+            rowVersions.put(event.customerId(), DELETED);
+        } else if (customer != null && customer.getVersion() != null) {
+            remember(event.customerId(), customer.getVersion());
+        } else {
+            rowVersions.invalidate(event.customerId());
+        }
+    }
+
+    @EventListener
+    public void onCustomersCreated(CustomersCreatedEvent event) {
+        tableVersion.incrementAndGet();
+        for (Customer customer : event.customers()) {
+            if (customer.getVersion() != null) {
+                remember(customer.getId(), customer.getVersion());
+            }
+        }
+    }
+
+    @EventListener
+    public void onCustomerInvalidated(CustomerInvalidationEvent event) {
+        tableVersion.incrementAndGet();
+        if (event.isFlush()) {
+            rowVersions.invalidateAll();
+            epoch = newEpoch();
+            return;
+        }
+        rowVersions.invalidate(event.customerId());
+    }
+
+    public long listVersion() {
+        return tableVersion.get();
+    }
+
+    public String listETag() {
+        return listETag(tableVersion.get(), false);
+    }
+
+    /**
+     * Tag for the list as it was at {@code version}. Strong tags must differ
+     * between content codings, so the gzip form gets its own.
+     */
+    public String listETag(long version, boolean gzip) {
+        return "\"" + epoch + "-" + (gzip ? "list-gzip" : "list") + "-" + version + "\"";
+    }
+
+    /**
+     * The tag for the last version seen of the customer, or {@code null} when
+     * none has been seen or the customer was deleted, in which case the
+     * caller has to read the row.
+     */
+    public String customerETag(Integer customerId) {
+        return customerETag(customerId, CustomerField.ALL);
+    }
+
+    /**
+     * As {@link #customerETag(Integer)}, for the representation limited to
+     * {@code fields}.
+     */
+    public String customerETag(Integer customerId, Set<CustomerField> fields) {
+        Long version = rowVersions.getIfPresent(customerId);
+        if (version == null || version == DELETED) {
+            return null;
+        }
+        return customerETag(version, fields);
+    }
+
+    /**
+     * Tag for a customer read at {@code version}, remembered for later requests.
+     */
+    public String customerETag(Integer customerId, long version) {
+        return customerETag(customerId, version, CustomerField.ALL);
+    }
+
+    public String customerETag(Integer customerId, long version, Set<CustomerField> fields) {
+        remember(customerId, version);
+        return customerETag(version, fields);
+    }
+
+    /**
+     * The version an {@code If-Match} value stands for, or {@code null} when
+     * it is not one of our customer tags.
+     */
+    public Long parseCustomerETag(String etag) {
+        String value = etag.trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        if (value.length() < 3 || !value.startsWith("\"v") || !value.endsWith("\"")) {
+            return null;
+        }
+        // a sparse read's tag names the same version
+        int end = value.indexOf(FIELDS_SEPARATOR);
+        try {
+            return Long.parseLong(value.substring(2, end < 0 ? value.length() - 1 : end));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // versions only grow, so a slow reader cannot overwrite a newer one
+    private void remember(Integer customerId, long version) {
+        rowVersions.asMap().merge(customerId, version, (known, seen) -> known == DELETED ? known : Math.max(known, seen));
+    }
+
+    // a strong tag names one representation, so a sparse read carries its field set
+    private static String customerETag(long version, Set<CustomerField> fields) {
+        if (fields.containsAll(CustomerField.ALL)) {
+            return "\"v" + version + "\"";
+        }
+        String names = EnumSet.copyOf(fields).stream()
+                .map(CustomerField::getFieldName)
+                .collect(Collectors.joining(","));
+        return "\"v" + version + FIELDS_SEPARATOR + names + "\"";
+    }
+
+    // the counter keeps two flushes within the same millisecond apart
+    private static String newEpoch() {
+        return Long.toString(System.currentTimeMillis(), 36) + "." + EPOCHS.incrementAndGet();
+    }
+}
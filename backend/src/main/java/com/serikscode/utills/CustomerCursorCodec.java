@@ -0,0 +1,80 @@
+package com.serikscode.utills;
+
+import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerChangeCursor;
+import com.serikscode.customer.CustomerCursor;
+import com.serikscode.customer.CustomerField;
+import com.serikscode.customer.CustomerSort;
+import com.serikscode.exception.RequestValidationException;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes the keyset position of a customer page into an opaque cursor,
+ * so clients never depend on how the position is represented. The sort
+ * order is part of the cursor, and a cursor is only accepted for the
+ * order it was issued for. Change feed positions are encoded the same way.
+ */
+@Component
+public class CustomerCursorCodec {
+
+    private static final String SEPARATOR = "|";
+    private static final String CHANGES = "changes";
+
+    public String encode(CustomerSort sort, Customer last) {
+        String value = switch (sort.field()) {
+            case NAME -> last.getName();
+            case AGE -> String.valueOf(last.getAge());
+            default -> "";
+        };
+        String raw = sort + SEPARATOR + last.getId() + SEPARATOR + value;
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public CustomerCursor decode(String cursor, CustomerSort sort) {
+        try {
+            String decoded = new String(
+                    Base64.getUrlDecoder().decode(cursor),
+                    StandardCharsets.UTF_8
+            );
+            String[] parts = decoded.split("\\|", 3);
+            if (parts.length != 3 || !parts[0].equals(sort.toString())) {
+                throw new IllegalArgumentException(decoded);
+            }
+            Integer lastId = Integer.valueOf(parts[1]);
+            Object lastValue = sort.field() == CustomerField.AGE
+                    ? Integer.valueOf(parts[2])
+                    : sort.field() == CustomerField.NAME ? parts[2] : null;
+            return new CustomerCursor(lastId, lastValue);
+        } catch (IllegalArgumentException e) {
+            throw new RequestValidationException("invalid cursor [%s]".formatted(cursor));
+        }
+    }
+
+    public String encode(CustomerChangeCursor position) {
+        String raw = CHANGES + SEPARATOR + position.changeXid() + SEPARATOR + position.changeVersion();
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public CustomerChangeCursor decodeChanges(String cursor) {
+        try {
+            String decoded = new String(
+                    Base64.getUrlDecoder().decode(cursor),
+                    StandardCharsets.UTF_8
+            );
+            String[] parts = decoded.split("\\|", 3);
+            if (parts.length != 3 || !parts[0].equals(CHANGES)) {
+                throw new IllegalArgumentException(decoded);
+            }
+            return new CustomerChangeCursor(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new RequestValidationException("invalid cursor [%s]".formatted(cursor));
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package com.serikscode.utills;
 
 import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerField;
 import com.serikscode.dto.CustomerDTO;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Service;
 
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -23,7 +25,27 @@ public class CustomerDTOMapper implements Function<Customer, CustomerDTO> {
                         .collect(Collectors.toList())
                 ,
                 customer.getUsername(),
-                customer.getProfileImageId()
+                customer.getProfileImageId(),
+                customer.getVersion()
+        );
+    }
+
+    public CustomerDTO apply(Customer customer, Set<CustomerField> fields) {
+        return new CustomerDTO(
+                fields.contains(CustomerField.ID) ? customer.getId() : null,
+                fields.contains(CustomerField.NAME) ? customer.getName() : null,
+                fields.contains(CustomerField.EMAIL) ? customer.getEmail() : null,
+                fields.contains(CustomerField.GENDER) ? customer.getGender() : null,
+                fields.contains(CustomerField.AGE) ? customer.getAge() : null,
+                fields.contains(CustomerField.ROLES)
+                        ? customer.getAuthorities().stream()
+                        .map(GrantedAuthority::getAuthority)
+                        .collect(Collectors.toList())
+                        : null,
+                fields.contains(CustomerField.USERNAME) ? customer.getUsername() : null,
+                fields.contains(CustomerField.PROFILE_IMAGE_ID) ? customer.getProfileImageId() : null,
+                // sparse reads do not select the version
+                null
         );
     }
 }
@@ -0,0 +1,45 @@
+package com.serikscode.utills;
+
+import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerField;
+import com.serikscode.customer.Gender;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Set;
+
+/**
+ * Maps a row selected with {@link CustomerField#selectList(Set)}, filling only
+ * the columns that were selected and leaving everything else unset.
+ */
+public class CustomerProjectionRowMapper implements RowMapper<Customer> {
+
+    private final Set<String> columns;
+
+    public CustomerProjectionRowMapper(Set<CustomerField> fields) {
+        this.columns = CustomerField.columnsOf(fields);
+    }
+
+    @Override
+    public Customer mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Customer customer = new Customer();
+        customer.setId(rs.getInt("id"));
+        if (columns.contains("name")) {
+            customer.setName(rs.getString("name"));
+        }
+        if (columns.contains("email")) {
+            customer.setEmail(rs.getString("email"));
+        }
+        if (columns.contains("age")) {
+            customer.setAge(rs.getInt("age"));
+        }
+        if (columns.contains("gender")) {
+            customer.setGender(Gender.valueOf(rs.getString("gender")));
+        }
+        if (columns.contains("profile_image_id")) {
+            customer.setProfileImageId(rs.getString("profile_image_id"));
+        }
+        return customer;
+    }
+}
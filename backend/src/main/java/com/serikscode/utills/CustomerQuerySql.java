@@ -0,0 +1,86 @@
+package com.serikscode.utills;
+
+import com.serikscode.customer.CustomerCursor;
+import com.serikscode.customer.CustomerField;
+import com.serikscode.customer.CustomerFilter;
+import com.serikscode.customer.CustomerQuery;
+import com.serikscode.customer.CustomerSort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compiles a {@link CustomerQuery} to parameterized SQL. Every predicate and
+ * ORDER BY produced here is backed by an index from V3__Add_Customer_Query_Indexes.
+ */
+public record CustomerQuerySql(String sql, Object[] args) {
+
+    public static CustomerQuerySql of(CustomerQuery query) {
+        List<String> conditions = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+
+        CustomerFilter filter = query.filter();
+        if (filter.minAge() != null) {
+            conditions.add("age >= ?");
+            args.add(filter.minAge());
+        }
+        if (filter.maxAge() != null) {
+            conditions.add("age <= ?");
+            args.add(filter.maxAge());
+        }
+        if (filter.gender() != null) {
+            conditions.add("gender = ?");
+            args.add(filter.gender().name());
+        }
+        if (filter.namePrefix() != null) {
+            conditions.add("lower(name) LIKE ? ESCAPE '\\'");
+            args.add(likePrefix(filter.namePrefix()));
+        }
+        if (filter.emailPrefix() != null) {
+            conditions.add("lower(email) LIKE ? ESCAPE '\\'");
+            args.add(likePrefix(filter.emailPrefix()));
+        }
+
+        CustomerSort sort = query.sort();
+        String direction = sort.descending() ? "DESC" : "ASC";
+        CustomerCursor after = query.after();
+        if (after != null) {
+            String comparison = sort.descending() ? "<" : ">";
+            if (sort.isById()) {
+                conditions.add("id %s ?".formatted(comparison));
+                args.add(after.lastId());
+            } else {
+                // row comparison so Postgres can seek straight into the (column, id) index
+                conditions.add("(%s, id) %s (?, ?)".formatted(sort.field().getColumn(), comparison));
+                args.add(after.lastSortValue());
+                args.add(after.lastId());
+            }
+        }
+
+        StringBuilder sql = new StringBuilder()
+                .append("SELECT ").append(CustomerField.selectList(query.readFields()))
+                .append("\nFROM customer");
+        if (!conditions.isEmpty()) {
+            sql.append("\nWHERE ").append(String.join("\n  AND ", conditions));
+        }
+        sql.append("\nORDER BY ");
+        if (!sort.isById()) {
+            sql.append(sort.field().getColumn()).append(' ').append(direction).append(", ");
+        }
+        sql.append("id ").append(direction);
+        if (query.limit() != null) {
+            sql.append("\nLIMIT ?");
+            args.add(query.limit());
+        }
+
+        return new CustomerQuerySql(sql.toString(), args.toArray());
+    }
+
+    public static String likePrefix(String prefix) {
+        return prefix.toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+    }
+}
@@ -21,6 +21,7 @@ public class CustomerRowMapper implements RowMapper<Customer> {
                 Gender.valueOf(rs.getString("gender")),
                 rs.getString("profile_image_id")
         );
+        customer.setVersion(rs.getLong("version"));
         return customer;
     }
 }
@@ -0,0 +1,29 @@
+package com.serikscode.utills;
+
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+
+public final class PgCopy {
+
+    private PgCopy() {
+    }
+
+    // runs a COPY ... FROM STDIN with the given data and returns the rows written
+    public static long copyIn(JdbcTemplate jdbcTemplate, String sql, String data) {
+        Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class)
+                        .getCopyAPI()
+                        .copyIn(sql, new StringReader(data));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return rows == null ? 0 : rows;
+    }
+}
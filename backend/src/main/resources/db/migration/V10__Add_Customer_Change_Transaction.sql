@@ -0,0 +1,54 @@
+-- change_version comes from nextval when a row is written, not when its
+-- transaction commits, so a long transaction can commit a version lower than
+-- one a client has already synced past. Every change also records the id of
+-- the transaction that wrote it; the feed only serves rows whose transaction
+-- is older than the oldest one still running, and orders by
+-- (change_xid, change_version), so nothing can commit behind a client's cursor.
+-- Rows written before this migration predate every cursor and get 0.
+ALTER TABLE customer
+    ADD COLUMN change_xid BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE customer
+    ALTER COLUMN change_xid SET DEFAULT pg_current_xact_id()::text::bigint;
+
+DROP INDEX customer_change_version_idx;
+CREATE INDEX customer_change_position_idx ON customer (change_xid, change_version);
+
+-- deleted_at drives tombstone retention
+ALTER TABLE customer_tombstone
+    ADD COLUMN change_xid BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN deleted_at TIMESTAMPTZ NOT NULL DEFAULT now();
+ALTER TABLE customer_tombstone
+    ALTER COLUMN change_xid SET DEFAULT pg_current_xact_id()::text::bigint;
+
+DROP INDEX customer_tombstone_change_version_idx;
+CREATE INDEX customer_tombstone_change_position_idx ON customer_tombstone (change_xid, change_version);
+CREATE INDEX customer_tombstone_deleted_at_idx ON customer_tombstone (deleted_at);
+
+-- the position of the newest pruned tombstone; a cursor behind it may have
+-- missed a delete, and its client has to sync again from scratch
+CREATE TABLE customer_tombstone_horizon(
+    id BOOLEAN PRIMARY KEY DEFAULT TRUE CHECK (id),
+    change_xid BIGINT NOT NULL,
+    change_version BIGINT NOT NULL
+);
+
+INSERT INTO customer_tombstone_horizon (change_xid, change_version) VALUES (0, 0);
+
+CREATE OR REPLACE FUNCTION customer_bump_change_version() RETURNS trigger AS $$
+BEGIN
+    NEW.change_version := nextval('customer_change_version_sequence');
+    NEW.change_xid := pg_current_xact_id()::text::bigint;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION customer_record_tombstone() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO customer_tombstone (customer_id) VALUES (OLD.id)
+    ON CONFLICT (customer_id)
+        DO UPDATE SET change_version = nextval('customer_change_version_sequence'),
+                      change_xid = pg_current_xact_id()::text::bigint,
+                      deleted_at = now();
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
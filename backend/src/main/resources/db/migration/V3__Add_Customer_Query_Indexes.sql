@@ -0,0 +1,10 @@
+-- keyset pagination and sorting by name or age, ties broken by id
+CREATE INDEX customer_name_id_idx ON customer (name, id);
+CREATE INDEX customer_age_id_idx ON customer (age, id);
+
+-- gender filter combined with an age range or an age sort
+CREATE INDEX customer_gender_age_id_idx ON customer (gender, age, id);
+
+-- case-insensitive prefix search: lower(name) LIKE 'abc%'
+CREATE INDEX customer_lower_name_pattern_idx ON customer (lower(name) text_pattern_ops);
+CREATE INDEX customer_lower_email_pattern_idx ON customer (lower(email) text_pattern_ops);
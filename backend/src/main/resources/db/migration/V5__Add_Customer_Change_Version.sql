@@ -0,0 +1,43 @@
+-- one counter across inserts, updates and deletes, so clients sync from a single number
+CREATE SEQUENCE customer_change_version_sequence;
+
+ALTER TABLE customer
+    ADD COLUMN change_version BIGINT NOT NULL DEFAULT nextval('customer_change_version_sequence');
+
+CREATE INDEX customer_change_version_idx ON customer (change_version);
+
+-- deleted ids, kept so a client that synced before the delete learns about it
+CREATE TABLE customer_tombstone(
+    customer_id BIGINT PRIMARY KEY,
+    change_version BIGINT NOT NULL DEFAULT nextval('customer_change_version_sequence')
+);
+
+CREATE INDEX customer_tombstone_change_version_idx ON customer_tombstone (change_version);
+
+-- triggers rather than application code, so every write path, JDBC, JPA or manual, is covered
+CREATE FUNCTION customer_bump_change_version() RETURNS trigger AS $$
+BEGIN
+    NEW.change_version := nextval('customer_change_version_sequence');
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER customer_change_version_on_update
+    BEFORE UPDATE ON customer
+    FOR EACH ROW
+    WHEN (OLD IS DISTINCT FROM NEW)
+    EXECUTE FUNCTION customer_bump_change_version();
+
+CREATE FUNCTION customer_record_tombstone() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO customer_tombstone (customer_id) VALUES (OLD.id)
+    ON CONFLICT (customer_id)
+        DO UPDATE SET change_version = nextval('customer_change_version_sequence');
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER customer_tombstone_on_delete
+    AFTER DELETE ON customer
+    FOR EACH ROW
+    EXECUTE FUNCTION customer_record_tombstone();
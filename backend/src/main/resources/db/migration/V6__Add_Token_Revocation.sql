@@ -0,0 +1,15 @@
+-- revoked JWTs: one token by id (logout), or every token of a customer
+-- issued up to a cutoff (delete, email change); rows go once the tokens they
+-- cover would have expired anyway
+CREATE TABLE token_revocation(
+    id BIGSERIAL PRIMARY KEY,
+    token_id TEXT,
+    customer_id BIGINT,
+    issued_before TIMESTAMPTZ,
+    expires_at TIMESTAMPTZ NOT NULL,
+    recorded_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    CHECK (token_id IS NOT NULL OR (customer_id IS NOT NULL AND issued_before IS NOT NULL))
+);
+
+CREATE INDEX token_revocation_recorded_at_idx ON token_revocation (recorded_at);
+CREATE INDEX token_revocation_expires_at_idx ON token_revocation (expires_at);
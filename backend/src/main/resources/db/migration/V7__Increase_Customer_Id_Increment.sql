@@ -0,0 +1,5 @@
+-- each nextval now reserves a block of 50 ids, [value, value + 49], which the
+-- application hands out from memory (pooled-lo). Values drawn after this are
+-- 50 apart, so blocks cannot overlap each other, ids issued before, or rows
+-- that still take the column default.
+ALTER SEQUENCE customer_id_sequence INCREMENT BY 50;
@@ -0,0 +1,4 @@
+-- optimistic locking: every update bumps the version and can be made
+-- conditional on the version the writer read
+ALTER TABLE customer
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,14 @@
+-- rows of a bulk import, COPYed in before being merged into customer; the
+-- table only ever holds in-flight imports, so it skips the WAL
+CREATE UNLOGGED TABLE customer_import_staging(
+    job_id UUID NOT NULL,
+    seq BIGINT NOT NULL,
+    id BIGINT NOT NULL,
+    name TEXT NOT NULL,
+    email TEXT NOT NULL,
+    password TEXT NOT NULL,
+    age INT NOT NULL,
+    gender TEXT NOT NULL
+);
+
+CREATE INDEX customer_import_staging_job_seq_idx ON customer_import_staging (job_id, seq);
@@ -0,0 +1,126 @@
+package com.serikscode.benchmark;
+
+import com.serikscode.service.CustomerIdAllocator;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Customer inserts with an id fetched per row, as the JPA mapping did with
+ * {@code allocationSize = 1}, against ids drawn from {@link CustomerIdAllocator}
+ * blocks, one row at a time and as a batch of {@link #BATCH_SIZE}.
+ *
+ * Needs Docker. Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.serikscode.benchmark.CustomerInsertBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerInsertBenchmark {
+
+    private static final int BATCH_SIZE = 50;
+
+    private static final String INSERT = """
+            INSERT INTO customer(id, name, email, password, age, gender)
+            VALUES(?, ?, ?, ?, ?, ?)
+            """;
+
+    private PostgreSQLContainer<?> postgreSQLContainer;
+    private JdbcTemplate jdbcTemplate;
+    private CustomerIdAllocator customerIdAllocator;
+
+    @Setup
+    public void setUp() {
+        postgreSQLContainer = new PostgreSQLContainer<>("postgres:15");
+        postgreSQLContainer.start();
+        // the container URL already carries a query string
+        String url = postgreSQLContainer.getJdbcUrl() + "&reWriteBatchedInserts=true";
+        Flyway.configure().dataSource(
+                url,
+                postgreSQLContainer.getUsername(),
+                postgreSQLContainer.getPassword()
+        ).load().migrate();
+
+        jdbcTemplate = new JdbcTemplate(DataSourceBuilder.create()
+                .url(url)
+                .username(postgreSQLContainer.getUsername())
+                .password(postgreSQLContainer.getPassword())
+                .build());
+        customerIdAllocator = new CustomerIdAllocator(jdbcTemplate);
+    }
+
+    @TearDown
+    public void tearDown() {
+        postgreSQLContainer.stop();
+    }
+
+    @Benchmark
+    public int sequencePerRow() {
+        Long id = jdbcTemplate.queryForObject("SELECT nextval('customer_id_sequence')", Long.class);
+        return insert(id.intValue());
+    }
+
+    @Benchmark
+    public int allocatedId() {
+        return insert(customerIdAllocator.nextId());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int[] sequencePerRowBatch() {
+        List<Integer> ids = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            ids.add(jdbcTemplate.queryForObject("SELECT nextval('customer_id_sequence')", Long.class).intValue());
+        }
+        return insertBatch(ids);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int[] allocatedIdBatch() {
+        return insertBatch(customerIdAllocator.nextIds(BATCH_SIZE));
+    }
+
+    private int insert(int id) {
+        return jdbcTemplate.update(INSERT, id, "Alex", UUID.randomUUID() + "@bench.com", "password", 20, "MALE");
+    }
+
+    private int[] insertBatch(List<Integer> ids) {
+        List<Object[]> rows = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            rows.add(new Object[]{id, "Alex", UUID.randomUUID() + "@bench.com", "password", 20, "MALE"});
+        }
+        return jdbcTemplate.batchUpdate(INSERT, rows);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CustomerInsertBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
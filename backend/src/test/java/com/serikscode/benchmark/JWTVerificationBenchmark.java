@@ -0,0 +1,89 @@
+package com.serikscode.benchmark;
+
+import com.serikscode.jwt.JWTUtil;
+import com.serikscode.jwt.VerifiedToken;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.security.Key;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request token check: the old three-parse path against {@link JWTUtil#verify},
+ * with and without the verified-token cache.
+ *
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.serikscode.benchmark.JWTVerificationBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JWTVerificationBenchmark {
+
+    private static final String SECRET =
+            "foobar_123456789foobar_123456789foobar_123456789foobar_123456789";
+
+    private JWTUtil uncached;
+    private JWTUtil cached;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        uncached = new JWTUtil(0);
+        cached = new JWTUtil(10_000);
+        token = uncached.issueToken("alex@gmail.com", "ROLE_USER");
+    }
+
+    @Benchmark
+    public boolean legacyThreeParses() {
+        // what the filter used to do: getSubject, then isTokenValid -> getSubject + isTokenExpired
+        String subject = legacyClaims(token).getSubject();
+        return legacyClaims(token).getSubject().equals(subject)
+                && !legacyClaims(token).getExpiration().before(Date.from(Instant.now()));
+    }
+
+    @Benchmark
+    public VerifiedToken singleParse() {
+        return uncached.verify(token);
+    }
+
+    @Benchmark
+    public VerifiedToken cachedVerify() {
+        return cached.verify(token);
+    }
+
+    private static Claims legacyClaims(String token) {
+        Key key = Keys.hmacShaKeyFor(SECRET.getBytes());
+        return Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JWTVerificationBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
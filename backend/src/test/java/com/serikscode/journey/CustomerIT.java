@@ -28,6 +28,9 @@ import java.util.UUID;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.http.HttpHeaders.AUTHORIZATION;
+import static org.springframework.http.HttpHeaders.ETAG;
+import static org.springframework.http.HttpHeaders.IF_MATCH;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 
 @SpringBootTest(webEnvironment = RANDOM_PORT)
@@ -95,7 +98,8 @@ public class CustomerIT {
                 age,
                 List.of("ROLE_USER"),
                 email,
-                null
+                null,
+                0L
         );
 
         // make sure that customer is present
@@ -112,6 +116,51 @@ public class CustomerIT {
                 .isOk()
                 .expectBody(new ParameterizedTypeReference<CustomerDTO>() {})
                 .isEqualTo(expectedCustomer);
+
+        // unchanged customer is not sent again
+        String etag = webTestClient.get()
+                .uri(CUSTOMER_PATH + "/{id}", id)
+                .accept(APPLICATION_JSON)
+                .header(AUTHORIZATION, String.format("Bearer %s",jwtToken))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(CustomerDTO.class)
+                .getResponseHeaders()
+                .getETag();
+
+        webTestClient.get()
+                .uri(CUSTOMER_PATH + "/{id}", id)
+                .accept(APPLICATION_JSON)
+                .header(AUTHORIZATION, String.format("Bearer %s",jwtToken))
+                .header(IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus()
+                .isNotModified();
+
+        // the full representation keeps its null keys; a sparse one carries only what was asked for
+        webTestClient.get()
+                .uri(CUSTOMER_PATH + "/{id}", id)
+                .accept(APPLICATION_JSON)
+                .header(AUTHORIZATION, String.format("Bearer %s",jwtToken))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.profileImageId").hasJsonPath()
+                .jsonPath("$.profileImageId").isEmpty();
+
+        webTestClient.get()
+                .uri(CUSTOMER_PATH + "/{id}?fields=name", id)
+                .accept(APPLICATION_JSON)
+                .header(AUTHORIZATION, String.format("Bearer %s",jwtToken))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo(name)
+                .jsonPath("$.email").doesNotHaveJsonPath()
+                .jsonPath("$.profileImageId").doesNotHaveJsonPath();
     }
 
     @Test
@@ -272,7 +321,20 @@ public class CustomerIT {
                 .body(Mono.just(updatedRequest), CustomerRegistrationRequest.class)
                 .exchange()
                 .expectStatus()
-                .isOk();
+                .isOk()
+                .expectHeader()
+                .valueEquals(ETAG, "\"v1\"");
+
+        // an update against the version it replaced is refused
+        webTestClient.put()
+                .uri(CUSTOMER_PATH + "/{id}", id)
+                .accept(APPLICATION_JSON)
+                .header(AUTHORIZATION, String.format("Bearer %s",jwtToken))
+                .header(IF_MATCH, "\"v0\"")
+                .body(Mono.just(updatedRequest), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(412);
 
         // get customer by id
         CustomerDTO updatedCustomer = webTestClient.get()
@@ -288,7 +350,7 @@ public class CustomerIT {
 
 
         CustomerDTO expected = new CustomerDTO(
-                id,newName,email,Gender.MALE, age, List.of("ROLE_USER"), email, null
+                id,newName,email,Gender.MALE, age, List.of("ROLE_USER"), email, null, 1L
         );
 
         assertThat(updatedCustomer).isEqualTo(expected);
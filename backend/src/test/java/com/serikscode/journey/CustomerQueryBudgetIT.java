@@ -0,0 +1,192 @@
+package com.serikscode.journey;
+
+import com.github.javafaker.Faker;
+import com.serikscode.customer.CustomerRegistrationRequest;
+import com.serikscode.customer.CustomerUpdateRequest;
+import com.serikscode.customer.Gender;
+import com.serikscode.dto.CustomerDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.BodyInserters;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpHeaders.AUTHORIZATION;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+/**
+ * Fails when an endpoint runs more JDBC statements than its budget. Every
+ * write includes one {@code pg_notify} for the other instances.
+ */
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@Import(StatementCounter.class)
+public class CustomerQueryBudgetIT {
+
+    private static final String CUSTOMER_PATH = "/api/v1/customers";
+    private static final Faker FAKER = new Faker();
+
+    private static final Map<String, Integer> BUDGETS = Map.of(
+            // id block (at most one nextval), insert ... on conflict, notify
+            "POST /customers", 3,
+            "GET /customers/{id}", 1,
+            // read, email check, versioned update, notify
+            "PUT /customers/{id}", 4,
+            // update ... returning, notify
+            "PATCH /customers/{id}", 2,
+            // delete, token revocation, notify
+            "DELETE /customers/{id}", 3,
+            // update, notify
+            "POST /customers/{id}/profile-image", 2,
+            "GET /customers/{id}/profile-image", 1
+    );
+
+    @Autowired
+    private WebTestClient webTestClient;
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @Test
+    void registrationStaysWithinBudget() throws InterruptedException {
+        register(newRegistration());
+
+        assertWithinBudget("POST /customers", "POST", CUSTOMER_PATH);
+    }
+
+    @Test
+    void readsAndUpdatesStayWithinBudget() throws InterruptedException {
+        CustomerRegistrationRequest registration = newRegistration();
+        String jwtToken = register(registration);
+        Integer id = idOf(registration.email(), jwtToken);
+        String path = CUSTOMER_PATH + "/" + id;
+
+        authorized(webTestClient.get().uri(path), jwtToken)
+                .exchange()
+                .expectStatus()
+                .isOk();
+        assertWithinBudget("GET /customers/{id}", "GET", path);
+
+        authorized(webTestClient.put().uri(path), jwtToken)
+                .contentType(APPLICATION_JSON)
+                .body(Mono.just(new CustomerRegistrationRequest(
+                        "Ali", null, "password", null, null
+                )), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+        assertWithinBudget("PUT /customers/{id}", "PUT", path);
+
+        authorized(webTestClient.patch().uri(path), jwtToken)
+                .contentType(APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest(
+                        null, null, 30, null
+                )), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+        assertWithinBudget("PATCH /customers/{id}", "PATCH", path);
+    }
+
+    @Test
+    void profileImageStaysWithinBudget() throws InterruptedException {
+        CustomerRegistrationRequest registration = newRegistration();
+        String jwtToken = register(registration);
+        Integer id = idOf(registration.email(), jwtToken);
+        String path = CUSTOMER_PATH + "/" + id + "/profile-image";
+
+        MultipartBodyBuilder bodyBuilder = new MultipartBodyBuilder();
+        bodyBuilder.part("file", new ClassPathResource("male.jpeg"));
+        authorized(webTestClient.post().uri(path), jwtToken)
+                .body(BodyInserters.fromMultipartData(bodyBuilder.build()))
+                .exchange()
+                .expectStatus()
+                .isOk();
+        assertWithinBudget("POST /customers/{id}/profile-image", "POST", path);
+
+        webTestClient.get()
+                .uri(path)
+                .exchange()
+                .expectStatus()
+                .isOk();
+        assertWithinBudget("GET /customers/{id}/profile-image", "GET", path);
+    }
+
+    @Test
+    void deleteStaysWithinBudget() throws InterruptedException {
+        String jwtToken = register(newRegistration());
+        CustomerRegistrationRequest other = newRegistration();
+        register(other);
+        Integer id = idOf(other.email(), jwtToken);
+        String path = CUSTOMER_PATH + "/" + id;
+
+        authorized(webTestClient.delete().uri(path), jwtToken)
+                .exchange()
+                .expectStatus()
+                .isOk();
+        assertWithinBudget("DELETE /customers/{id}", "DELETE", path);
+    }
+
+    private void assertWithinBudget(String endpoint, String method, String path) throws InterruptedException {
+        int statements = statementCounter.awaitRequest(method, path).statements();
+        assertThat(statements)
+                .as("JDBC statements for %s", endpoint)
+                .isLessThanOrEqualTo(BUDGETS.get(endpoint));
+    }
+
+    private static CustomerRegistrationRequest newRegistration() {
+        return new CustomerRegistrationRequest(
+                FAKER.name().fullName(),
+                "budget-" + UUID.randomUUID() + "@gmail.com",
+                "password",
+                30,
+                Gender.FEMALE
+        );
+    }
+
+    private String register(CustomerRegistrationRequest request) {
+        return webTestClient.post()
+                .uri(CUSTOMER_PATH)
+                .accept(APPLICATION_JSON)
+                .contentType(APPLICATION_JSON)
+                .body(Mono.just(request), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Void.class)
+                .getResponseHeaders()
+                .get(AUTHORIZATION)
+                .get(0);
+    }
+
+    private Integer idOf(String email, String jwtToken) {
+        List<CustomerDTO> customers = authorized(webTestClient.get().uri(CUSTOMER_PATH), jwtToken)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(new ParameterizedTypeReference<List<CustomerDTO>>() {
+                })
+                .returnResult()
+                .getResponseBody();
+        return customers.stream()
+                .filter(customer -> customer.email().equals(email))
+                .map(CustomerDTO::id)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static <S extends WebTestClient.RequestHeadersSpec<?>> S authorized(S spec, String jwtToken) {
+        spec.header(AUTHORIZATION, "Bearer %s".formatted(jwtToken));
+        return spec;
+    }
+}
@@ -0,0 +1,122 @@
+package com.serikscode.journey;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the JDBC statements each HTTP request executes.
+ *
+ * The DataSource is wrapped so that every statement execution is charged to
+ * the request running on the same thread; the JWT filter's lookups count,
+ * background work such as the list snapshot rebuild does not. A batch counts
+ * once, as it is one round trip.
+ */
+@TestConfiguration
+public class StatementCounter {
+
+    private static final ThreadLocal<AtomicInteger> CURRENT = new ThreadLocal<>();
+
+    private final BlockingQueue<RequestStatements> completed = new LinkedBlockingQueue<>();
+
+    public record RequestStatements(String method, String path, int statements) {
+    }
+
+    @Bean
+    static BeanPostProcessor statementCountingDataSource() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource ? counting(DataSource.class, bean) : bean;
+            }
+        };
+    }
+
+    @Bean
+    FilterRegistrationBean<OncePerRequestFilter> statementCountingFilter() {
+        OncePerRequestFilter filter = new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request,
+                                            HttpServletResponse response,
+                                            FilterChain filterChain) throws ServletException, IOException {
+                AtomicInteger statements = new AtomicInteger();
+                CURRENT.set(statements);
+                try {
+                    filterChain.doFilter(request, response);
+                } finally {
+                    CURRENT.remove();
+                    completed.add(new RequestStatements(
+                            request.getMethod(),
+                            request.getRequestURI(),
+                            statements.get()
+                    ));
+                }
+            }
+        };
+        FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    /**
+     * Waits for the request to finish on the server, which can be after the
+     * client has read the response, and skips the ones that came before it.
+     */
+    public RequestStatements awaitRequest(String method, String path) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            RequestStatements request = completed.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (request == null) {
+                throw new AssertionError("no %s %s request was counted".formatted(method, path));
+            }
+            if (request.method().equals(method) && request.path().equals(path)) {
+                return request;
+            }
+        }
+    }
+
+    private static Object counting(Class<?> type, Object target) {
+        return Proxy.newProxyInstance(
+                StatementCounter.class.getClassLoader(),
+                new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (target instanceof Statement && method.getName().startsWith("execute")) {
+                        AtomicInteger statements = CURRENT.get();
+                        if (statements != null) {
+                            statements.incrementAndGet();
+                        }
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    Class<?> returnType = method.getReturnType();
+                    if (result != null
+                            && (returnType == Connection.class || Statement.class.isAssignableFrom(returnType))) {
+                        return counting(returnType, result);
+                    }
+                    return result;
+                }
+        );
+    }
+}
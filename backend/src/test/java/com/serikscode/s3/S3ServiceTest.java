@@ -10,6 +10,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
@@ -66,6 +67,22 @@ class S3ServiceTest {
                 .isEqualTo(RequestBody.fromBytes(data).contentStreamProvider().newStream().readAllBytes());
     }
 
+    @Test
+    void deleteObject() {
+        //Given
+        String bucket = "customer";
+        String key = "foo";
+
+        //When
+        underTest.deleteObject(bucket, key);
+
+        //Then
+        verify(s3Client).deleteObject(DeleteObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .build());
+    }
+
     @Test
     void canGetObject() throws IOException {
         //Given
@@ -0,0 +1,95 @@
+package com.serikscode.unitTest.jwt;
+
+import com.serikscode.jwt.JWTUtil;
+import com.serikscode.jwt.VerifiedToken;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JWTUtilTest {
+
+    @Test
+    void verifyReturnsSubjectScopesAndExpiry() {
+        //Given
+        JWTUtil underTest = new JWTUtil(0);
+        String token = underTest.issueToken("alex@gmail.com", "ROLE_USER", "ROLE_ADMIN");
+
+        //When
+        VerifiedToken actual = underTest.verify(token);
+
+        //Then
+        assertThat(actual.subject()).isEqualTo("alex@gmail.com");
+        assertThat(actual.scopes()).containsExactly("ROLE_USER", "ROLE_ADMIN");
+        assertThat(actual.expiresAt())
+                .isAfter(Instant.now().plus(14, ChronoUnit.DAYS))
+                .isBefore(Instant.now().plus(16, ChronoUnit.DAYS));
+        assertThat(actual.isExpired(Instant.now())).isFalse();
+    }
+
+    @Test
+    void tokensCarryIdCustomerIdAndIssueTime() {
+        //Given
+        JWTUtil underTest = new JWTUtil(0);
+        String token = underTest.issueToken(7, "alex@gmail.com", List.of("ROLE_USER"));
+
+        //When
+        VerifiedToken actual = underTest.verify(token);
+
+        //Then
+        assertThat(actual.id()).isNotBlank();
+        assertThat(actual.customerId()).isEqualTo(7);
+        assertThat(actual.issuedAt()).isBeforeOrEqualTo(Instant.now());
+        assertThat(underTest.verify(underTest.issueToken(7, "alex@gmail.com", List.of("ROLE_USER"))).id())
+                .isNotEqualTo(actual.id());
+    }
+
+    @Test
+    void issueTimeKeepsMilliseconds() {
+        //Given
+        JWTUtil underTest = new JWTUtil(0);
+        Instant before = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+        //When
+        VerifiedToken actual = underTest.verify(underTest.issueToken(7, "alex@gmail.com", List.of("ROLE_USER")));
+
+        //Then
+        assertThat(actual.issuedAt())
+                .isAfterOrEqualTo(before)
+                .isBeforeOrEqualTo(Instant.now());
+    }
+
+    @Test
+    void verifyRejectsTamperedTokens() {
+        //Given
+        JWTUtil underTest = new JWTUtil(100);
+        String token = underTest.issueToken("alex@gmail.com");
+        String tampered = token.substring(0, token.length() - 2)
+                + (token.endsWith("AA") ? "BB" : "AA");
+
+        //When
+        //Then
+        assertThatThrownBy(() -> underTest.verify(tampered)).isInstanceOf(JwtException.class);
+        assertThat(underTest.isTokenValid(tampered, "alex@gmail.com")).isFalse();
+    }
+
+    @Test
+    void verifiedCacheReusesResults() {
+        //Given
+        JWTUtil cached = new JWTUtil(100);
+        JWTUtil uncached = new JWTUtil(0);
+        String token = cached.issueToken("alex@gmail.com");
+
+        //When
+        //Then
+        assertThat(cached.verify(token)).isSameAs(cached.verify(token));
+        assertThat(uncached.verify(token)).isNotSameAs(uncached.verify(token));
+        assertThat(cached.isTokenValid(token, "alex@gmail.com")).isTrue();
+        assertThat(cached.isTokenValid(token, "jamila@gmail.com")).isFalse();
+    }
+}
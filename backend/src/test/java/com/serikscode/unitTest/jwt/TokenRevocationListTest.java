@@ -0,0 +1,114 @@
+package com.serikscode.unitTest.jwt;
+
+import com.serikscode.customer.CustomerChangedEvent;
+import com.serikscode.customer.CustomerChangedEvent.ChangeType;
+import com.serikscode.customer.CustomerEmailChangedEvent;
+import com.serikscode.jwt.TokenRevocationList;
+import com.serikscode.jwt.VerifiedToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationListTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private TokenRevocationList underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new TokenRevocationList(jdbcTemplate, Duration.ofSeconds(10));
+    }
+
+    @Test
+    void logoutRevokesOnlyThatToken() {
+        //Given
+        VerifiedToken token = token("a", 1, Instant.now());
+        VerifiedToken other = token("b", 1, Instant.now());
+
+        //When
+        underTest.revokeToken(token);
+
+        //Then
+        assertThat(underTest.isRevoked(token)).isTrue();
+        assertThat(underTest.isRevoked(other)).isFalse();
+        verify(jdbcTemplate).update(anyString(), eq("a"), any());
+    }
+
+    @Test
+    void deletingACustomerRevokesTokensIssuedBefore() {
+        //Given
+        VerifiedToken old = token("a", 1, Instant.now().minus(1, ChronoUnit.HOURS));
+        VerifiedToken otherCustomer = token("b", 2, Instant.now().minus(1, ChronoUnit.HOURS));
+
+        //When
+        underTest.onCustomerChanged(new CustomerChangedEvent(ChangeType.DELETED, 1, null));
+
+        //Then
+        assertThat(underTest.isRevoked(old)).isTrue();
+        assertThat(underTest.isRevoked(otherCustomer)).isFalse();
+        assertThat(underTest.isRevoked(token("c", 1, Instant.now().plusSeconds(5)))).isFalse();
+    }
+
+    @Test
+    void emailChangeRevokesTheCustomersTokens() {
+        //Given
+        VerifiedToken old = token("a", 1, Instant.now().minus(1, ChronoUnit.HOURS));
+
+        //When
+        underTest.onCustomerEmailChanged(new CustomerEmailChangedEvent(1, "old@gmail.com", "new@gmail.com"));
+
+        //Then
+        assertThat(underTest.isRevoked(old)).isTrue();
+    }
+
+    @Test
+    void tokensIssuedRightAfterARevocationStayValid() {
+        //Given
+        Instant revokedAt = Instant.now();
+
+        //When
+        underTest.onCustomerEmailChanged(new CustomerEmailChangedEvent(1, "old@gmail.com", "new@gmail.com"));
+
+        //Then
+        assertThat(underTest.isRevoked(token("a", 1, Instant.now().plusMillis(1)))).isFalse();
+        // tokens without iat_ms only know the second they were issued in
+        assertThat(underTest.isRevoked(token("b", 1, revokedAt.truncatedTo(ChronoUnit.SECONDS)))).isTrue();
+    }
+
+    @Test
+    void updatesDoNotRevoke() {
+        //When
+        underTest.onCustomerChanged(new CustomerChangedEvent(ChangeType.UPDATED, 1, null));
+
+        //Then
+        assertThat(underTest.isRevoked(token("a", 1, Instant.now().minus(1, ChronoUnit.HOURS)))).isFalse();
+    }
+
+    private static VerifiedToken token(String id, Integer customerId, Instant issuedAt) {
+        return new VerifiedToken(
+                id,
+                customerId,
+                "alex@gmail.com",
+                List.of("ROLE_USER"),
+                issuedAt,
+                issuedAt.plus(Duration.ofDays(15))
+        );
+    }
+}
@@ -0,0 +1,202 @@
+package com.serikscode.unitTest.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.serikscode.AbstractTestContainerUnitTest;
+import com.serikscode.customer.CustomerInvalidationEvent;
+import com.serikscode.dto.CustomerImportStatus;
+import com.serikscode.dto.CustomerImportStatus.State;
+import com.serikscode.exception.ResourceNotFoundException;
+import com.serikscode.service.CustomerEmailFilter;
+import com.serikscode.service.CustomerExportFormat;
+import com.serikscode.service.CustomerIdAllocator;
+import com.serikscode.service.CustomerImportService;
+import com.serikscode.service.CustomerInvalidationChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class CustomerImportServiceTest extends AbstractTestContainerUnitTest {
+
+    private final JdbcTemplate jdbcTemplate = getJdbcTemplate();
+    private final CustomerEmailFilter customerEmailFilter = mock(CustomerEmailFilter.class);
+    private final CustomerInvalidationChannel customerInvalidationChannel = mock(CustomerInvalidationChannel.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private CustomerImportService underTest;
+
+    @BeforeEach
+    void setUp() {
+        // small chunks and batches, so every test crosses their boundaries
+        underTest = new CustomerImportService(
+                jdbcTemplate,
+                new CustomerIdAllocator(jdbcTemplate),
+                new BCryptPasswordEncoder(4),
+                customerEmailFilter,
+                customerInvalidationChannel,
+                eventPublisher,
+                new ObjectMapper(),
+                2,
+                3,
+                2,
+                Duration.ofHours(1)
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.destroy();
+    }
+
+    @Test
+    void importsCsvSkippingRejectsAndDuplicates() throws Exception {
+        //Given
+        String prefix = UUID.randomUUID().toString();
+        String taken = prefix + "-taken@example.com";
+        jdbcTemplate.update(
+                "INSERT INTO customer(name, email, password, age, gender) VALUES ('Taken', ?, 'password', 30, 'MALE')",
+                taken
+        );
+        String csv = """
+                name,email,password,age,gender
+                "Smith, Alex",%1$s-1@example.com,secret,20,male
+                Jamila,%1$s-2@example.com,secret,22,FEMALE
+                Repeat,%1$s-1@example.com,secret,40,MALE
+                Taken,%2$s,secret,30,MALE
+                Bad Age,%1$s-3@example.com,secret,old,MALE
+                Bad Gender,%1$s-4@example.com,secret,30,OTHER
+                Ali,%1$s-5@example.com,secret,33,MALE
+                """.formatted(prefix, taken);
+
+        //When
+        CustomerImportStatus status = await(underTest.startImport(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                CustomerExportFormat.CSV
+        ));
+
+        //Then
+        assertThat(status.state()).isEqualTo(State.COMPLETED);
+        assertThat(status.rowsRead()).isEqualTo(7);
+        assertThat(status.rowsStaged()).isEqualTo(5);
+        assertThat(status.rowsImported()).isEqualTo(3);
+        assertThat(status.duplicates()).isEqualTo(2);
+        assertThat(status.rejected()).isEqualTo(2);
+        assertThat(status.rejects())
+                .extracting(reject -> reject.row())
+                .containsExactly(5L, 6L);
+        assertThat(status.bytesRead()).isEqualTo(status.bytesTotal());
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT name FROM customer WHERE email = ?", String.class, prefix + "-1@example.com"
+        )).isEqualTo("Smith, Alex");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT password FROM customer WHERE email = ?", String.class, prefix + "-2@example.com"
+        )).startsWith("$2a$");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM customer_import_staging WHERE job_id = ?", Long.class, status.jobId()
+        )).isZero();
+
+        verify(customerEmailFilter).add(prefix + "-5@example.com");
+        verify(eventPublisher).publishEvent(CustomerInvalidationEvent.flushAll());
+        verify(customerInvalidationChannel).publishFlush();
+    }
+
+    @Test
+    void importsNdjsonAndRejectsMalformedLines() throws Exception {
+        //Given
+        String prefix = UUID.randomUUID().toString();
+        String ndjson = """
+                {"name":"Alex","email":"%1$s-1@example.com","password":"secret","age":20,"gender":"MALE"}
+
+                {"name":"Broken",
+                {"name":"No Age","email":"%1$s-2@example.com","password":"secret","gender":"MALE"}
+                {"name":"Jamila","email":"%1$s-3@example.com","password":"secret","age":22,"gender":"FEMALE"}
+                """.formatted(prefix);
+
+        //When
+        CustomerImportStatus status = await(underTest.startImport(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)),
+                CustomerExportFormat.NDJSON
+        ));
+
+        //Then
+        assertThat(status.state()).isEqualTo(State.COMPLETED);
+        assertThat(status.rowsRead()).isEqualTo(4);
+        assertThat(status.rowsImported()).isEqualTo(2);
+        assertThat(status.rejected()).isEqualTo(2);
+    }
+
+    @Test
+    void failsWithoutTheRequiredCsvColumns() throws Exception {
+        //When
+        CustomerImportStatus status = await(underTest.startImport(
+                new ByteArrayInputStream("name,email\nAlex,alex@example.com\n".getBytes(StandardCharsets.UTF_8)),
+                CustomerExportFormat.CSV
+        ));
+
+        //Then
+        assertThat(status.state()).isEqualTo(State.FAILED);
+        assertThat(status.error()).contains("CSV header");
+        assertThat(status.rowsImported()).isZero();
+    }
+
+    @Test
+    void finishedJobsAreForgottenAfterTheRetention() throws Exception {
+        //Given
+        CustomerImportService shortLived = new CustomerImportService(
+                jdbcTemplate,
+                new CustomerIdAllocator(jdbcTemplate),
+                new BCryptPasswordEncoder(4),
+                customerEmailFilter,
+                customerInvalidationChannel,
+                eventPublisher,
+                new ObjectMapper(),
+                2,
+                3,
+                2,
+                Duration.ofMillis(200)
+        );
+        try {
+            CustomerImportStatus started = shortLived.startImport(
+                    new ByteArrayInputStream("name,email\nAlex,alex@example.com\n".getBytes(StandardCharsets.UTF_8)),
+                    CustomerExportFormat.CSV
+            );
+
+            //When
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (shortLived.getImportStatus(started.jobId()).finishedAt() == null) {
+                assertThat(System.currentTimeMillis()).isLessThan(deadline);
+                Thread.sleep(50);
+            }
+            Thread.sleep(500);
+
+            //Then
+            assertThatThrownBy(() -> shortLived.getImportStatus(started.jobId()))
+                    .isInstanceOf(ResourceNotFoundException.class);
+        } finally {
+            shortLived.destroy();
+        }
+    }
+
+    private CustomerImportStatus await(CustomerImportStatus started) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        CustomerImportStatus status = started;
+        while (status.state() != State.COMPLETED && status.state() != State.FAILED) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(50);
+            status = underTest.getImportStatus(started.jobId());
+        }
+        return status;
+    }
+}
@@ -0,0 +1,117 @@
+package com.serikscode.unitTest.repository;
+
+import com.serikscode.AbstractTestContainerUnitTest;
+import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerChangedEvent;
+import com.serikscode.customer.CustomerInvalidationEvent;
+import com.serikscode.customer.CustomersCreatedEvent;
+import com.serikscode.customer.Gender;
+import com.serikscode.service.CustomerInvalidationChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two channels on one database stand in for two application instances.
+ */
+class CustomerInvalidationChannelTest extends AbstractTestContainerUnitTest {
+
+    private final BlockingQueue<Object> firstNodeEvents = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Object> secondNodeEvents = new LinkedBlockingQueue<>();
+
+    private CustomerInvalidationChannel firstNode;
+    private CustomerInvalidationChannel secondNode;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        firstNode = channel(firstNodeEvents);
+        secondNode = channel(secondNodeEvents);
+        firstNode.start();
+        secondNode.start();
+
+        // each listener announces its first connection with a flush
+        assertThat(firstNodeEvents.poll(10, TimeUnit.SECONDS)).isEqualTo(CustomerInvalidationEvent.flushAll());
+        assertThat(secondNodeEvents.poll(10, TimeUnit.SECONDS)).isEqualTo(CustomerInvalidationEvent.flushAll());
+    }
+
+    @AfterEach
+    void tearDown() {
+        firstNode.stop();
+        secondNode.stop();
+    }
+
+    @Test
+    void otherNodesAreToldWhichCustomerChanged() throws InterruptedException {
+        //Given
+        CustomerChangedEvent change = new CustomerChangedEvent(CustomerChangedEvent.ChangeType.UPDATED, 42, null);
+
+        //When
+        firstNode.onCustomerChanged(change);
+
+        //Then
+        assertThat(secondNodeEvents.poll(10, TimeUnit.SECONDS)).isEqualTo(new CustomerInvalidationEvent(42));
+    }
+
+    @Test
+    void aRegistrationBatchIsOneNotificationNamingEveryId() throws InterruptedException {
+        //When
+        firstNode.onCustomersCreated(new CustomersCreatedEvent(List.of(customer(3), customer(4))));
+
+        //Then
+        assertThat(secondNodeEvents.poll(10, TimeUnit.SECONDS)).isEqualTo(new CustomerInvalidationEvent(3));
+        assertThat(secondNodeEvents.poll(10, TimeUnit.SECONDS)).isEqualTo(new CustomerInvalidationEvent(4));
+    }
+
+    @Test
+    void aBatchNamingTooManyIdsIsAFlush() throws InterruptedException {
+        //When
+        firstNode.onCustomersCreated(new CustomersCreatedEvent(List.of(customer(3), customer(4), customer(5))));
+
+        //Then
+        assertThat(secondNodeEvents.poll(10, TimeUnit.SECONDS)).isEqualTo(CustomerInvalidationEvent.flushAll());
+        assertThat(secondNodeEvents.poll(500, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void aNodeIgnoresItsOwnNotifications() throws InterruptedException {
+        //Given
+        firstNode.publish(7);
+
+        //When
+        // the second node receiving it proves the notification has been delivered
+        assertThat(secondNodeEvents.poll(10, TimeUnit.SECONDS)).isEqualTo(new CustomerInvalidationEvent(7));
+
+        //Then
+        assertThat(firstNodeEvents.poll(500, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void flushesOnlyOncePerConnection() throws InterruptedException {
+        // the connect flush was taken in setUp; nothing else arrives without a change
+        assertThat(firstNodeEvents.poll(500, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(secondNodeEvents.poll(500, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    private static Customer customer(int id) {
+        return new Customer(id, "Alex", "alex" + id + "@gmail.com", "password", 20, Gender.MALE);
+    }
+
+    private static CustomerInvalidationChannel channel(BlockingQueue<Object> events) {
+        return new CustomerInvalidationChannel(
+                getJdbcTemplate().getDataSource(),
+                events::add,
+                true,
+                2,
+                Duration.ofMillis(100),
+                Duration.ofMillis(100)
+        );
+    }
+}
@@ -2,16 +2,34 @@ package com.serikscode.unitTest.repository;
 
 import com.serikscode.AbstractTestContainerUnitTest;
 import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerChange;
+import com.serikscode.customer.CustomerChangeCursor;
+import com.serikscode.customer.CustomerCursor;
+import com.serikscode.customer.CustomerField;
+import com.serikscode.customer.CustomerFilter;
+import com.serikscode.customer.CustomerQuery;
+import com.serikscode.customer.CustomerSort;
+import com.serikscode.customer.CustomerUpdateRequest;
+import com.serikscode.customer.PatchedCustomer;
 import com.serikscode.customer.Gender;
+import com.serikscode.service.CustomerIdAllocator;
 import com.serikscode.service.CustomerJDBCDataAccessService;
 import com.serikscode.utills.CustomerRowMapper;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -23,9 +41,11 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestContainerUnitTest {
 
     @BeforeEach
     void setUp() {
+        JdbcTemplate jdbcTemplate = getJdbcTemplate();
         underTest = new CustomerJDBCDataAccessService(
-                getJdbcTemplate(),
-                customerRowMapper
+                jdbcTemplate,
+                customerRowMapper,
+                new CustomerIdAllocator(jdbcTemplate)
         );
     }
 
@@ -48,6 +68,209 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestContainerUnitTest {
         Assertions.assertThat(customers).isNotEmpty();
     }
 
+    @Test
+    void insertCustomerIfEmailAbsentSkipsRegisteredEmails() {
+        //Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer first = new Customer(FAKER.name().firstName(), email, "password", 20, Gender.MALE);
+        Customer second = new Customer(FAKER.name().firstName(), email, "password", 30, Gender.FEMALE);
+
+        //When
+        boolean firstInserted = underTest.insertCustomerIfEmailAbsent(first);
+        boolean secondInserted = underTest.insertCustomerIfEmailAbsent(second);
+
+        //Then
+        assertThat(firstInserted).isTrue();
+        assertThat(first.getId()).isNotNull();
+        assertThat(secondInserted).isFalse();
+        assertThat(second.getId()).isNull();
+        assertThat(underTest.selectUserByEmail(email))
+                .map(Customer::getAge)
+                .contains(20);
+    }
+
+    @Test
+    void insertCustomersAssignsIdsAndStoresEveryRow() {
+        //Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        List<Customer> customers = List.of(
+                new Customer(FAKER.name().firstName(), "a-" + email, "password", 20, Gender.MALE),
+                new Customer(FAKER.name().firstName(), "b-" + email, "password", 30, Gender.FEMALE)
+        );
+
+        //When
+        underTest.insertCustomers(customers);
+
+        //Then
+        assertThat(customers).allSatisfy(customer -> assertThat(customer.getId()).isNotNull());
+        assertThat(underTest.selectExistingEmails(List.of("a-" + email, "b-" + email, "c-" + email)))
+                .containsExactlyInAnyOrder("a-" + email, "b-" + email);
+        assertThat(underTest.selectCustomerById(customers.get(1).getId()))
+                .map(Customer::getEmail)
+                .contains("b-" + email);
+    }
+
+    @Test
+    void selectExistingEmailsReturnsNothingForUnknownEmails() {
+        //When
+        Set<String> actual = underTest.selectExistingEmails(List.of(UUID.randomUUID() + "@unknown.com"));
+
+        //Then
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void selectCustomersByIds() {
+        //Given
+        Customer first = new Customer(
+                FAKER.name().firstName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                "password", 20,
+                Gender.MALE
+        );
+        Customer second = new Customer(
+                FAKER.name().firstName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                "password", 30,
+                Gender.FEMALE
+        );
+        underTest.insertCustomer(first);
+        underTest.insertCustomer(second);
+
+        //When
+        List<Customer> actual = underTest.selectCustomersByIds(
+                List.of(first.getId(), second.getId(), Integer.MAX_VALUE)
+        );
+
+        //Then
+        assertThat(actual)
+                .extracting(Customer::getEmail)
+                .containsExactlyInAnyOrder(first.getEmail(), second.getEmail());
+    }
+
+    @Test
+    void selectCustomersAfterCursor() {
+        //Given
+        for (int i = 0; i < 3; i++) {
+            underTest.insertCustomer(new Customer(
+                    FAKER.name().firstName(),
+                    FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                    "password", 20,
+                    Gender.MALE
+            ));
+        }
+        List<Integer> ids = underTest.selectAllCustomer()
+                .stream()
+                .map(Customer::getId)
+                .sorted()
+                .toList();
+        Integer afterId = ids.get(ids.size() - 3);
+
+        //When
+        List<Customer> actual = underTest.selectCustomers(new CustomerQuery(
+                CustomerFilter.NONE,
+                CustomerSort.BY_ID,
+                new CustomerCursor(afterId, null),
+                1,
+                CustomerField.ALL
+        ));
+
+        //Then
+        assertThat(actual)
+                .extracting(Customer::getId)
+                .containsExactly(ids.get(ids.size() - 2));
+    }
+
+    @Test
+    void selectCustomersWithFilterAndSort() {
+        //Given
+        String prefix = "zz" + UUID.randomUUID().toString().substring(0, 8);
+        Customer older = new Customer(
+                prefix + " older",
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                "password", 60,
+                Gender.FEMALE);
+        Customer younger = new Customer(
+                prefix + " younger",
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                "password", 30,
+                Gender.FEMALE);
+        Customer otherGender = new Customer(
+                prefix + " other",
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                "password", 40,
+                Gender.MALE);
+        underTest.insertCustomer(older);
+        underTest.insertCustomer(younger);
+        underTest.insertCustomer(otherGender);
+
+        //When
+        List<Customer> actual = underTest.selectCustomers(new CustomerQuery(
+                new CustomerFilter(18, null, Gender.FEMALE, prefix.toUpperCase(), null),
+                CustomerSort.parse("-age"),
+                null,
+                null,
+                CustomerField.parse("name")
+        ));
+
+        //Then
+        assertThat(actual)
+                .extracting(Customer::getName)
+                .containsExactly(older.getName(), younger.getName());
+    }
+
+    @Test
+    void searchCustomersRanksClosestMatchFirst() {
+        //Given
+        String surname = "Quxworth" + UUID.randomUUID().toString().substring(0, 4);
+        Customer exact = new Customer(
+                "Alexandra " + surname,
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                "password", 20,
+                Gender.FEMALE);
+        Customer partial = new Customer(
+                "Bob " + surname.substring(0, 6) + "zz",
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                "password", 20,
+                Gender.MALE);
+        underTest.insertCustomer(partial);
+        underTest.insertCustomer(exact);
+
+        //When
+        List<Customer> actual = underTest.searchCustomers(surname, 10);
+
+        //Then
+        assertThat(actual)
+                .extracting(Customer::getName)
+                .startsWith(exact.getName());
+        assertThat(actual)
+                .extracting(Customer::getPassword)
+                .containsOnlyNulls();
+    }
+
+    @Test
+    void streamAllCustomers() {
+        //Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(
+                FAKER.name().firstName(),
+                email,
+                "password", 20,
+                Gender.MALE
+        ));
+
+        //When
+        List<Customer> actual;
+        try (Stream<Customer> customers = underTest.streamAllCustomers()) {
+            actual = customers.toList();
+        }
+
+        //Then
+        assertThat(actual)
+                .extracting(Customer::getEmail)
+                .contains(email);
+    }
+
     @Test
     void selectCustomerById() {
         //Given
@@ -78,6 +301,35 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestContainerUnitTest {
         });
     }
 
+    @Test
+    void selectCustomerByIdWithSparseFields() {
+        //Given
+        String email = FAKER.internet().safeEmailAddress() +  "-" + UUID.randomUUID();
+        Customer customer = new Customer(
+                FAKER.name().firstName(),
+                email,
+                "password", 20,
+                Gender.MALE);
+        underTest.insertCustomer(customer);
+        Integer id = underTest.selectAllCustomer()
+                .stream()
+                .filter(c -> c.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+
+        //When
+        Optional<Customer> actual = underTest.selectCustomerById(id, CustomerField.parse("name"));
+
+        //Then
+        Assertions.assertThat(actual).isPresent().hasValueSatisfying(c -> {
+            Assertions.assertThat(c.getId()).isEqualTo(id);
+            Assertions.assertThat(c.getName()).isEqualTo(customer.getName());
+            Assertions.assertThat(c.getEmail()).isNull();
+            Assertions.assertThat(c.getPassword()).isNull();
+        });
+    }
+
     @Test
     void willReturnEmptyWhenSelectCustomerById(){
         //Given
@@ -181,11 +433,126 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestContainerUnitTest {
                 .orElseThrow();
 
         //When
-        underTest.deleteCustomer(id);
+        boolean deleted = underTest.deleteCustomer(id);
 
         //Then
+        assertThat(deleted).isTrue();
         Optional<Customer> actual = underTest.selectCustomerById(id);
         Assertions.assertThat(actual).isNotPresent();
+        assertThat(underTest.deleteCustomer(id)).isFalse();
+    }
+
+    @Test
+    void selectChangesSinceReturnsLatestStateAndTombstones() {
+        //Given
+        CustomerChangeCursor since = currentPosition();
+        Customer kept = new Customer(
+                FAKER.name().firstName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                "password", 20,
+                Gender.MALE);
+        Customer deleted = new Customer(
+                FAKER.name().firstName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                "password", 30,
+                Gender.FEMALE);
+        underTest.insertCustomer(kept);
+        underTest.insertCustomer(deleted);
+
+        Customer update = new Customer();
+        update.setId(kept.getId());
+        update.setName("renamed");
+        underTest.updateCustomer(update);
+        underTest.deleteCustomer(deleted.getId());
+
+        //When
+        List<CustomerChange> actual = underTest.selectChangesSince(since, 10);
+
+        //Then
+        assertThat(actual).hasSize(2);
+        assertThat(actual.get(0).customerId()).isEqualTo(kept.getId());
+        assertThat(actual.get(0).customer().getName()).isEqualTo("renamed");
+        assertThat(actual.get(1)).isEqualTo(
+                CustomerChange.deleted(deleted.getId(), actual.get(1).position())
+        );
+        assertThat(actual.get(0).position().isBefore(actual.get(1).position())).isTrue();
+        assertThat(underTest.selectChangesSince(actual.get(1).position(), 10)).isEmpty();
+    }
+
+    @Test
+    void selectChangesSinceHoldsBackChangesCommittedAfterARunningTransaction() throws SQLException {
+        //Given
+        CustomerChangeCursor since = currentPosition();
+        Customer early = new Customer(
+                FAKER.name().firstName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                "password", 20,
+                Gender.MALE);
+        Customer late = new Customer(
+                FAKER.name().firstName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                "password", 30,
+                Gender.FEMALE);
+
+        try (Connection longTransaction = getJdbcTemplate().getDataSource().getConnection()) {
+            // takes the lower change_version but commits last
+            longTransaction.setAutoCommit(false);
+            try (PreparedStatement insert = longTransaction.prepareStatement(
+                    "INSERT INTO customer(name, email, password, age, gender) VALUES (?, ?, ?, ?, ?)")) {
+                insert.setString(1, early.getName());
+                insert.setString(2, early.getEmail());
+                insert.setString(3, early.getPassword());
+                insert.setInt(4, early.getAge());
+                insert.setString(5, early.getGender().name());
+                insert.executeUpdate();
+            }
+            underTest.insertCustomer(late);
+
+            //When
+            List<CustomerChange> whileRunning = underTest.selectChangesSince(since, 10);
+            longTransaction.commit();
+            List<CustomerChange> afterCommit = underTest.selectChangesSince(since, 10);
+
+            //Then
+            assertThat(whileRunning).isEmpty();
+            assertThat(afterCommit)
+                    .extracting(change -> change.customer().getEmail())
+                    .containsExactly(early.getEmail(), late.getEmail());
+        }
+    }
+
+    @Test
+    void deleteTombstonesBeforeMovesTheHorizonPastThem() {
+        //Given
+        Customer customer = new Customer(
+                FAKER.name().firstName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                "password", 20,
+                Gender.MALE);
+        CustomerChangeCursor since = currentPosition();
+        underTest.insertCustomer(customer);
+        underTest.deleteCustomer(customer.getId());
+        CustomerChangeCursor tombstone = underTest.selectChangesSince(since, 10).stream()
+                .filter(CustomerChange::isDeleted)
+                .findFirst()
+                .orElseThrow()
+                .position();
+
+        //When
+        int pruned = underTest.deleteTombstonesBefore(Instant.now().plusSeconds(60));
+
+        //Then
+        assertThat(pruned).isPositive();
+        assertThat(underTest.selectTombstoneHorizon()).isEqualTo(tombstone);
+        assertThat(underTest.selectChangesSince(since, 10)).noneMatch(CustomerChange::isDeleted);
+    }
+
+    // a position before any transaction that starts from now on
+    private static CustomerChangeCursor currentPosition() {
+        Long xid = getJdbcTemplate().queryForObject(
+                "SELECT pg_current_xact_id()::text::bigint", Long.class
+        );
+        return new CustomerChangeCursor(xid, Long.MAX_VALUE);
     }
 
     @Test
@@ -230,6 +597,76 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestContainerUnitTest {
 
     }
 
+    @Test
+    void updateCustomerBumpsVersionAndRejectsStaleOne() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                email,
+                "password",
+                20,
+                Gender.MALE
+        );
+        underTest.insertCustomer(customer);
+        Customer first = underTest.selectCustomerById(customer.getId()).orElseThrow();
+        Customer second = underTest.selectCustomerById(customer.getId()).orElseThrow();
+
+        // When
+        first.setAge(21);
+        underTest.updateCustomer(first);
+        second.setAge(22);
+
+        // Then
+        assertThat(first.getVersion()).isEqualTo(1L);
+        Assertions.assertThatThrownBy(() -> underTest.updateCustomer(second))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(underTest.selectCustomerById(customer.getId()))
+                .hasValueSatisfying(c -> {
+                    assertThat(c.getAge()).isEqualTo(21);
+                    assertThat(c.getVersion()).isEqualTo(1L);
+                });
+    }
+
+    @Test
+    void patchCustomerWritesEveryGivenFieldAndReturnsTheRow() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer customer = new Customer(FAKER.name().fullName(), email, "password", 20, Gender.MALE);
+        underTest.insertCustomer(customer);
+
+        // When
+        Optional<PatchedCustomer> actual = underTest.patchCustomer(
+                customer.getId(),
+                new CustomerUpdateRequest(null, "new-" + email, 33, Gender.FEMALE)
+        );
+
+        // Then
+        assertThat(actual).hasValueSatisfying(patched -> {
+            assertThat(patched.previousEmail()).isEqualTo(email);
+            assertThat(patched.emailChanged()).isTrue();
+            assertThat(patched.customer().getName()).isEqualTo(customer.getName());
+            assertThat(patched.customer().getEmail()).isEqualTo("new-" + email);
+            assertThat(patched.customer().getAge()).isEqualTo(33);
+            assertThat(patched.customer().getGender()).isEqualTo(Gender.FEMALE);
+        });
+        assertThat(underTest.selectCustomerById(customer.getId()))
+                .map(Customer::getGender)
+                .contains(Gender.FEMALE);
+    }
+
+    @Test
+    void patchCustomerIsEmptyForUnknownId() {
+        // When
+        Optional<PatchedCustomer> actual = underTest.patchCustomer(
+                -1,
+                new CustomerUpdateRequest("foo", null, null, null)
+        );
+
+        // Then
+        assertThat(actual).isEmpty();
+    }
+
     @Test
     void canUpdateProfileImageId() {
         // Given
@@ -250,14 +687,33 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestContainerUnitTest {
                 .orElseThrow();
 
         // When
-        underTest.updateCustomerProfileImageId("2222", id);
+        boolean updated = underTest.updateCustomerProfileImageId("2222", id);
 
         // Then
+        assertThat(updated).isTrue();
         Optional<Customer> customerOptional = underTest.selectCustomerById(id);
         assertThat(customerOptional)
                 .isPresent()
                 .hasValueSatisfying(
                         c -> assertThat(c.getProfileImageId()).isEqualTo("2222")
                 );
+        assertThat(underTest.selectProfileImageId(id)).contains("2222");
+    }
+
+    @Test
+    void profileImageIdIsEmptyWithoutImageOrCustomer() {
+        // Given
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                "password", 20,
+                Gender.MALE);
+        underTest.insertCustomer(customer);
+
+        // When
+        // Then
+        assertThat(underTest.selectProfileImageId(customer.getId())).isEmpty();
+        assertThat(underTest.selectProfileImageId(-1)).isEmpty();
+        assertThat(underTest.updateCustomerProfileImageId("2222", -1)).isFalse();
     }
 }
\ No newline at end of file
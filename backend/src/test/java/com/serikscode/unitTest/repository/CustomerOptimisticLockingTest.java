@@ -0,0 +1,88 @@
+package com.serikscode.unitTest.repository;
+
+import com.serikscode.AbstractTestContainerUnitTest;
+import com.serikscode.customer.Customer;
+import com.serikscode.customer.Gender;
+import com.serikscode.service.CustomerIdAllocator;
+import com.serikscode.service.CustomerJDBCDataAccessService;
+import com.serikscode.utills.CustomerRowMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Read-modify-write increments racing on one row. Without the version check
+ * some of them would overwrite each other and the final age would fall short.
+ */
+class CustomerOptimisticLockingTest extends AbstractTestContainerUnitTest {
+
+    private static final int THREADS = 8;
+    private static final int INCREMENTS_PER_THREAD = 25;
+
+    private final JdbcTemplate jdbcTemplate = getJdbcTemplate();
+    private final CustomerJDBCDataAccessService underTest = new CustomerJDBCDataAccessService(
+            jdbcTemplate,
+            new CustomerRowMapper(),
+            new CustomerIdAllocator(jdbcTemplate)
+    );
+
+    @Test
+    void concurrentIncrementsAreNeverLost() throws Exception {
+        // Given
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                "locking-" + UUID.randomUUID() + "@example.com",
+                "password",
+                0,
+                Gender.FEMALE
+        );
+        underTest.insertCustomer(customer);
+        Integer id = customer.getId();
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        // When
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < INCREMENTS_PER_THREAD; i++) {
+                    while (true) {
+                        Customer current = underTest.selectCustomerById(id).orElseThrow();
+                        current.setAge(current.getAge() + 1);
+                        try {
+                            underTest.updateCustomer(current);
+                            break;
+                        } catch (OptimisticLockingFailureException e) {
+                            // lost the race: re-read and try again
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        executor.shutdown();
+
+        // Then
+        int increments = THREADS * INCREMENTS_PER_THREAD;
+        assertThat(underTest.selectCustomerById(id)).hasValueSatisfying(actual -> {
+            assertThat(actual.getAge()).isEqualTo(increments);
+            assertThat(actual.getVersion()).isEqualTo((long) increments);
+        });
+    }
+}
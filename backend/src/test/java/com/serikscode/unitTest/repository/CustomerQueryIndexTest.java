@@ -0,0 +1,146 @@
+package com.serikscode.unitTest.repository;
+
+import com.serikscode.AbstractTestContainerUnitTest;
+import com.serikscode.customer.CustomerCursor;
+import com.serikscode.customer.CustomerField;
+import com.serikscode.customer.CustomerFilter;
+import com.serikscode.customer.CustomerQuery;
+import com.serikscode.customer.CustomerSort;
+import com.serikscode.customer.Gender;
+import com.serikscode.utills.CustomerQuerySql;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Asserts that the SQL produced for list queries is answered from the
+ * indexes created in V3__Add_Customer_Query_Indexes.
+ */
+class CustomerQueryIndexTest extends AbstractTestContainerUnitTest {
+
+    private static final int ROWS = 5_000;
+
+    private final JdbcTemplate jdbcTemplate = getJdbcTemplate();
+
+    @BeforeAll
+    static void seed() {
+        JdbcTemplate jdbcTemplate = getJdbcTemplate();
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new Object[]{
+                    FAKER.name().fullName(),
+                    "index-" + i + "-" + UUID.randomUUID() + "@example.com",
+                    "password",
+                    16 + i % 80,
+                    (i % 2 == 0 ? Gender.MALE : Gender.FEMALE).name()
+            });
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO customer(name, email, password, age, gender) VALUES (?, ?, ?, ?, ?)",
+                rows
+        );
+        jdbcTemplate.execute("ANALYZE customer");
+    }
+
+    @Test
+    void sortByNameWithCursorUsesNameIndex() {
+        String plan = explain(new CustomerQuery(
+                CustomerFilter.NONE,
+                CustomerSort.parse("name"),
+                new CustomerCursor(100, "M"),
+                20,
+                CustomerField.ALL
+        ));
+
+        assertThat(plan).contains("customer_name_id_idx");
+    }
+
+    @Test
+    void ageRangeSortedByAgeUsesAgeIndex() {
+        String plan = explain(new CustomerQuery(
+                new CustomerFilter(30, 40, null, null, null),
+                CustomerSort.parse("-age"),
+                null,
+                20,
+                CustomerField.ALL
+        ));
+
+        assertThat(plan).contains("customer_age_id_idx");
+    }
+
+    @Test
+    void genderAndAgeRangeUsesGenderAgeIndex() {
+        String plan = explain(new CustomerQuery(
+                new CustomerFilter(30, 40, Gender.FEMALE, null, null),
+                CustomerSort.parse("age"),
+                null,
+                20,
+                CustomerField.ALL
+        ));
+
+        assertThat(plan).contains("customer_gender_age_id_idx");
+    }
+
+    @Test
+    void namePrefixUsesPatternIndex() {
+        String plan = explain(new CustomerQuery(
+                new CustomerFilter(null, null, null, "Zyx", null),
+                CustomerSort.BY_ID,
+                null,
+                null,
+                CustomerField.ALL
+        ));
+
+        assertThat(plan).contains("customer_lower_name_pattern_idx");
+    }
+
+    @Test
+    void emailPrefixUsesPatternIndex() {
+        String plan = explain(new CustomerQuery(
+                new CustomerFilter(null, null, null, null, "index-42-"),
+                CustomerSort.BY_ID,
+                null,
+                null,
+                CustomerField.ALL
+        ));
+
+        assertThat(plan).contains("customer_lower_email_pattern_idx");
+    }
+
+    private String explain(CustomerQuery query) {
+        CustomerQuerySql querySql = CustomerQuerySql.of(query);
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                // a few thousand rows fit in a handful of pages; take sequential scans off the table
+                statement.execute("SET enable_seqscan = off");
+            }
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + querySql.sql())) {
+                Object[] args = querySql.args();
+                for (int i = 0; i < args.length; i++) {
+                    statement.setObject(i + 1, args[i]);
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        plan.append(resultSet.getString(1)).append('\n');
+                    }
+                }
+                return plan.toString();
+            } finally {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("RESET enable_seqscan");
+                }
+            }
+        });
+    }
+}
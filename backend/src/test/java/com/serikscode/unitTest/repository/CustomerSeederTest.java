@@ -0,0 +1,72 @@
+package com.serikscode.unitTest.repository;
+
+import com.serikscode.AbstractTestContainerUnitTest;
+import com.serikscode.customer.CustomerInvalidationEvent;
+import com.serikscode.service.CustomerEmailFilter;
+import com.serikscode.service.CustomerIdAllocator;
+import com.serikscode.service.CustomerInvalidationChannel;
+import com.serikscode.service.CustomerSeeder;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class CustomerSeederTest extends AbstractTestContainerUnitTest {
+
+    private static final int COUNT = 12_345;
+
+    private final JdbcTemplate jdbcTemplate = getJdbcTemplate();
+    private final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+    private final CustomerEmailFilter customerEmailFilter = mock(CustomerEmailFilter.class);
+    private final CustomerInvalidationChannel customerInvalidationChannel = mock(CustomerInvalidationChannel.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    private final CustomerSeeder underTest = new CustomerSeeder(
+            jdbcTemplate,
+            new CustomerIdAllocator(jdbcTemplate),
+            passwordEncoder,
+            customerEmailFilter,
+            customerInvalidationChannel,
+            eventPublisher,
+            COUNT,
+            1_000,
+            4,
+            "seeded"
+    );
+
+    @Test
+    void seedsTheRequestedNumberOfCustomersTwice() {
+        //Given
+        long before = countCustomers();
+
+        //When
+        long first = underTest.seed(COUNT);
+        long second = underTest.seed(COUNT);
+
+        //Then every row is written and repeated runs do not collide
+        assertThat(first).isEqualTo(COUNT);
+        assertThat(second).isEqualTo(COUNT);
+        assertThat(countCustomers() - before).isEqualTo(2L * COUNT);
+
+        String passwordHash = jdbcTemplate.queryForObject(
+                "SELECT password FROM customer WHERE email LIKE '%@example.com' ORDER BY id DESC LIMIT 1",
+                String.class
+        );
+        assertThat(passwordEncoder.matches("seeded", passwordHash)).isTrue();
+
+        verify(customerEmailFilter, times(2 * COUNT)).add(anyString());
+        verify(eventPublisher, times(2)).publishEvent(CustomerInvalidationEvent.flushAll());
+        verify(customerInvalidationChannel, times(2)).publishFlush();
+    }
+
+    private long countCustomers() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM customer", Long.class);
+    }
+}
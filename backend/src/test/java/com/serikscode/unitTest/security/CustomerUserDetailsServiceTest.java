@@ -0,0 +1,106 @@
+package com.serikscode.unitTest.security;
+
+import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerChangedEvent;
+import com.serikscode.customer.CustomerChangedEvent.ChangeType;
+import com.serikscode.customer.Gender;
+import com.serikscode.repository.CustomerDao;
+import com.serikscode.security.CustomerPrincipal;
+import com.serikscode.security.CustomerUserDetailsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerUserDetailsServiceTest {
+
+    @Mock
+    private CustomerDao customerDao;
+
+    private CustomerUserDetailsService underTest;
+
+    private final Customer alex = new Customer(1, "Alex", "alex@gmail.com", "password", 19, Gender.MALE);
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerUserDetailsService(
+                customerDao,
+                new SimpleMeterRegistry(),
+                100,
+                Duration.ofMinutes(1)
+        );
+    }
+
+    @Test
+    void loginStillReadsTheCustomerWithItsPassword() {
+        //Given
+        when(customerDao.selectUserByEmail("alex@gmail.com")).thenReturn(Optional.of(alex));
+
+        //When
+        underTest.loadUserByUsername("alex@gmail.com");
+        UserDetails actual = underTest.loadUserByUsername("alex@gmail.com");
+
+        //Then
+        assertThat(actual.getPassword()).isEqualTo("password");
+        verify(customerDao, times(2)).selectUserByEmail("alex@gmail.com");
+    }
+
+    @Test
+    void principalIsCachedWithoutPassword() {
+        //Given
+        when(customerDao.selectUserByEmail("alex@gmail.com")).thenReturn(Optional.of(alex));
+
+        //When
+        underTest.loadPrincipal("alex@gmail.com");
+        UserDetails actual = underTest.loadPrincipal("alex@gmail.com");
+
+        //Then
+        assertThat(actual).isInstanceOf(CustomerPrincipal.class);
+        assertThat(actual.getUsername()).isEqualTo("alex@gmail.com");
+        assertThat(actual.getPassword()).isNull();
+        assertThat(actual.getAuthorities()).extracting("authority").containsExactly("ROLE_USER");
+        verify(customerDao, times(1)).selectUserByEmail("alex@gmail.com");
+    }
+
+    @Test
+    void updateAndDeleteEvictThePrincipal() {
+        //Given
+        when(customerDao.selectUserByEmail("alex@gmail.com")).thenReturn(Optional.of(alex));
+        underTest.loadPrincipal("alex@gmail.com");
+
+        //When
+        underTest.onCustomerChanged(new CustomerChangedEvent(ChangeType.UPDATED, 1, alex));
+        underTest.loadPrincipal("alex@gmail.com");
+        underTest.onCustomerChanged(new CustomerChangedEvent(ChangeType.DELETED, 1, null));
+        underTest.loadPrincipal("alex@gmail.com");
+
+        //Then
+        verify(customerDao, times(3)).selectUserByEmail("alex@gmail.com");
+    }
+
+    @Test
+    void willThrowWhenPrincipalDoesNotExist() {
+        //Given
+        when(customerDao.selectUserByEmail("ghost@gmail.com")).thenReturn(Optional.empty());
+
+        //When
+        //Then
+        assertThatThrownBy(() -> underTest.loadPrincipal("ghost@gmail.com"))
+                .isInstanceOf(UsernameNotFoundException.class)
+                .hasMessage("No Customer found with username: ghost@gmail.com");
+    }
+}
@@ -0,0 +1,178 @@
+package com.serikscode.unitTest.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerField;
+import com.serikscode.customer.CustomerInvalidationEvent;
+import com.serikscode.customer.Gender;
+import com.serikscode.repository.CustomerDao;
+import com.serikscode.service.CachingCustomerDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CachingCustomerDaoTest {
+
+    @Mock
+    private CustomerDao delegate;
+
+    private Cache<Integer, Customer> cache;
+    private CachingCustomerDao underTest;
+
+    private final Customer alex = new Customer(1, "Alex", "alex@gmail.com", "password", 19, Gender.MALE);
+
+    @BeforeEach
+    void setUp() {
+        cache = Caffeine.newBuilder().maximumSize(100).recordStats().build();
+        underTest = new CachingCustomerDao(delegate, cache);
+    }
+
+    @Test
+    void repeatedLookupsHitTheDelegateOnce() {
+        //Given
+        when(delegate.selectCustomerById(1)).thenReturn(Optional.of(alex));
+
+        //When
+        underTest.selectCustomerById(1);
+        Optional<Customer> actual = underTest.selectCustomerById(1);
+
+        //Then
+        assertThat(actual).contains(alex);
+        verify(delegate, times(1)).selectCustomerById(1);
+        assertThat(cache.stats().hitCount()).isEqualTo(1);
+        assertThat(cache.stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void callersCannotChangeTheCachedRow() {
+        //Given
+        when(delegate.selectCustomerById(1)).thenReturn(Optional.of(alex));
+
+        //When
+        underTest.selectCustomerById(1).orElseThrow().setName("changed");
+
+        //Then
+        assertThat(underTest.selectCustomerById(1).orElseThrow().getName()).isEqualTo("Alex");
+    }
+
+    @Test
+    void remoteInvalidationEvictsTheRow() {
+        //Given
+        when(delegate.selectCustomerById(1)).thenReturn(Optional.of(alex));
+        underTest.selectCustomerById(1);
+
+        //When
+        underTest.onCustomerInvalidated(new CustomerInvalidationEvent(1));
+        underTest.selectCustomerById(1);
+
+        //Then
+        verify(delegate, times(2)).selectCustomerById(1);
+    }
+
+    @Test
+    void flushEvictsEverything() {
+        //Given
+        when(delegate.selectCustomerById(1)).thenReturn(Optional.of(alex));
+        underTest.selectCustomerById(1);
+
+        //When
+        underTest.onCustomerInvalidated(CustomerInvalidationEvent.flushAll());
+
+        //Then
+        assertThat(cache.estimatedSize()).isZero();
+    }
+
+    @Test
+    void missesAreNotCached() {
+        //Given
+        when(delegate.selectCustomerById(2)).thenReturn(Optional.empty());
+
+        //When
+        underTest.selectCustomerById(2);
+        underTest.selectCustomerById(2);
+
+        //Then
+        verify(delegate, times(2)).selectCustomerById(2);
+    }
+
+    @Test
+    void existsAndSparseReadsAreServedFromTheCache() {
+        //Given
+        when(delegate.selectCustomerById(1)).thenReturn(Optional.of(alex));
+        underTest.selectCustomerById(1);
+
+        //When
+        boolean exists = underTest.existsPersonWithId(1);
+        Optional<Customer> sparse = underTest.selectCustomerById(1, Set.of(CustomerField.NAME));
+
+        //Then
+        assertThat(exists).isTrue();
+        assertThat(sparse).contains(alex);
+        verify(delegate, never()).existsPersonWithId(1);
+        verify(delegate, never()).selectCustomerById(1, Set.of(CustomerField.NAME));
+    }
+
+    @Test
+    void batchLookupOnlyAsksDelegateForUncachedIds() {
+        //Given
+        Customer jamila = new Customer(2, "Jamila", "jamila@gmail.com", "password", 22, Gender.FEMALE);
+        when(delegate.selectCustomerById(1)).thenReturn(Optional.of(alex));
+        when(delegate.selectCustomersByIds(List.of(2))).thenReturn(List.of(jamila));
+        underTest.selectCustomerById(1);
+
+        //When
+        List<Customer> actual = underTest.selectCustomersByIds(List.of(1, 2));
+
+        //Then
+        assertThat(actual).containsExactlyInAnyOrder(alex, jamila);
+    }
+
+    @Test
+    void writesEvictTheRow() {
+        //Given
+        when(delegate.selectCustomerById(1)).thenReturn(Optional.of(alex));
+
+        //When
+        underTest.selectCustomerById(1);
+        underTest.updateCustomer(alex);
+        underTest.selectCustomerById(1);
+        underTest.updateCustomerProfileImageId("image", 1);
+        underTest.selectCustomerById(1);
+        underTest.deleteCustomer(1);
+        underTest.selectCustomerById(1);
+
+        //Then
+        verify(delegate, times(4)).selectCustomerById(1);
+    }
+
+    @Test
+    void profileImageIdIsReadFromACachedRow() {
+        //Given
+        when(delegate.selectCustomerById(1)).thenReturn(Optional.of(alex));
+        when(delegate.selectProfileImageId(2)).thenReturn(Optional.of("image"));
+
+        //When
+        underTest.selectCustomerById(1);
+        Optional<String> cached = underTest.selectProfileImageId(1);
+        Optional<String> uncached = underTest.selectProfileImageId(2);
+
+        //Then
+        assertThat(cached).isEmpty();
+        assertThat(uncached).contains("image");
+        verify(delegate, never()).selectProfileImageId(1);
+    }
+}
@@ -0,0 +1,194 @@
+package com.serikscode.unitTest.service;
+
+import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerRegistrationRequest;
+import com.serikscode.customer.CustomersCreatedEvent;
+import com.serikscode.customer.Gender;
+import com.serikscode.dto.CustomerBatchRegistration;
+import com.serikscode.dto.CustomerRegistrationResult;
+import com.serikscode.exception.RequestValidationException;
+import com.serikscode.repository.CustomerDao;
+import com.serikscode.service.CustomerBatchRegistrationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerBatchRegistrationServiceTest {
+
+    @Mock
+    private CustomerDao customerDao;
+    @Mock
+    private PasswordEncoder passwordEncoder;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private CustomerBatchRegistrationService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerBatchRegistrationService(
+                customerDao,
+                passwordEncoder,
+                transactionManager,
+                eventPublisher,
+                2
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.destroy();
+    }
+
+    @Test
+    void registersEveryRowWithOneEmailQueryAndOneBatch() {
+        //Given
+        List<CustomerRegistrationRequest> requests = List.of(request("alex@gmail.com"), request("jamila@gmail.com"));
+        when(customerDao.selectExistingEmails(any())).thenReturn(Set.of());
+        when(passwordEncoder.encode(anyString())).thenReturn("hashed");
+        assignIdsOnBatchInsert();
+
+        //When
+        CustomerBatchRegistration actual = underTest.registerCustomers(requests);
+
+        //Then
+        assertThat(actual.registered()).isEqualTo(2);
+        assertThat(actual.failed()).isZero();
+        assertThat(actual.results())
+                .extracting(CustomerRegistrationResult::customerId)
+                .containsExactly(1, 2);
+        verify(customerDao, times(1)).selectExistingEmails(any());
+        verify(customerDao, never()).insertCustomer(any());
+        // one event for the whole batch, no per-row events
+        assertThat(createdEvent().customers())
+                .extracting(Customer::getEmail)
+                .containsExactly("alex@gmail.com", "jamila@gmail.com");
+    }
+
+    @Test
+    void reportsTakenRepeatedAndIncompleteRowsWithoutFailingTheBatch() {
+        //Given
+        List<CustomerRegistrationRequest> requests = new ArrayList<>(List.of(
+                request("taken@gmail.com"),
+                request("alex@gmail.com"),
+                request("alex@gmail.com"),
+                new CustomerRegistrationRequest("Alex", "missing@gmail.com", null, 20, Gender.MALE)
+        ));
+        requests.add(null);
+        when(customerDao.selectExistingEmails(any())).thenReturn(Set.of("taken@gmail.com"));
+        when(passwordEncoder.encode(anyString())).thenReturn("hashed");
+        assignIdsOnBatchInsert();
+
+        //When
+        CustomerBatchRegistration actual = underTest.registerCustomers(requests);
+
+        //Then
+        assertThat(actual.registered()).isEqualTo(1);
+        assertThat(actual.failed()).isEqualTo(4);
+        assertThat(actual.results())
+                .extracting(CustomerRegistrationResult::error)
+                .containsExactly(
+                        "email already registered",
+                        null,
+                        "email repeated in request",
+                        "name, email, password, age and gender are required",
+                        "customer must not be null"
+                );
+    }
+
+    @Test
+    void fallsBackToSingleInsertsWhenTheBatchIsRejected() {
+        //Given
+        List<CustomerRegistrationRequest> requests = List.of(request("alex@gmail.com"), request("raced@gmail.com"));
+        when(customerDao.selectExistingEmails(any())).thenReturn(Set.of());
+        when(passwordEncoder.encode(anyString())).thenReturn("hashed");
+        doThrow(new DuplicateKeyException("customer_email_unique")).when(customerDao).insertCustomers(anyList());
+        doAnswer(invocation -> {
+            Customer customer = invocation.getArgument(0);
+            if (customer.getEmail().equals("raced@gmail.com")) {
+                throw new DuplicateKeyException("customer_email_unique");
+            }
+            customer.setId(7);
+            return null;
+        }).when(customerDao).insertCustomer(any());
+
+        //When
+        CustomerBatchRegistration actual = underTest.registerCustomers(requests);
+
+        //Then
+        assertThat(actual.results()).containsExactly(
+                CustomerRegistrationResult.registered(0, "alex@gmail.com", 7),
+                CustomerRegistrationResult.failed(1, "raced@gmail.com", "email already registered")
+        );
+        assertThat(createdEvent().customers())
+                .extracting(Customer::getId)
+                .containsExactly(7);
+    }
+
+    @Test
+    void rejectsOversizedBatches() {
+        //Given
+        List<CustomerRegistrationRequest> requests = Collections.nCopies(
+                CustomerBatchRegistrationService.MAX_BATCH_SIZE + 1,
+                request("alex@gmail.com")
+        );
+
+        //When
+        //Then
+        assertThatThrownBy(() -> underTest.registerCustomers(requests))
+                .isInstanceOf(RequestValidationException.class);
+        verify(customerDao, never()).selectExistingEmails(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    private CustomersCreatedEvent createdEvent() {
+        ArgumentCaptor<Object> event = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        verifyNoMoreInteractions(eventPublisher);
+        return (CustomersCreatedEvent) event.getValue();
+    }
+
+    private void assignIdsOnBatchInsert() {
+        doAnswer(invocation -> {
+            List<Customer> customers = invocation.getArgument(0);
+            for (int i = 0; i < customers.size(); i++) {
+                customers.get(i).setId(i + 1);
+            }
+            return null;
+        }).when(customerDao).insertCustomers(anyList());
+    }
+
+    private static CustomerRegistrationRequest request(String email) {
+        return new CustomerRegistrationRequest("Alex", email, "password", 20, Gender.MALE);
+    }
+}
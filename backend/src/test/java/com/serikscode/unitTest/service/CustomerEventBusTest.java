@@ -0,0 +1,231 @@
+package com.serikscode.unitTest.service;
+
+import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerChangedEvent;
+import com.serikscode.customer.CustomerChangedEvent.ChangeType;
+import com.serikscode.customer.CustomersCreatedEvent;
+import com.serikscode.customer.Gender;
+import com.serikscode.service.CustomerEventBus;
+import com.serikscode.utills.CustomerDTOMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerEventBusTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+    private CustomerEventBus underTest;
+
+    @AfterEach
+    void tearDown() {
+        underTest.destroy();
+    }
+
+    @Test
+    void fansChangesOutToEverySubscriber() throws Exception {
+        // Given
+        underTest = bus(16, 16);
+        RecordingEmitter first = (RecordingEmitter) underTest.subscribe(null);
+        RecordingEmitter second = (RecordingEmitter) underTest.subscribe(null);
+
+        // When
+        Customer alex = new Customer(1, "Alex", "alex@gmail.com", "password", 19, Gender.MALE);
+        underTest.onCustomerChanged(new CustomerChangedEvent(ChangeType.CREATED, 1, alex));
+
+        // Then
+        for (RecordingEmitter emitter : List.of(first, second)) {
+            String sent = await(emitter, events -> events.size() == 1).get(0);
+            assertThat(sent).contains("event:customer").contains("type=created").contains("Alex");
+            assertThat(sent).doesNotContain("password");
+        }
+    }
+
+    @Test
+    void sendsEachCustomerOfARegistrationBatch() throws Exception {
+        // Given
+        underTest = bus(16, 16);
+        RecordingEmitter subscriber = (RecordingEmitter) underTest.subscribe(null);
+
+        // When
+        underTest.onCustomersCreated(new CustomersCreatedEvent(List.of(
+                new Customer(1, "Alex", "alex@gmail.com", "password", 19, Gender.MALE),
+                new Customer(2, "Jamila", "jamila@gmail.com", "password", 22, Gender.FEMALE)
+        )));
+
+        // Then
+        List<String> sent = await(subscriber, events -> events.size() == 2);
+        assertThat(sent.get(0)).contains("type=created").contains("Alex");
+        assertThat(sent.get(1)).contains("type=created").contains("Jamila");
+    }
+
+    @Test
+    void sendsResetInsteadOfABatchTooBigForTheQueue() throws Exception {
+        // Given
+        underTest = bus(2, 16);
+        RecordingEmitter subscriber = (RecordingEmitter) underTest.subscribe(null);
+        List<Customer> customers = List.of(
+                new Customer(1, "Alex", "alex@gmail.com", "password", 19, Gender.MALE),
+                new Customer(2, "Jamila", "jamila@gmail.com", "password", 22, Gender.FEMALE),
+                new Customer(3, "Sam", "sam@gmail.com", "password", 23, Gender.MALE)
+        );
+
+        // When
+        underTest.onCustomersCreated(new CustomersCreatedEvent(customers));
+
+        // Then
+        assertThat(await(subscriber, events -> events.size() == 1).get(0)).contains("event:reset");
+        assertThat(underTest.subscriberCount()).isEqualTo(1);
+    }
+
+    @Test
+    void resumesFromLastEventId() throws Exception {
+        // Given
+        underTest = bus(16, 16);
+        RecordingEmitter first = (RecordingEmitter) underTest.subscribe(null);
+        underTest.onCustomerChanged(new CustomerChangedEvent(ChangeType.DELETED, 1, null));
+        String lastEventId = idOf(await(first, events -> events.size() == 1).get(0));
+
+        // When
+        underTest.onCustomerChanged(new CustomerChangedEvent(ChangeType.DELETED, 2, null));
+        underTest.onCustomerChanged(new CustomerChangedEvent(ChangeType.DELETED, 3, null));
+        RecordingEmitter resumed = (RecordingEmitter) underTest.subscribe(lastEventId);
+
+        // Then
+        List<String> sent = await(resumed, events -> events.size() == 2);
+        assertThat(sent.get(0)).contains("customerId=2");
+        assertThat(sent.get(1)).contains("customerId=3");
+    }
+
+    @Test
+    void sendsResetWhenLastEventIdIsOutOfReach() throws Exception {
+        // Given
+        underTest = bus(16, 2);
+        for (int id = 1; id <= 5; id++) {
+            underTest.onCustomerChanged(new CustomerChangedEvent(ChangeType.DELETED, id, null));
+        }
+
+        // When
+        RecordingEmitter unknownEpoch = (RecordingEmitter) underTest.subscribe("abc-1");
+
+        // Then
+        assertThat(await(unknownEpoch, events -> events.size() == 1).get(0)).contains("event:reset");
+    }
+
+    @Test
+    void evictsSubscribersThatFallBehind() throws Exception {
+        // Given
+        underTest = bus(2, 16);
+        RecordingEmitter slow = (RecordingEmitter) underTest.subscribe(null);
+        slow.block();
+
+        // When
+        for (int id = 1; id <= 5; id++) {
+            underTest.onCustomerChanged(new CustomerChangedEvent(ChangeType.DELETED, id, null));
+        }
+
+        // Then
+        assertThat(underTest.subscriberCount()).isZero();
+        assertThat(meterRegistry.get("customer.events.evictions").counter().count()).isEqualTo(1);
+        slow.release();
+    }
+
+    @Test
+    void evictsASubscriberStuckInASendWithoutStallingTheOthers() throws Exception {
+        // Given
+        // one sender thread, so the stalled client would otherwise hold up everyone
+        underTest = bus(16, 16, 1, Duration.ofMillis(200));
+        RecordingEmitter stalled = (RecordingEmitter) underTest.subscribe(null);
+        stalled.block();
+        underTest.onCustomerChanged(new CustomerChangedEvent(ChangeType.DELETED, 1, null));
+        RecordingEmitter healthy = (RecordingEmitter) underTest.subscribe(null);
+
+        // When
+        underTest.onCustomerChanged(new CustomerChangedEvent(ChangeType.DELETED, 2, null));
+
+        // Then
+        assertThat(await(healthy, events -> events.size() == 1).get(0)).contains("customerId=2");
+        assertThat(underTest.subscriberCount()).isEqualTo(1);
+        assertThat(meterRegistry.get("customer.events.evictions").counter().count()).isEqualTo(1);
+        stalled.release();
+    }
+
+    private CustomerEventBus bus(int bufferSize, int replaySize) {
+        return bus(bufferSize, replaySize, 4, Duration.ofMinutes(1));
+    }
+
+    private CustomerEventBus bus(int bufferSize, int replaySize, int senderThreads, Duration sendTimeout) {
+        return new CustomerEventBus(
+                new CustomerDTOMapper(),
+                meterRegistry,
+                bufferSize,
+                replaySize,
+                Duration.ofMinutes(1),
+                Duration.ofMinutes(1),
+                senderThreads,
+                sendTimeout
+        ) {
+            @Override
+            protected SseEmitter createEmitter(long timeoutMillis) {
+                RecordingEmitter emitter = new RecordingEmitter();
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+    }
+
+    private static List<String> await(RecordingEmitter emitter, Predicate<List<String>> condition)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.test(emitter.sent) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.test(emitter.sent)).isTrue();
+        return emitter.sent;
+    }
+
+    private static String idOf(String event) {
+        return event.lines()
+                .filter(line -> line.startsWith("id:"))
+                .map(line -> line.substring(3))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<String> sent = new CopyOnWriteArrayList<>();
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sent.add(builder.build()
+                    .stream()
+                    .map(data -> String.valueOf(data.getData()))
+                    .collect(Collectors.joining()));
+        }
+
+        private void block() {
+            gate = new CountDownLatch(1);
+        }
+
+        private void release() {
+            gate.countDown();
+        }
+    }
+}
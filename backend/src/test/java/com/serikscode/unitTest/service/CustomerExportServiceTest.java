@@ -0,0 +1,102 @@
+package com.serikscode.unitTest.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.serikscode.customer.Customer;
+import com.serikscode.customer.Gender;
+import com.serikscode.repository.CustomerDao;
+import com.serikscode.service.CustomerExportFormat;
+import com.serikscode.service.CustomerExportService;
+import com.serikscode.utills.CustomerDTOMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerExportServiceTest {
+
+    @Mock
+    private CustomerDao customerDao;
+
+    private CustomerExportService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerExportService(
+                customerDao,
+                new CustomerDTOMapper(),
+                new ObjectMapper(),
+                new NoOpTransactionManager()
+        );
+    }
+
+    @Test
+    void canExportNdjson() throws IOException {
+        //Given
+        when(customerDao.streamAllCustomers()).thenReturn(Stream.of(
+                new Customer(1, "Alex", "alex@gmail.com", "password", 19, Gender.MALE),
+                new Customer(2, "Jamila", "jamila@gmail.com", "password", 22, Gender.FEMALE)
+        ));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        //When
+        underTest.export(CustomerExportFormat.NDJSON, out);
+
+        //Then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).contains("\"email\":\"alex@gmail.com\"");
+        assertThat(lines[1]).contains("\"email\":\"jamila@gmail.com\"");
+        assertThat(out.toString(StandardCharsets.UTF_8)).doesNotContain("password");
+    }
+
+    @Test
+    void canExportCsv() throws IOException {
+        //Given
+        when(customerDao.streamAllCustomers()).thenReturn(Stream.of(
+                new Customer(1, "Smith, Alex", "alex@gmail.com", "password", 19, Gender.MALE)
+        ));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        //When
+        underTest.export(CustomerExportFormat.CSV, out);
+
+        //Then
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "id,name,email,gender,age,profile_image_id\n" +
+                "1,\"Smith, Alex\",alex@gmail.com,MALE,19,\n"
+        );
+    }
+
+    private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
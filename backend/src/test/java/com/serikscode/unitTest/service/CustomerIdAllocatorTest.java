@@ -0,0 +1,66 @@
+package com.serikscode.unitTest.service;
+
+import com.serikscode.service.CustomerIdAllocator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerIdAllocatorTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private CustomerIdAllocator underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerIdAllocator(jdbcTemplate);
+        when(jdbcTemplate.queryForObject(contains("pg_sequences"), eq(Long.class))).thenReturn(3L);
+    }
+
+    @Test
+    void singleIdsComeFromOneBlockUntilItRunsOut() {
+        //Given
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(1)))
+                .thenReturn(List.of(1L), List.of(10L));
+
+        //When
+        List<Integer> actual = List.of(
+                underTest.nextId(), underTest.nextId(), underTest.nextId(), underTest.nextId()
+        );
+
+        //Then
+        assertThat(actual).containsExactly(1, 2, 3, 10);
+        verify(jdbcTemplate, times(2)).queryForList(anyString(), eq(Long.class), eq(1));
+    }
+
+    @Test
+    void batchesUseTheCurrentBlockThenReserveTheRestInOneQuery() {
+        //Given
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(1))).thenReturn(List.of(1L));
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(2))).thenReturn(List.of(4L, 7L));
+        underTest.nextId();
+
+        //When
+        List<Integer> actual = underTest.nextIds(6);
+
+        //Then
+        assertThat(actual).containsExactly(2, 3, 4, 5, 6, 7);
+        // the rest of the last block is kept for the next caller
+        assertThat(underTest.nextId()).isEqualTo(8);
+    }
+}
@@ -1,16 +1,31 @@
 package com.serikscode.unitTest.service;
 
 import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerChange;
+import com.serikscode.customer.CustomerChangeCursor;
+import com.serikscode.customer.CustomerUpdateRequest;
 import com.serikscode.customer.Gender;
+import com.serikscode.customer.PatchedCustomer;
 import com.serikscode.repository.CustomerRepository;
+import com.serikscode.repository.CustomerTombstone;
+import com.serikscode.service.CustomerIdAllocator;
 import com.serikscode.service.CustomerJPADataAccessService;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class CustomerJPADataAccessServiceTest {
 
@@ -19,11 +34,15 @@ class CustomerJPADataAccessServiceTest {
 
     @Mock
     private CustomerRepository customerRepository;
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private CustomerIdAllocator customerIdAllocator;
 
     @BeforeEach
     void setUp() {
         autoCloseable = MockitoAnnotations.openMocks(this);
-        underTest = new CustomerJPADataAccessService(customerRepository);
+        underTest = new CustomerJPADataAccessService(customerRepository, entityManager, customerIdAllocator);
     }
 
     @AfterEach
@@ -42,6 +61,58 @@ class CustomerJPADataAccessServiceTest {
                 .findAll();
     }
 
+    @Test
+    void searchCustomers() {
+        //When
+        underTest.searchCustomers("ale", 10);
+
+        //Then
+        verify(customerRepository).searchByNameOrEmail("ale", 10);
+    }
+
+    @Test
+    void streamAllCustomers() {
+        //Given
+        Customer customer = new Customer(
+                "Sam",
+                "same@gmail.com",
+                "password", 23,
+                Gender.MALE);
+        when(customerRepository.streamAll()).thenReturn(Stream.of(customer));
+
+        //When
+        List<Customer> actual = underTest.streamAllCustomers().toList();
+
+        //Then
+        assertThat(actual).containsExactly(customer);
+        verify(entityManager).detach(customer);
+    }
+
+    @Test
+    void selectChangesSinceMergesRowsAndTombstonesInPositionOrder() {
+        //Given
+        Customer customer = mock(Customer.class);
+        when(customer.getId()).thenReturn(1);
+        when(customer.getChangeXid()).thenReturn(101L);
+        when(customer.getChangeVersion()).thenReturn(12L);
+        CustomerTombstone tombstone = mock(CustomerTombstone.class);
+        when(tombstone.getCustomerId()).thenReturn(2);
+        when(tombstone.getChangeXid()).thenReturn(100L);
+        when(tombstone.getChangeVersion()).thenReturn(13L);
+        when(customerRepository.findSnapshotXmin()).thenReturn(200L);
+        when(customerRepository.findChangedSince(90L, 10L, 200L, PageRequest.of(0, 5))).thenReturn(List.of(customer));
+        when(customerRepository.findTombstonesSince(90L, 10L, 200L, 5)).thenReturn(List.of(tombstone));
+
+        //When
+        List<CustomerChange> actual = underTest.selectChangesSince(new CustomerChangeCursor(90L, 10L), 5);
+
+        //Then
+        assertThat(actual).containsExactly(
+                CustomerChange.deleted(2, new CustomerChangeCursor(100L, 13L)),
+                new CustomerChange(1, new CustomerChangeCursor(101L, 12L), customer)
+        );
+    }
+
     @Test
     void selectCustomerById() {
 
@@ -55,6 +126,70 @@ class CustomerJPADataAccessServiceTest {
         verify(customerRepository).findById(id);
     }
 
+    @Test
+    void selectCustomersByIds() {
+        //Given
+        List<Integer> ids = List.of(1, 2);
+
+        //When
+        underTest.selectCustomersByIds(ids);
+
+        //Then
+        verify(customerRepository).findAllById(ids);
+    }
+
+    @Test
+    void insertCustomerIfEmailAbsent() {
+        //Given
+        Customer customer = new Customer("Sam", "same@gmail.com", "password", 23, Gender.MALE);
+        when(customerIdAllocator.nextId()).thenReturn(51);
+        when(customerRepository.insertIfEmailAbsent(51, "Sam", "same@gmail.com", "password", 23, "MALE"))
+                .thenReturn(List.of(51L));
+
+        //When
+        boolean actual = underTest.insertCustomerIfEmailAbsent(customer);
+
+        //Then
+        assertThat(actual).isTrue();
+        assertThat(customer.getId()).isEqualTo(51);
+        assertThat(customer.getVersion()).isZero();
+    }
+
+    @Test
+    void insertCustomerIfEmailAbsentReportsConflict() {
+        //Given
+        Customer customer = new Customer("Sam", "same@gmail.com", "password", 23, Gender.MALE);
+        when(customerIdAllocator.nextId()).thenReturn(52);
+        when(customerRepository.insertIfEmailAbsent(52, "Sam", "same@gmail.com", "password", 23, "MALE"))
+                .thenReturn(List.of());
+
+        //When
+        boolean actual = underTest.insertCustomerIfEmailAbsent(customer);
+
+        //Then
+        assertThat(actual).isFalse();
+        assertThat(customer.getId()).isNull();
+    }
+
+    @Test
+    void patchCustomerChangesOnlyTheGivenFields() {
+        //Given
+        Customer customer = new Customer(1, "Sam", "same@gmail.com", "password", 23, Gender.MALE);
+        when(customerRepository.findById(1)).thenReturn(Optional.of(customer));
+
+        //When
+        Optional<PatchedCustomer> actual = underTest.patchCustomer(1, new CustomerUpdateRequest(null, null, 30, Gender.FEMALE));
+
+        //Then
+        assertThat(actual).hasValueSatisfying(patched -> {
+            assertThat(patched.emailChanged()).isFalse();
+            assertThat(patched.customer().getName()).isEqualTo("Sam");
+            assertThat(patched.customer().getAge()).isEqualTo(30);
+            assertThat(patched.customer().getGender()).isEqualTo(Gender.FEMALE);
+        });
+        verify(customerRepository).flush();
+    }
+
     @Test
     void insertCustomer() {
         //Given
@@ -103,12 +238,14 @@ class CustomerJPADataAccessServiceTest {
 
         //Given
         int id = 1;
+        when(customerRepository.deleteCustomerById(id)).thenReturn(1);
 
         //When
-        underTest.deleteCustomer(id);
+        boolean deleted = underTest.deleteCustomer(id);
 
         //Then
-        verify(customerRepository).deleteById(id);
+        assertThat(deleted).isTrue();
+        verify(customerRepository).deleteCustomerById(id);
     }
 
     @Test
@@ -120,12 +257,20 @@ class CustomerJPADataAccessServiceTest {
                 "same@gmail.com",
                 "password", 23,
                 Gender.MALE);
+        Customer saved = new Customer(
+                "Sam",
+                "same@gmail.com",
+                "password", 23,
+                Gender.MALE);
+        saved.setVersion(1L);
+        when(customerRepository.save(customer)).thenReturn(saved);
 
         //When
         underTest.updateCustomer(customer);
 
         //Then
         verify(customerRepository).save(customer);
+        assertThat(customer.getVersion()).isEqualTo(1L);
     }
 
     @Test
@@ -146,4 +291,18 @@ class CustomerJPADataAccessServiceTest {
         //Then
         verify(customerRepository).updateProfileImageId(profileImageId, customerId);
     }
+
+    @Test
+    void canSelectProfileImageId() {
+
+        //Given
+        Integer customerId = 1;
+        when(customerRepository.findProfileImageIdById(customerId)).thenReturn(Optional.of("222"));
+
+        //When
+        Optional<String> actual = underTest.selectProfileImageId(customerId);
+
+        //Then
+        assertThat(actual).contains("222");
+    }
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.serikscode.unitTest.service;
+
+import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerCursor;
+import com.serikscode.customer.CustomerField;
+import com.serikscode.customer.CustomerFilter;
+import com.serikscode.customer.CustomerQuery;
+import com.serikscode.customer.CustomerSort;
+import com.serikscode.customer.Gender;
+import com.serikscode.service.CustomerListDataAccessService;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// the list DAO is seeded with Alex (id 1, age 21, MALE) and Jamila (id 2, age 22, FEMALE)
+class CustomerListDataAccessServiceTest {
+
+    private final CustomerListDataAccessService underTest = new CustomerListDataAccessService();
+
+    @Test
+    void selectCustomersPagesPastTheCursor() {
+        // When
+        List<Customer> firstPage = underTest.selectCustomers(query(CustomerFilter.NONE, CustomerSort.BY_ID, null, 1));
+        List<Customer> secondPage = underTest.selectCustomers(query(
+                CustomerFilter.NONE, CustomerSort.BY_ID, new CustomerCursor(firstPage.get(0).getId(), null), 1
+        ));
+
+        // Then
+        assertThat(firstPage).extracting(Customer::getId).containsExactly(1);
+        assertThat(secondPage).extracting(Customer::getId).containsExactly(2);
+    }
+
+    @Test
+    void selectCustomersSortsDescendingByAgeAndSeeksByValueAndId() {
+        // Given
+        CustomerSort byAgeDescending = CustomerSort.parse("-age");
+
+        // When
+        List<Customer> all = underTest.selectCustomers(query(CustomerFilter.NONE, byAgeDescending, null, null));
+        List<Customer> afterJamila = underTest.selectCustomers(query(
+                CustomerFilter.NONE, byAgeDescending, new CustomerCursor(2, 22), null
+        ));
+
+        // Then
+        assertThat(all).extracting(Customer::getId).startsWith(2, 1);
+        assertThat(afterJamila).extracting(Customer::getId).startsWith(1).doesNotContain(2);
+    }
+
+    @Test
+    void selectCustomersAppliesTheFilter() {
+        // Given
+        CustomerFilter filter = new CustomerFilter(22, null, Gender.FEMALE, "JAM", "jamila@");
+
+        // When
+        List<Customer> actual = underTest.selectCustomers(query(filter, CustomerSort.BY_ID, null, null));
+
+        // Then
+        assertThat(actual).extracting(Customer::getId).containsExactly(2);
+    }
+
+    private static CustomerQuery query(CustomerFilter filter, CustomerSort sort, CustomerCursor after, Integer limit) {
+        return new CustomerQuery(filter, sort, after, limit, CustomerField.ALL);
+    }
+}
@@ -0,0 +1,152 @@
+package com.serikscode.unitTest.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.serikscode.customer.CustomerChangedEvent;
+import com.serikscode.customer.CustomerChangedEvent.ChangeType;
+import com.serikscode.customer.Gender;
+import com.serikscode.dto.CustomerDTO;
+import com.serikscode.service.CustomerListSnapshot;
+import com.serikscode.service.CustomerService;
+import com.serikscode.service.CustomerVersionTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerListSnapshotTest {
+
+    @Mock
+    private CustomerService customerService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CustomerVersionTracker customerVersionTracker = new CustomerVersionTracker(1000);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CustomerListSnapshot underTest;
+
+    private final CustomerDTO alex = new CustomerDTO(
+            1, "Alex", "alex@gmail.com", Gender.MALE, 19, List.of("ROLE_USER"), "alex@gmail.com", null, 0L
+    );
+    private final CustomerDTO jamila = new CustomerDTO(
+            2, "Jamila", "jamila@gmail.com", Gender.FEMALE, 22, List.of("ROLE_USER"), "jamila@gmail.com", null, 0L
+    );
+
+    @AfterEach
+    void tearDown() {
+        underTest.destroy();
+    }
+
+    @Test
+    void disabledSnapshotIsNeverBuilt() {
+        // Given
+        underTest = snapshot(false, Duration.ofSeconds(5));
+
+        // When
+        underTest.afterSingletonsInstantiated();
+        underTest.onCustomerChanged(new CustomerChangedEvent(ChangeType.DELETED, 1, null));
+
+        // Then
+        assertThat(underTest.get()).isNull();
+        verifyNoInteractions(customerService);
+    }
+
+    @Test
+    void buildsJsonAndGzipAtStartup() throws Exception {
+        // Given
+        when(customerService.getAllCustomer()).thenReturn(List.of(alex, jamila));
+        underTest = snapshot(true, Duration.ofSeconds(5));
+
+        // When
+        underTest.afterSingletonsInstantiated();
+
+        // Then
+        CustomerListSnapshot.Snapshot snapshot = await(s -> s != null);
+        assertThat(snapshot.json()).isEqualTo(objectMapper.writeValueAsBytes(List.of(alex, jamila)));
+        assertThat(gunzip(snapshot.gzip())).isEqualTo(snapshot.json());
+        assertThat(snapshot.etag()).isEqualTo(customerVersionTracker.listETag());
+        assertThat(snapshot.gzipETag()).isNotEqualTo(snapshot.etag());
+        assertThat(meterRegistry.get("customer.list.snapshot.rebuild").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void rebuildsAfterWrites() throws Exception {
+        // Given
+        when(customerService.getAllCustomer()).thenReturn(List.of(alex, jamila), List.of(alex));
+        underTest = snapshot(true, Duration.ofSeconds(5));
+        underTest.afterSingletonsInstantiated();
+        CustomerListSnapshot.Snapshot before = await(s -> s != null);
+
+        // When
+        CustomerChangedEvent event = new CustomerChangedEvent(ChangeType.DELETED, 2, null);
+        customerVersionTracker.onCustomerChanged(event);
+        underTest.onCustomerChanged(event);
+
+        // Then
+        CustomerListSnapshot.Snapshot after = await(s -> s != null && s != before);
+        assertThat(after.json()).isEqualTo(objectMapper.writeValueAsBytes(List.of(alex)));
+        assertThat(after.etag()).isEqualTo(customerVersionTracker.listETag());
+    }
+
+    @Test
+    void staleSnapshotIsBypassed() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        when(customerService.getAllCustomer()).thenReturn(List.of(alex)).thenAnswer(invocation -> {
+            release.await();
+            return List.of();
+        });
+        underTest = snapshot(true, Duration.ZERO);
+        underTest.afterSingletonsInstantiated();
+        await(s -> s != null);
+
+        // When
+        underTest.onCustomerChanged(new CustomerChangedEvent(ChangeType.UPDATED, 1, null));
+
+        // Then
+        assertThat(underTest.get()).isNull();
+        release.countDown();
+    }
+
+    private CustomerListSnapshot snapshot(boolean enabled, Duration maxStaleness) {
+        return new CustomerListSnapshot(
+                customerService,
+                customerVersionTracker,
+                objectMapper,
+                meterRegistry,
+                enabled,
+                maxStaleness
+        );
+    }
+
+    private CustomerListSnapshot.Snapshot await(Predicate<CustomerListSnapshot.Snapshot> condition)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        CustomerListSnapshot.Snapshot snapshot = underTest.get();
+        while (!condition.test(snapshot) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            snapshot = underTest.get();
+        }
+        assertThat(condition.test(snapshot)).isTrue();
+        return snapshot;
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readAllBytes();
+        }
+    }
+}
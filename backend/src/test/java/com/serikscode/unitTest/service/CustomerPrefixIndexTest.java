@@ -0,0 +1,154 @@
+package com.serikscode.unitTest.service;
+
+import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerChangedEvent;
+import com.serikscode.customer.CustomerChangedEvent.ChangeType;
+import com.serikscode.customer.CustomerInvalidationEvent;
+import com.serikscode.customer.Gender;
+import com.serikscode.dto.CustomerSuggestion;
+import com.serikscode.exception.RequestValidationException;
+import com.serikscode.repository.CustomerDao;
+import com.serikscode.service.CustomerPrefixIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerPrefixIndexTest {
+
+    @Mock
+    private CustomerDao customerDao;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CustomerPrefixIndex underTest;
+
+    private final Customer alex = new Customer(1, "Alex Smith", "alex@gmail.com", "password", 19, Gender.MALE);
+    private final Customer alexa = new Customer(2, "Alexa Jones", "jones@gmail.com", "password", 22, Gender.FEMALE);
+    private final Customer sam = new Customer(3, "Sam Smithers", "sam@gmail.com", "password", 30, Gender.MALE);
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerPrefixIndex(customerDao, transactionManager, 10);
+        when(customerDao.streamAllCustomers()).thenReturn(Stream.of(alex, alexa, sam));
+        underTest.afterSingletonsInstantiated();
+    }
+
+    @Test
+    void buildsFromStreamingRead() {
+        assertThat(underTest.size()).isEqualTo(3);
+    }
+
+    @Test
+    void matchesNamesWordsAndEmailsCaseInsensitively() {
+        assertThat(underTest.suggest("ALEX", null))
+                .extracting(CustomerSuggestion::id)
+                .containsExactly(1, 2);
+        assertThat(underTest.suggest("smith", null))
+                .extracting(CustomerSuggestion::id)
+                .containsExactly(1, 3);
+        assertThat(underTest.suggest("jones@", null))
+                .extracting(CustomerSuggestion::id)
+                .containsExactly(2);
+    }
+
+    @Test
+    void reportsEachCustomerOnceAndHonoursLimit() {
+        assertThat(underTest.suggest("a", 10))
+                .extracting(CustomerSuggestion::id)
+                .containsExactly(1, 2);
+        assertThat(underTest.suggest("s", 1)).hasSize(1);
+    }
+
+    @Test
+    void flushReloadKeepsServingThePreviousIndexUntilItIsReplaced() {
+        // Given
+        List<List<CustomerSuggestion>> duringReload = new ArrayList<>();
+        Customer zed = new Customer(5, "Zed Ray", "zed@gmail.com", "password", 40, Gender.MALE);
+        when(customerDao.streamAllCustomers()).thenReturn(
+                Stream.of(alex, zed).peek(customer -> duringReload.add(underTest.suggest("alex", null)))
+        );
+
+        // When
+        underTest.onCustomerInvalidated(CustomerInvalidationEvent.flushAll());
+
+        // Then
+        assertThat(duringReload).allSatisfy(suggestions -> assertThat(suggestions)
+                .extracting(CustomerSuggestion::id)
+                .containsExactly(1, 2));
+        assertThat(underTest.suggest("alex", null))
+                .extracting(CustomerSuggestion::id)
+                .containsExactly(1);
+        assertThat(underTest.suggest("zed", null)).hasSize(1);
+    }
+
+    @Test
+    void writesDuringAReloadAreNotHeldUpAndSurviveTheSwap() {
+        // Given
+        Customer renamed = new Customer(2, "Bea Jones", "jones@gmail.com", "password", 22, Gender.FEMALE);
+        Customer created = new Customer(6, "Cy Young", "cy@gmail.com", "password", 33, Gender.MALE);
+        when(customerDao.streamAllCustomers()).thenReturn(Stream.of(alex, alexa, sam).peek(customer -> {
+            if (customer == alexa) {
+                // from another thread, as a request would; it times out if the reload holds the writers' lock
+                CompletableFuture.runAsync(() -> {
+                    underTest.onCustomerChanged(new CustomerChangedEvent(ChangeType.UPDATED, 2, renamed));
+                    underTest.onCustomerChanged(new CustomerChangedEvent(ChangeType.DELETED, 3, null));
+                    underTest.onCustomerChanged(new CustomerChangedEvent(ChangeType.CREATED, 6, created));
+                }).orTimeout(5, TimeUnit.SECONDS).join();
+            }
+        }));
+
+        // When
+        underTest.onCustomerInvalidated(CustomerInvalidationEvent.flushAll());
+
+        // Then
+        assertThat(underTest.suggest("alex", null))
+                .extracting(CustomerSuggestion::id)
+                .containsExactly(1);
+        assertThat(underTest.suggest("bea", null))
+                .extracting(CustomerSuggestion::id)
+                .containsExactly(2);
+        assertThat(underTest.suggest("sam", null)).isEmpty();
+        assertThat(underTest.suggest("cy", null))
+                .extracting(CustomerSuggestion::id)
+                .containsExactly(6);
+    }
+
+    @Test
+    void appliesUpdatesAndDeletes() {
+        // When
+        Customer renamed = new Customer(1, "Zed Smith", "zed@gmail.com", "password", 19, Gender.MALE);
+        underTest.onCustomerChanged(new CustomerChangedEvent(ChangeType.UPDATED, 1, renamed));
+        underTest.onCustomerChanged(new CustomerChangedEvent(ChangeType.DELETED, 3, null));
+        Customer created = new Customer(4, "Alexis Ray", "ray@gmail.com", "password", 40, Gender.FEMALE);
+        underTest.onCustomerChanged(new CustomerChangedEvent(ChangeType.CREATED, 4, created));
+
+        // Then
+        assertThat(underTest.suggest("alex", null))
+                .extracting(CustomerSuggestion::id)
+                .containsExactly(2, 4);
+        assertThat(underTest.suggest("smith", null))
+                .extracting(CustomerSuggestion::name)
+                .containsExactly("Zed Smith");
+    }
+
+    @Test
+    void willThrowWhenPrefixIsBlank() {
+        assertThatThrownBy(() -> underTest.suggest(" ", null))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessageContaining("prefix must not be blank");
+    }
+}
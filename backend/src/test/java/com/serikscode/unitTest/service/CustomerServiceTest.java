@@ -1,16 +1,35 @@
 package com.serikscode.unitTest.service;
 
 import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerChange;
+import com.serikscode.customer.CustomerChangeCursor;
+import com.serikscode.customer.CustomerChangedEvent;
+import com.serikscode.customer.CustomerChangedEvent.ChangeType;
+import com.serikscode.customer.CustomerCursor;
+import com.serikscode.customer.CustomerEmailChangedEvent;
+import com.serikscode.customer.CustomerField;
+import com.serikscode.customer.CustomerFilter;
+import com.serikscode.customer.CustomerQuery;
 import com.serikscode.customer.CustomerRegistrationRequest;
+import com.serikscode.customer.CustomerSort;
+import com.serikscode.customer.CustomerUpdateRequest;
 import com.serikscode.customer.Gender;
+import com.serikscode.customer.PatchedCustomer;
+import com.serikscode.dto.CustomerBatch;
+import com.serikscode.dto.CustomerChanges;
 import com.serikscode.dto.CustomerDTO;
+import com.serikscode.dto.CustomerPage;
+import com.serikscode.exception.ChangeHistoryExpiredException;
 import com.serikscode.exception.DuplicateResourseException;
+import com.serikscode.exception.PreconditionFailedException;
 import com.serikscode.exception.RequestValidationException;
 import com.serikscode.exception.ResourceNotFoundException;
 import com.serikscode.repository.CustomerDao;
 import com.serikscode.s3.S3Buckets;
 import com.serikscode.s3.S3Service;
+import com.serikscode.service.CustomerEmailFilter;
 import com.serikscode.service.CustomerService;
+import com.serikscode.utills.CustomerCursorCodec;
 import com.serikscode.utills.CustomerDTOMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -19,13 +38,18 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.services.s3.endpoints.internal.Value;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -42,14 +66,20 @@ class CustomerServiceTest {
     private S3Service s3Service;
     @Mock
     private S3Buckets s3Buckets;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private CustomerEmailFilter customerEmailFilter;
 
     private CustomerService underTest;
 
     private CustomerDTOMapper customerDTOMapper = new CustomerDTOMapper();
+    private CustomerCursorCodec customerCursorCodec = new CustomerCursorCodec();
 
     @BeforeEach
     void setUp() {
-        underTest = new CustomerService(customerDao,  customerDTOMapper, passwordEncoder, s3Service, s3Buckets);
+        underTest = new CustomerService(customerDao,  customerDTOMapper, passwordEncoder, s3Service, s3Buckets, customerCursorCodec, eventPublisher, customerEmailFilter);
+        lenient().when(customerEmailFilter.mightContain(anyString())).thenReturn(true);
     }
 
     @Test
@@ -62,6 +92,104 @@ class CustomerServiceTest {
         verify(customerDao).selectAllCustomer();
     }
 
+    @Test
+    void canGetCustomersPageWithNextCursor() {
+        //Given
+        Customer first = new Customer(1, "Alex", "alex@gmail.com", "password", 19, Gender.MALE);
+        Customer second = new Customer(2, "Jamila", "jamila@gmail.com", "password", 22, Gender.FEMALE);
+        Customer third = new Customer(3, "Sam", "sam@gmail.com", "password", 30, Gender.MALE);
+        CustomerSort sort = CustomerSort.parse("name");
+
+        when(customerDao.selectCustomers(
+                new CustomerQuery(CustomerFilter.NONE, sort, null, 3, CustomerField.ALL)
+        )).thenReturn(List.of(first, second, third));
+
+        //When
+        CustomerPage actual = underTest.getCustomersPage(CustomerFilter.NONE, sort, null, 2, CustomerField.ALL);
+
+        //Then
+        assertThat(actual.customers())
+                .extracting(CustomerDTO::id)
+                .containsExactly(1, 2);
+        assertThat(customerCursorCodec.decode(actual.nextCursor(), sort))
+                .isEqualTo(new CustomerCursor(2, "Jamila"));
+    }
+
+    @Test
+    void lastCustomersPageHasNoNextCursor() {
+        //Given
+        Customer second = new Customer(2, "Jamila", "jamila@gmail.com", "password", 22, Gender.FEMALE);
+        Customer third = new Customer(3, "Sam", "sam@gmail.com", "password", 30, Gender.MALE);
+        CustomerFilter filter = new CustomerFilter(20, null, null, null, null);
+        String after = customerCursorCodec.encode(CustomerSort.BY_ID, second);
+
+        when(customerDao.selectCustomers(new CustomerQuery(
+                filter, CustomerSort.BY_ID, new CustomerCursor(2, null), 3, CustomerField.ALL
+        ))).thenReturn(List.of(third));
+
+        //When
+        CustomerPage actual = underTest.getCustomersPage(filter, CustomerSort.BY_ID, after, 2, CustomerField.ALL);
+
+        //Then
+        assertThat(actual.customers()).hasSize(1);
+        assertThat(actual.nextCursor()).isNull();
+    }
+
+    @Test
+    void willThrowWhenCustomersPageLimitIsOutOfRange() {
+        assertThatThrownBy(() -> underTest.getCustomersPage(
+                CustomerFilter.NONE, CustomerSort.BY_ID, null, 0, CustomerField.ALL))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessageContaining("limit must be between");
+
+        verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void willThrowWhenCursorIsInvalid() {
+        assertThatThrownBy(() -> underTest.getCustomersPage(
+                CustomerFilter.NONE, CustomerSort.BY_ID, "not-a-cursor", 10, CustomerField.ALL))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessageContaining("invalid cursor");
+
+        verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void willThrowWhenCursorWasIssuedForAnotherSort() {
+        //Given
+        Customer customer = new Customer(2, "Jamila", "jamila@gmail.com", "password", 22, Gender.FEMALE);
+        String after = customerCursorCodec.encode(CustomerSort.parse("-age"), customer);
+
+        //Then
+        assertThatThrownBy(() -> underTest.getCustomersPage(
+                CustomerFilter.NONE, CustomerSort.parse("name"), after, 10, CustomerField.ALL))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessageContaining("invalid cursor");
+    }
+
+    @Test
+    void canSearchCustomers() {
+        //Given
+        Customer customer = new Customer(1, "Alex", "alex@gmail.com", null, 19, Gender.MALE);
+        when(customerDao.searchCustomers("ale", 20)).thenReturn(List.of(customer));
+
+        //When
+        List<CustomerDTO> actual = underTest.searchCustomers(" ale ", 20);
+
+        //Then
+        assertThat(actual).containsExactly(customerDTOMapper.apply(customer));
+    }
+
+    @Test
+    void willThrowWhenSearchQueryIsBlank() {
+        assertThatThrownBy(() -> underTest.searchCustomers(" ", 20))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessageContaining("search query must not be blank");
+
+        verifyNoInteractions(customerDao);
+    }
+
     @Test
     void canGetCustomer() {
         //Given
@@ -85,6 +213,121 @@ class CustomerServiceTest {
         assertThat(actual).isEqualTo(expected);
     }
 
+    @Test
+    void canGetCustomersByIdsReportingMissingOnes() {
+        //Given
+        Customer alex = new Customer(1, "Alex", "alex@gmail.com", "password", 19, Gender.MALE);
+        Customer jamila = new Customer(3, "Jamila", "jamila@gmail.com", "password", 22, Gender.FEMALE);
+        Mockito.when(customerDao.selectCustomersByIds(Set.of(3, 1, 2)))
+                .thenReturn(List.of(alex, jamila));
+
+        //When
+        CustomerBatch actual = underTest.getCustomersByIds(List.of(3, 1, 2, 3));
+
+        //Then
+        assertThat(actual.customers()).containsExactly(
+                customerDTOMapper.apply(jamila),
+                customerDTOMapper.apply(alex)
+        );
+        assertThat(actual.missingIds()).containsExactly(2);
+    }
+
+    @Test
+    void willThrowWhenGetCustomersByIdsIsEmpty() {
+        //When
+        assertThatThrownBy(() -> underTest.getCustomersByIds(List.of()))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("ids must not be empty");
+
+        //Then
+        verify(customerDao, never()).selectCustomersByIds(any());
+    }
+
+    @Test
+    void canGetChangesSinceCursor() {
+        //Given
+        CustomerChangeCursor since = new CustomerChangeCursor(100L, 5L);
+        Customer alex = new Customer(1, "Alex", "alex@gmail.com", "password", 19, Gender.MALE);
+        Mockito.when(customerDao.selectChangesSince(since, 3)).thenReturn(List.of(
+                new CustomerChange(1, new CustomerChangeCursor(101L, 9L), alex),
+                CustomerChange.deleted(2, new CustomerChangeCursor(102L, 6L)),
+                CustomerChange.deleted(3, new CustomerChangeCursor(102L, 7L))
+        ));
+        Mockito.when(customerDao.selectTombstoneHorizon()).thenReturn(CustomerChangeCursor.START);
+
+        //When
+        CustomerChanges actual = underTest.getChangesSince(customerCursorCodec.encode(since), 2);
+
+        //Then
+        assertThat(actual).isEqualTo(new CustomerChanges(
+                List.of(customerDTOMapper.apply(alex)),
+                List.of(2),
+                customerCursorCodec.encode(new CustomerChangeCursor(102L, 6L)),
+                true
+        ));
+    }
+
+    @Test
+    void getChangesSinceKeepsCursorWhenNothingChanged() {
+        //Given
+        String since = customerCursorCodec.encode(new CustomerChangeCursor(100L, 5L));
+        Mockito.when(customerDao.selectChangesSince(new CustomerChangeCursor(100L, 5L), 11)).thenReturn(List.of());
+        Mockito.when(customerDao.selectTombstoneHorizon()).thenReturn(CustomerChangeCursor.START);
+
+        //When
+        CustomerChanges actual = underTest.getChangesSince(since, 10);
+
+        //Then
+        assertThat(actual).isEqualTo(new CustomerChanges(List.of(), List.of(), since, false));
+    }
+
+    @Test
+    void getChangesWithoutCursorStartsFromTheBeginningWhateverTheHorizon() {
+        //Given
+        Mockito.when(customerDao.selectChangesSince(CustomerChangeCursor.START, 11)).thenReturn(List.of());
+
+        //When
+        CustomerChanges actual = underTest.getChangesSince(null, 10);
+
+        //Then
+        assertThat(actual.cursor()).isEqualTo(customerCursorCodec.encode(CustomerChangeCursor.START));
+        verify(customerDao, never()).selectTombstoneHorizon();
+    }
+
+    @Test
+    void getChangesSinceCursorBehindPrunedTombstonesRequiresResync() {
+        //Given
+        CustomerChangeCursor since = new CustomerChangeCursor(100L, 5L);
+        Mockito.when(customerDao.selectChangesSince(since, 11)).thenReturn(List.of());
+        Mockito.when(customerDao.selectTombstoneHorizon()).thenReturn(new CustomerChangeCursor(100L, 6L));
+
+        //When
+        //Then
+        assertThatThrownBy(() -> underTest.getChangesSince(customerCursorCodec.encode(since), 10))
+                .isInstanceOf(ChangeHistoryExpiredException.class);
+    }
+
+    @Test
+    void canGetCustomerWithSparseFields() {
+        //Given
+        int id = 10;
+        Set<CustomerField> fields = CustomerField.parse("id,name");
+
+        Customer customer = new Customer();
+        customer.setId(id);
+        customer.setName("Alex");
+
+        when(customerDao.selectCustomerById(id, fields)).thenReturn(Optional.of(customer));
+
+        //When
+        CustomerDTO actual = underTest.getCustomerById(id, fields);
+
+        //Then
+        assertThat(actual).isEqualTo(new CustomerDTO(
+                id, "Alex", null, null, null, null, null, null, null
+        ));
+    }
+
     @Test
     void willThrowWhenGetCustomerReturnsEmptyOptional() {
         //Given
@@ -115,7 +358,7 @@ class CustomerServiceTest {
         String passwordHash = "24234234";
         when(passwordEncoder.encode(request.password())).thenReturn(passwordHash);
 
-        when(customerDao.existsPersonWithEmail(email)).thenReturn(false);
+        when(customerDao.insertCustomerIfEmailAbsent(any())).thenReturn(true);
 
         //When
         underTest.addCustomer(request);
@@ -127,7 +370,7 @@ class CustomerServiceTest {
         );
 
 
-        verify(customerDao).insertCustomer(customerArgumentCaptor.capture());
+        verify(customerDao).insertCustomerIfEmailAbsent(customerArgumentCaptor.capture());
 
         Customer capturedCustomer = customerArgumentCaptor.getValue();
 
@@ -136,6 +379,9 @@ class CustomerServiceTest {
         assertThat(capturedCustomer.getEmail()).isEqualTo(request.email());
         assertThat(capturedCustomer.getAge()).isEqualTo(request.age());
         assertThat(capturedCustomer.getPassword()).isEqualTo(passwordHash);
+        verify(eventPublisher).publishEvent(
+                new CustomerChangedEvent(ChangeType.CREATED, null, capturedCustomer)
+        );
     }
 
     @Test
@@ -150,7 +396,7 @@ class CustomerServiceTest {
                 Gender.MALE);
 
         //When
-        when(customerDao.existsPersonWithEmail(email)).thenReturn(true);
+        when(customerDao.insertCustomerIfEmailAbsent(any())).thenReturn(false);
 
         //Then
         assertThatThrownBy(
@@ -158,6 +404,23 @@ class CustomerServiceTest {
         ).isInstanceOf(DuplicateResourseException.class)
                 .hasMessageContaining("customer with  %s email is already registered".formatted(request.email()));
 
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void addCustomerDoesNotQueryForTheEmailFirst() {
+        //Given
+        String email = "new@gmail.com";
+        when(passwordEncoder.encode("password")).thenReturn("hash");
+        when(customerDao.insertCustomerIfEmailAbsent(any())).thenReturn(true);
+
+        //When
+        underTest.addCustomer(new CustomerRegistrationRequest(
+                "Alex", email, "password", 19, Gender.MALE
+        ));
+
+        //Then
+        verify(customerDao, never()).existsPersonWithEmail(email);
         verify(customerDao, never()).insertCustomer(any());
     }
 
@@ -167,13 +430,15 @@ class CustomerServiceTest {
         //Given
         int id = 12;
 
-        when(customerDao.existsPersonWithId(id)).thenReturn(true);
+        when(customerDao.deleteCustomer(id)).thenReturn(true);
 
         //When
         underTest.deleteCustomerById(id);
 
         //Then
         verify(customerDao).deleteCustomer(id);
+        verify(customerDao, never()).existsPersonWithId(any());
+        verify(eventPublisher).publishEvent(new CustomerChangedEvent(ChangeType.DELETED, id, null));
 
     }
 
@@ -183,7 +448,7 @@ class CustomerServiceTest {
         //Given
         int id = 12;
 
-        when(customerDao.existsPersonWithId(id)).thenReturn(false);
+        when(customerDao.deleteCustomer(id)).thenReturn(false);
 
         //When
         assertThatThrownBy(
@@ -192,10 +457,73 @@ class CustomerServiceTest {
                 .hasMessageContaining("customer with id %s not found".formatted(id));
 
         //Then
-        verify(customerDao,never()).deleteCustomer(any());
+        verifyNoInteractions(eventPublisher);
 
     }
 
+    @Test
+    void patchCustomerWritesOnceWithoutReadingFirst() {
+        //Given
+        Integer id = 1;
+        CustomerUpdateRequest update = new CustomerUpdateRequest(null, null, null, Gender.FEMALE);
+        Customer patched = new Customer(id, "Alex", "alex@gmail.com", "password", 19, Gender.FEMALE);
+        when(customerDao.patchCustomer(id, update))
+                .thenReturn(Optional.of(new PatchedCustomer(patched, "alex@gmail.com")));
+
+        //When
+        CustomerDTO actual = underTest.patchCustomer(id, update);
+
+        //Then
+        assertThat(actual.gender()).isEqualTo(Gender.FEMALE);
+        verify(customerDao, never()).selectCustomerById(any());
+        verify(customerDao, never()).existsPersonWithEmail(any());
+        verify(eventPublisher).publishEvent(new CustomerChangedEvent(ChangeType.UPDATED, id, patched));
+        verify(eventPublisher, never()).publishEvent(any(CustomerEmailChangedEvent.class));
+    }
+
+    @Test
+    void patchCustomerAnnouncesEmailChange() {
+        //Given
+        Integer id = 1;
+        CustomerUpdateRequest update = new CustomerUpdateRequest(null, "new@gmail.com", null, null);
+        Customer patched = new Customer(id, "Alex", "new@gmail.com", "password", 19, Gender.MALE);
+        when(customerDao.patchCustomer(id, update))
+                .thenReturn(Optional.of(new PatchedCustomer(patched, "old@gmail.com")));
+
+        //When
+        underTest.patchCustomer(id, update);
+
+        //Then
+        verify(eventPublisher).publishEvent(new CustomerEmailChangedEvent(id, "old@gmail.com", "new@gmail.com"));
+    }
+
+    @Test
+    void patchCustomerMapsTakenEmailAndMissingCustomer() {
+        //Given
+        CustomerUpdateRequest update = new CustomerUpdateRequest(null, "taken@gmail.com", null, null);
+        when(customerDao.patchCustomer(1, update)).thenThrow(new DuplicateKeyException("customer_email_unique"));
+        when(customerDao.patchCustomer(2, update)).thenReturn(Optional.empty());
+
+        //When
+        //Then
+        assertThatThrownBy(() -> underTest.patchCustomer(1, update))
+                .isInstanceOf(DuplicateResourseException.class);
+        assertThatThrownBy(() -> underTest.patchCustomer(2, update))
+                .isInstanceOf(ResourceNotFoundException.class);
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void patchCustomerRejectsEmptyAndBlankUpdates() {
+        //When
+        //Then
+        assertThatThrownBy(() -> underTest.patchCustomer(1, new CustomerUpdateRequest(null, null, null, null)))
+                .isInstanceOf(RequestValidationException.class);
+        assertThatThrownBy(() -> underTest.patchCustomer(1, new CustomerUpdateRequest(" ", null, null, null)))
+                .isInstanceOf(RequestValidationException.class);
+        verify(customerDao, never()).patchCustomer(any(), any());
+    }
+
     @Test
     void updateCustomer() {
         //Given
@@ -301,6 +629,7 @@ class CustomerServiceTest {
         assertThat(capturedCustomer.getAge()).isEqualTo(customer.getAge());
         assertThat(capturedCustomer.getName()).isEqualTo(customer.getName());
         assertThat(capturedCustomer.getEmail()).isEqualTo(updateRequest.email());
+        verify(eventPublisher).publishEvent(new CustomerEmailChangedEvent(id, email, newEmail));
     }
 
     @Test
@@ -402,11 +731,120 @@ class CustomerServiceTest {
         verify(customerDao,never()).updateCustomer(any());
     }
 
+    @Test
+    void updateCustomerReturnsTheNewVersion() {
+        //Given
+        Integer id = 1;
+        Customer customer = new Customer(id, "Alex", "alex@gmail.com", "password", 19, Gender.MALE);
+        customer.setVersion(3L);
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        doAnswer(invocation -> {
+            Customer updated = invocation.getArgument(0);
+            updated.setVersion(updated.getVersion() + 1);
+            return null;
+        }).when(customerDao).updateCustomer(any());
+
+        CustomerRegistrationRequest updateRequest = new CustomerRegistrationRequest(
+                "Ali", null, "password", null, null);
+
+        //When
+        Long version = underTest.updateCustomer(id, updateRequest, 3L);
+
+        //Then
+        assertThat(version).isEqualTo(4L);
+    }
+
+    @Test
+    void willThrowWhenIfMatchVersionIsStale() {
+        //Given
+        Integer id = 1;
+        Customer customer = new Customer(id, "Alex", "alex@gmail.com", "password", 19, Gender.MALE);
+        customer.setVersion(4L);
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+
+        CustomerRegistrationRequest updateRequest = new CustomerRegistrationRequest(
+                "Ali", null, "password", null, null);
+
+        //When
+        assertThatThrownBy(() -> underTest.updateCustomer(id, updateRequest, 3L))
+                .isInstanceOf(PreconditionFailedException.class);
+
+        //Then
+        verify(customerDao, never()).updateCustomer(any());
+    }
+
+    @Test
+    void willThrowWhenIfMatchUpdateLosesARace() {
+        //Given
+        Integer id = 1;
+        Customer customer = new Customer(id, "Alex", "alex@gmail.com", "password", 19, Gender.MALE);
+        customer.setVersion(3L);
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        doThrow(new OptimisticLockingFailureException("stale"))
+                .when(customerDao).updateCustomer(any());
+
+        CustomerRegistrationRequest updateRequest = new CustomerRegistrationRequest(
+                "Ali", null, "password", null, null);
+
+        //When
+        assertThatThrownBy(() -> underTest.updateCustomer(id, updateRequest, 3L))
+                .isInstanceOf(PreconditionFailedException.class);
+
+        //Then
+        verify(customerDao, times(1)).updateCustomer(any());
+    }
+
+    @Test
+    void updateWithoutIfMatchRetriesAfterAConcurrentUpdate() {
+        //Given
+        Integer id = 1;
+        when(customerDao.selectCustomerById(id)).thenAnswer(invocation -> {
+            Customer customer = new Customer(id, "Alex", "alex@gmail.com", "password", 19, Gender.MALE);
+            customer.setVersion(3L);
+            return Optional.of(customer);
+        });
+        doThrow(new OptimisticLockingFailureException("stale"))
+                .doNothing()
+                .when(customerDao).updateCustomer(any());
+
+        CustomerRegistrationRequest updateRequest = new CustomerRegistrationRequest(
+                "Ali", null, "password", null, null);
+
+        //When
+        underTest.updateCustomer(id, updateRequest);
+
+        //Then
+        verify(customerDao, times(2)).selectCustomerById(id);
+        verify(customerDao, times(2)).updateCustomer(any());
+    }
+
+    @Test
+    void updateWithoutIfMatchGivesUpAfterRepeatedConflicts() {
+        //Given
+        Integer id = 1;
+        when(customerDao.selectCustomerById(id)).thenAnswer(invocation ->
+                Optional.of(new Customer(id, "Alex", "alex@gmail.com", "password", 19, Gender.MALE)));
+        doThrow(new OptimisticLockingFailureException("stale"))
+                .when(customerDao).updateCustomer(any());
+
+        CustomerRegistrationRequest updateRequest = new CustomerRegistrationRequest(
+                "Ali", null, "password", null, null);
+
+        //When
+        // no If-Match was sent, so this is a conflict rather than a failed precondition
+        assertThatThrownBy(() -> underTest.updateCustomer(id, updateRequest))
+                .isInstanceOf(DuplicateResourseException.class)
+                .hasMessageContaining("changed concurrently");
+
+        //Then
+        verify(customerDao, times(3)).updateCustomer(any());
+    }
+
     @Test
     void canUploadProfileImage(){
         //Given
         int customerId = 10;
-        when(customerDao.existsPersonWithId(customerId)).thenReturn(true);
+        when(customerDao.updateCustomerProfileImageId(any(), eq(customerId))).thenReturn(true);
 
         byte[] bytes = "Hello World".getBytes();
         MultipartFile multipartFile = new MockMultipartFile("file", bytes);
@@ -433,25 +871,31 @@ class CustomerServiceTest {
                 "profile-images/%s/%s".formatted(customerId, profileImageIdArgumentCaptor.getValue()),
                 bytes
         );
+        verify(customerDao, never()).existsPersonWithId(any());
+        verify(s3Service, never()).deleteObject(any(), any());
     }
 
     @Test
     void cannotUploadProfileImageWhenCustomerDoesNotExists(){
         //Given
         int customerId = 10;
-        when(customerDao.existsPersonWithId(customerId)).thenReturn(false);
+        when(customerDao.updateCustomerProfileImageId(any(), eq(customerId))).thenReturn(false);
+
+        byte[] bytes = "Hello World".getBytes();
+        String bucket = "customer-bucket";
+        when(s3Buckets.getCustomer()).thenReturn(bucket);
 
         //When
         assertThatThrownBy(() -> {
-            underTest.uploadCustomerProfileImage(customerId, mock(MultipartFile.class));
+            underTest.uploadCustomerProfileImage(customerId, new MockMultipartFile("file", bytes));
         }).isInstanceOf(ResourceNotFoundException.class)
                 .hasMessageContaining("customer with id "+customerId+" not found");
 
-        //Then
-        verify(customerDao).existsPersonWithId(customerId);
-        verifyNoMoreInteractions(customerDao);
-        verifyNoInteractions(s3Buckets);
-        verifyNoInteractions(s3Service);
+        //Then the uploaded object is removed again
+        ArgumentCaptor<String> keyArgumentCaptor = ArgumentCaptor.forClass(String.class);
+        verify(s3Service).putObject(eq(bucket), keyArgumentCaptor.capture(), eq(bytes));
+        verify(s3Service).deleteObject(bucket, keyArgumentCaptor.getValue());
+        verifyNoInteractions(eventPublisher);
 
 
     }
@@ -460,9 +904,6 @@ class CustomerServiceTest {
     void cannotUploadProfileImageWhenExceptionIsThrown() throws IOException {
         //Given
         int customerId = 10;
-        when(customerDao.existsPersonWithId(customerId)).thenReturn(true);
-
-        byte[] bytes = "Hello World".getBytes();
 
         MultipartFile multipartFile = mock(MultipartFile.class);
         when(multipartFile.getBytes()).thenThrow(IOException.class);
@@ -486,16 +927,7 @@ class CustomerServiceTest {
         // Given
         int customerId = 10;
         String profileImageId = "2222";
-        Customer customer = new Customer(
-                customerId,
-                "Alex",
-                "alex@gmail.com",
-                "password",
-                19,
-                Gender.MALE,
-                profileImageId
-        );
-        when(customerDao.selectCustomerById(customerId)).thenReturn(Optional.of(customer));
+        when(customerDao.selectProfileImageId(customerId)).thenReturn(Optional.of(profileImageId));
 
         String bucket = "customer-bucket";
         when(s3Buckets.getCustomer()).thenReturn(bucket);
@@ -512,22 +944,17 @@ class CustomerServiceTest {
 
         // Then
         assertThat(actualImage).isEqualTo(expectedImage);
+        verify(customerDao, never()).selectCustomerById(any());
+        verify(customerDao, never()).existsPersonWithId(any());
     }
 
     @Test
     void cannotDownloadWhenNoProfileImageId() {
         // Given
         int customerId = 10;
-        Customer customer = new Customer(
-                customerId,
-                "Alex",
-                "alex@gmail.com",
-                "password",
-                19,
-                Gender.MALE
-        );
 
-        when(customerDao.selectCustomerById(customerId)).thenReturn(Optional.of(customer));
+        when(customerDao.selectProfileImageId(customerId)).thenReturn(Optional.empty());
+        when(customerDao.existsPersonWithId(customerId)).thenReturn(true);
 
         // When
         assertThatThrownBy(() -> underTest.getCustomerProfileImage(customerId))
@@ -543,7 +970,8 @@ class CustomerServiceTest {
         // Given
         int customerId = 10;
 
-        when(customerDao.selectCustomerById(customerId)).thenReturn(Optional.empty());
+        when(customerDao.selectProfileImageId(customerId)).thenReturn(Optional.empty());
+        when(customerDao.existsPersonWithId(customerId)).thenReturn(false);
 
         // When
         // Then
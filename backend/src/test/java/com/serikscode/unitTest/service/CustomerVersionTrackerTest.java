@@ -0,0 +1,165 @@
+package com.serikscode.unitTest.service;
+
+import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerChangedEvent;
+import com.serikscode.customer.CustomerChangedEvent.ChangeType;
+import com.serikscode.customer.CustomerField;
+import com.serikscode.customer.CustomerInvalidationEvent;
+import com.serikscode.customer.Gender;
+import com.serikscode.service.CustomerVersionTracker;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerVersionTrackerTest {
+
+    private final CustomerVersionTracker underTest = new CustomerVersionTracker(1000);
+
+    @Test
+    void listTagIsStableUntilSomethingChanges() {
+        assertThat(underTest.listETag()).isEqualTo(underTest.listETag());
+        assertThat(underTest.listETag()).startsWith("\"").endsWith("\"");
+    }
+
+    @Test
+    void unseenCustomerHasNoTag() {
+        assertThat(underTest.customerETag(1)).isNull();
+    }
+
+    @Test
+    void remembersAtMostTheConfiguredNumberOfRows() throws InterruptedException {
+        // Given
+        CustomerVersionTracker bounded = new CustomerVersionTracker(10);
+
+        // When
+        for (int id = 1; id <= 100; id++) {
+            bounded.customerETag(id, 1L);
+        }
+
+        // Then
+        // eviction runs in the background
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (rowsWithTag(bounded) > 10 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(rowsWithTag(bounded)).isLessThanOrEqualTo(10);
+    }
+
+    @Test
+    void customerTagIsItsVersion() {
+        // When
+        String etag = underTest.customerETag(1, 4L);
+
+        // Then
+        assertThat(etag).isEqualTo("\"v4\"");
+        assertThat(underTest.customerETag(1)).isEqualTo("\"v4\"");
+        assertThat(underTest.parseCustomerETag(etag)).isEqualTo(4L);
+    }
+
+    @Test
+    void sparseReadsGetTheirOwnTagPerFieldSet() {
+        // When
+        String full = underTest.customerETag(1, 4L);
+        String nameOnly = underTest.customerETag(1, 4L, CustomerField.parse("name"));
+
+        // Then
+        assertThat(nameOnly).isNotEqualTo(full);
+        assertThat(underTest.customerETag(1, CustomerField.parse("name,id")))
+                .isEqualTo(underTest.customerETag(1, CustomerField.parse("id,name")))
+                .isNotEqualTo(nameOnly);
+        assertThat(underTest.customerETag(1, CustomerField.ALL)).isEqualTo(full);
+        assertThat(underTest.parseCustomerETag(nameOnly)).isEqualTo(4L);
+    }
+
+    @Test
+    void updateChangesListTagAndOnlyTheUpdatedRowTag() {
+        // Given
+        underTest.customerETag(1, 0L);
+        underTest.customerETag(2, 0L);
+        String list = underTest.listETag();
+
+        // When
+        underTest.onCustomerChanged(new CustomerChangedEvent(ChangeType.UPDATED, 1, versioned(1, 1L)));
+
+        // Then
+        assertThat(underTest.listETag()).isNotEqualTo(list);
+        assertThat(underTest.customerETag(1)).isEqualTo("\"v1\"");
+        assertThat(underTest.customerETag(2)).isEqualTo("\"v0\"");
+    }
+
+    @Test
+    void updateWithoutVersionForgetsTheRow() {
+        // Given
+        underTest.customerETag(1, 0L);
+
+        // When
+        underTest.onCustomerChanged(new CustomerChangedEvent(ChangeType.UPDATED, 1, null));
+
+        // Then
+        assertThat(underTest.customerETag(1)).isNull();
+    }
+
+    @Test
+    void olderReadDoesNotReplaceNewerVersion() {
+        // Given
+        underTest.customerETag(1, 3L);
+
+        // When
+        underTest.customerETag(1, 2L);
+
+        // Then
+        assertThat(underTest.customerETag(1)).isEqualTo("\"v3\"");
+    }
+
+    @Test
+    void deletedRowHasNoTag() {
+        // Given
+        underTest.customerETag(3, 0L);
+        String list = underTest.listETag();
+
+        // When
+        underTest.onCustomerChanged(new CustomerChangedEvent(ChangeType.DELETED, 3, null));
+        underTest.customerETag(3, 0L);
+
+        // Then
+        assertThat(underTest.customerETag(3)).isNull();
+        assertThat(underTest.listETag()).isNotEqualTo(list);
+    }
+
+    @Test
+    void flushForgetsEveryRowAndStartsANewEpoch() {
+        // Given
+        underTest.customerETag(1, 0L);
+        String list = underTest.listETag();
+
+        // When
+        underTest.onCustomerInvalidated(CustomerInvalidationEvent.flushAll());
+
+        // Then
+        assertThat(underTest.customerETag(1)).isNull();
+        assertThat(underTest.listETag()).isNotEqualTo(list);
+    }
+
+    @Test
+    void parsesOnlyCustomerVersionTags() {
+        assertThat(underTest.parseCustomerETag("W/\"v7\"")).isEqualTo(7L);
+        assertThat(underTest.parseCustomerETag("\"7\"")).isNull();
+        assertThat(underTest.parseCustomerETag("\"vx\"")).isNull();
+        assertThat(underTest.parseCustomerETag("v7")).isNull();
+    }
+
+    private static Customer versioned(Integer id, Long version) {
+        Customer customer = new Customer(id, "Alex", "alex@gmail.com", "password", 19, Gender.MALE);
+        customer.setVersion(version);
+        return customer;
+    }
+
+    private static long rowsWithTag(CustomerVersionTracker tracker) {
+        return IntStream.rangeClosed(1, 100)
+                .filter(id -> tracker.customerETag(id) != null)
+                .count();
+    }
+}
@@ -0,0 +1,57 @@
+package com.serikscode.unitTest.service.utills;
+
+import com.serikscode.utills.BloomFilter;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    @Test
+    void neverMissesAnInsertedValue() {
+        //Given
+        BloomFilter underTest = BloomFilter.create(10_000, 0.01);
+
+        //When
+        for (int i = 0; i < 10_000; i++) {
+            underTest.put("customer-" + i + "@gmail.com");
+        }
+
+        //Then
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(underTest.mightContain("customer-" + i + "@gmail.com")).isTrue();
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTarget() {
+        //Given
+        BloomFilter underTest = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            underTest.put("customer-" + i + "@gmail.com");
+        }
+
+        //When
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (underTest.mightContain("stranger-" + i + "@gmail.com")) {
+                falsePositives++;
+            }
+        }
+
+        //Then
+        assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+        assertThat(underTest.expectedFalsePositiveProbability()).isBetween(0.005, 0.02);
+    }
+
+    @Test
+    void sizesFromExpectedInsertionsAndProbability() {
+        //When
+        BloomFilter underTest = BloomFilter.create(1_000_000, 0.01);
+
+        //Then
+        assertThat(underTest.bitSize()).isBetween(9_500_000L, 9_700_000L);
+        assertThat(underTest.hashCount()).isEqualTo(7);
+        assertThat(underTest.expectedFalsePositiveProbability()).isZero();
+    }
+}
@@ -0,0 +1,48 @@
+package com.serikscode.unitTest.service.utills;
+
+import com.serikscode.utills.CsvUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvUtilsTest {
+
+    @Test
+    void readsRecordsUntilTheEnd() throws IOException {
+        //Given
+        BufferedReader reader = new BufferedReader(new StringReader("a,b,c\r\n1,,3\n"));
+
+        //When
+        //Then
+        assertThat(CsvUtils.readRecord(reader)).containsExactly("a", "b", "c");
+        assertThat(CsvUtils.readRecord(reader)).containsExactly("1", "", "3");
+        assertThat(CsvUtils.readRecord(reader)).isNull();
+    }
+
+    @Test
+    void readsQuotedValuesBack() throws IOException {
+        //Given
+        String line = CsvUtils.line("Smith, Alex", "say \"hi\"", "two\nlines", 7);
+        BufferedReader reader = new BufferedReader(new StringReader(line + "next\n"));
+
+        //When
+        //Then
+        assertThat(CsvUtils.readRecord(reader)).containsExactly("Smith, Alex", "say \"hi\"", "two\nlines", "7");
+        assertThat(CsvUtils.readRecord(reader)).containsExactly("next");
+    }
+
+    @Test
+    void lastRecordNeedsNoLineBreak() throws IOException {
+        //Given
+        BufferedReader reader = new BufferedReader(new StringReader("x,\"y\""));
+
+        //When
+        //Then
+        assertThat(CsvUtils.readRecord(reader)).containsExactly("x", "y");
+        assertThat(CsvUtils.readRecord(reader)).isNull();
+    }
+}
@@ -0,0 +1,48 @@
+package com.serikscode.unitTest.service.utills;
+
+import com.serikscode.customer.Customer;
+import com.serikscode.customer.CustomerField;
+import com.serikscode.utills.CustomerProjectionRowMapper;
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CustomerProjectionRowMapperTest {
+
+    @Test
+    void mapsOnlySelectedColumns() throws SQLException {
+        // Given
+        CustomerProjectionRowMapper rowMapper =
+                new CustomerProjectionRowMapper(CustomerField.parse("name,username"));
+
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getInt("id")).thenReturn(1);
+        when(resultSet.getString("name")).thenReturn("Jamila");
+        when(resultSet.getString("email")).thenReturn("jamila@gmail.com");
+
+        // When
+        Customer actual = rowMapper.mapRow(resultSet, 1);
+
+        // Then
+        assertThat(actual.getId()).isEqualTo(1);
+        assertThat(actual.getName()).isEqualTo("Jamila");
+        assertThat(actual.getEmail()).isEqualTo("jamila@gmail.com");
+        assertThat(actual.getGender()).isNull();
+        assertThat(actual.getPassword()).isNull();
+        verify(resultSet, never()).getString("password");
+        verify(resultSet, never()).getString("gender");
+    }
+
+    @Test
+    void selectListAlwaysIncludesId() {
+        assertThat(CustomerField.selectList(CustomerField.parse("email,roles")))
+                .isEqualTo("id, email");
+    }
+}
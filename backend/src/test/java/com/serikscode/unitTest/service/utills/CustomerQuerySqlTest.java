@@ -0,0 +1,65 @@
+package com.serikscode.unitTest.service.utills;
+
+import com.serikscode.customer.CustomerCursor;
+import com.serikscode.customer.CustomerField;
+import com.serikscode.customer.CustomerFilter;
+import com.serikscode.customer.CustomerQuery;
+import com.serikscode.customer.CustomerSort;
+import com.serikscode.customer.Gender;
+import com.serikscode.utills.CustomerQuerySql;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerQuerySqlTest {
+
+    @Test
+    void compilesFilterSortAndCursorToParameterizedSql() {
+        // Given
+        CustomerQuery query = new CustomerQuery(
+                new CustomerFilter(18, 30, Gender.FEMALE, "Al_", null),
+                CustomerSort.parse("-name"),
+                new CustomerCursor(7, "Alice"),
+                21,
+                CustomerField.parse("email")
+        );
+
+        // When
+        CustomerQuerySql actual = CustomerQuerySql.of(query);
+
+        // Then
+        assertThat(actual.sql()).isEqualTo("""
+                SELECT id, name, email
+                FROM customer
+                WHERE age >= ?
+                  AND age <= ?
+                  AND gender = ?
+                  AND lower(name) LIKE ? ESCAPE '\\'
+                  AND (name, id) < (?, ?)
+                ORDER BY name DESC, id DESC
+                LIMIT ?""");
+        assertThat(actual.args()).containsExactly(18, 30, "FEMALE", "al\\_%", "Alice", 7, 21);
+    }
+
+    @Test
+    void unfilteredQueryIsOrderedById() {
+        // Given
+        CustomerQuery query = new CustomerQuery(
+                CustomerFilter.NONE,
+                CustomerSort.BY_ID,
+                null,
+                null,
+                CustomerField.parse("id")
+        );
+
+        // When
+        CustomerQuerySql actual = CustomerQuerySql.of(query);
+
+        // Then
+        assertThat(actual.sql()).isEqualTo("""
+                SELECT id
+                FROM customer
+                ORDER BY id ASC""");
+        assertThat(actual.args()).isEmpty();
+    }
+}